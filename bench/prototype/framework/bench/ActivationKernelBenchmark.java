@@ -0,0 +1,162 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prototype.framework.base.component.ActivationKernel;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This compares the speed of the activation kernels against the original
+ * Math.pow based Sigmoid. Running the class directly prints the accuracy of
+ * each kernel instead.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActivationKernelBenchmark {
+
+    private static final int VALUES = 1 << 12;
+
+    private double[] values;
+
+    /**
+     * Draw the values to activate between -10 and 10.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        values = new double[VALUES];
+        Random random = new Random(42);
+
+        for (int x = 0; x < VALUES; x++) {
+            values[x] = (random.nextDouble() * 20.0) - 10.0;
+        }
+    }
+
+    /**
+     * The original Math.pow Sigmoid.
+     *
+     * @return Sum of the activations.
+     */
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public double pow() {
+
+        double sum = 0;
+
+        for (int x = 0; x < values.length; x++) {
+            sum += 1.0 / (1.0 + Math.pow(Math.E, -values[x]));
+        }
+
+        return sum;
+    }
+
+    /**
+     * The EXACT kernel.
+     *
+     * @return Sum of the activations.
+     */
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public double exact() {
+        return activate(ActivationKernel.EXACT);
+    }
+
+    /**
+     * The FAST kernel.
+     *
+     * @return Sum of the activations.
+     */
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public double fast() {
+        return activate(ActivationKernel.FAST);
+    }
+
+    /**
+     * Activate every value with the given kernel.
+     *
+     * @param kernel Activation kernel.
+     * @return Sum of the activations.
+     */
+    private double activate(ActivationKernel kernel) {
+
+        double sum = 0;
+
+        for (int x = 0; x < values.length; x++) {
+            sum += kernel.activate(values[x]);
+        }
+
+        return sum;
+    }
+
+    /**
+     * Prints the largest error of each kernel.
+     *
+     * @param args Do not use.
+     */
+    public static void main(String[] args) {
+
+        System.out.printf("%-8s %14s%n", "kernel", "max error");
+
+        for (ActivationKernel kernel : ActivationKernel.values()) {
+            System.out.printf("%-8s %14.3e%n", kernel.name(), maxError(kernel));
+        }
+    }
+
+    /**
+     * Largest absolute difference to the exact Sigmoid between -40 and 40.
+     *
+     * @param kernel Activation kernel.
+     * @return Maximum absolute error.
+     */
+    private static double maxError(ActivationKernel kernel) {
+
+        double max = 0;
+
+        for (int x = -4000000; x <= 4000000; x++) {
+
+            double value = x / 100000.0;
+            double error = Math.abs(kernel.activate(value)
+                    - ActivationKernel.EXACT.activate(value));
+
+            max = Math.max(max, error);
+        }
+
+        return max;
+    }
+}
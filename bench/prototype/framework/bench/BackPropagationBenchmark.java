@@ -0,0 +1,79 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prototype.framework.processing.BackPropagation;
+import prototype.framework.processing.FeedForward;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This measures a single back propagation pass over the neuron map. The
+ * outputs left in the neurons by one feed forward are reused by every pass.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BackPropagationBenchmark {
+
+    private static final double LEARNING_RATE = 0.1;
+    private static final double MOMENTUM = 0.9;
+
+    private BackPropagation backPropagation;
+
+    /**
+     * Create the back propagation and feed the first pattern forward.
+     *
+     * @param state Network and data set.
+     */
+    @Setup(Level.Trial)
+    public void setUp(NetworkState state) {
+
+        backPropagation = new BackPropagation();
+        new FeedForward().start(state.matrix, state.getInput(), state.map);
+    }
+
+    /**
+     * Back propagate the target of the first pattern.
+     *
+     * @param state Network and data set.
+     * @return Calculated error.
+     */
+    @Benchmark
+    public double[] start(NetworkState state) {
+
+        return backPropagation.start(state.matrix, state.target, state.map,
+                LEARNING_RATE, MOMENTUM);
+    }
+}
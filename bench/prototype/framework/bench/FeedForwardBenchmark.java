@@ -0,0 +1,83 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prototype.framework.processing.FeedForward;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This measures a single feed forward pass, both through the neuron map and
+ * through the compiled network used by Network.startFeedForward.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeedForwardBenchmark {
+
+    private FeedForward feedForward;
+
+    /**
+     * Create the feed forward.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        feedForward = new FeedForward();
+    }
+
+    /**
+     * Feed forward one pattern through the neuron map.
+     *
+     * @param state Network and data set.
+     * @return Computed result.
+     */
+    @Benchmark
+    public double[] start(NetworkState state) {
+
+        return feedForward.start(state.matrix, state.getInput(), state.map);
+    }
+
+    /**
+     * Feed forward one pattern through the network, which uses the compiled
+     * network.
+     *
+     * @param state Network and data set.
+     * @return Computed result.
+     */
+    @Benchmark
+    public double[] startFeedForward(NetworkState state) {
+
+        return state.network.startFeedForward(state.matrix, state.getInput(), state.map);
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import prototype.framework.core.Network;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This holds a network and a data set shared by the compute core benchmarks,
+ * built once per topology. Data is drawn from a fixed seed so each run
+ * measures the same work.
+ */
+@State(Scope.Thread)
+public class NetworkState {
+
+    /**
+     * Number of patterns in the data set, one epoch passes each of them.
+     */
+    public static final int PATTERNS = 32;
+
+    /**
+     * Network matrix, one size per layer separated by commas.
+     */
+    @Param({"2,3,1", "64,128,10", "784,512,512,10"})
+    public String topology;
+
+    public int[] matrix;
+    public Network network;
+    public Map<String, Object> map;
+
+    public Map<Integer, double[]> dataSet;
+    public Map<Integer, double[]> dataTarget;
+
+    /**
+     * First pattern of the data set and a buffer to copy it into, as the feed
+     * forward consumes its input vectors.
+     */
+    public double[] vectors;
+    public double[] input;
+    public double[] target;
+
+    /**
+     * Build the network and the data set for the topology.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        String[] sizes = topology.split(",");
+        matrix = new int[sizes.length];
+
+        for (int layer = 0; layer < sizes.length; layer++) {
+            matrix[layer] = Integer.parseInt(sizes[layer].trim());
+        }
+
+        network = new Network();
+        map = network.buildNetwork(matrix);
+
+        Random random = new Random(42);
+
+        dataSet = new HashMap<>();
+        dataTarget = new HashMap<>();
+
+        for (int pattern = 0; pattern < PATTERNS; pattern++) {
+
+            double[] values = new double[matrix[0]];
+            double[] targets = new double[matrix[matrix.length - 1]];
+
+            for (int x = 0; x < values.length; x++) {
+                values[x] = random.nextDouble();
+            }
+
+            for (int x = 0; x < targets.length; x++) {
+                targets[x] = random.nextDouble();
+            }
+
+            dataSet.put(pattern, values);
+            dataTarget.put(pattern, targets);
+        }
+
+        vectors = dataSet.get(0);
+        input = new double[vectors.length];
+        target = dataTarget.get(0);
+    }
+
+    /**
+     * Returns the first pattern, copied so that it can be consumed.
+     *
+     * @return Input vectors of the first pattern.
+     */
+    public double[] getInput() {
+
+        System.arraycopy(vectors, 0, input, 0, vectors.length);
+        return input;
+    }
+}
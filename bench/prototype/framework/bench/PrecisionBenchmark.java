@@ -0,0 +1,211 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.bench;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prototype.framework.base.component.Precision;
+import prototype.framework.core.Network;
+import prototype.framework.processing.CompiledNetwork;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This compares the feed forward of a network held in double and in single
+ * precision. A single pattern reads every weight once and is bound by memory
+ * bandwidth once the weights no longer fit in cache, a block of patterns
+ * reuses the weights and is bound by computation. Running the class directly prints how far the float
+ * network is from the double network instead, after feeding forward and after
+ * mini-batch training from the same weights.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrecisionBenchmark {
+
+    /**
+     * Number of patterns fed forward together.
+     */
+    private static final int ROWS = 256;
+
+    /**
+     * Network matrix, one size per layer separated by commas.
+     */
+    @Param({"784,512,512,10", "2048,2048,2048,10"})
+    public String topology;
+
+    @Param({"DOUBLE", "FLOAT"})
+    public Precision precision;
+
+    private int[] matrix;
+    private Network network;
+    private Map<String, Object> map;
+    private double[][] vectors;
+    private double[] input;
+
+    /**
+     * Build the network at the precision and draw the patterns.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        matrix = getMatrix(topology);
+
+        network = new Network();
+        map = network.buildNetwork(matrix, precision);
+
+        vectors = getPatterns(new Random(42), ROWS, matrix[0]);
+        input = new double[matrix[0]];
+    }
+
+    /**
+     * Feed forward one pattern through the compiled network.
+     *
+     * @return Computed result.
+     */
+    @Benchmark
+    public double[] startFeedForward() {
+
+        System.arraycopy(vectors[0], 0, input, 0, input.length);
+        return network.startFeedForward(matrix, input, map);
+    }
+
+    /**
+     * Feed forward a block of patterns through the compiled network.
+     *
+     * @return Computed results.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public double[][] startFeedForwardBlock() {
+
+        return network.startFeedForward(matrix, vectors, map);
+    }
+
+    /**
+     * Prints the largest difference between the outputs of the float and the
+     * double network.
+     *
+     * @param args Do not use.
+     */
+    public static void main(String[] args) {
+
+        System.out.printf("%-20s %14s %14s%n", "topology", "feed forward", "trained");
+
+        for (String topology : new String[]{"2,3,1", "64,128,10", "784,512,512,10"}) {
+
+            int[] matrix = getMatrix(topology);
+            Map<String, Object> map = new Network().buildNetwork(matrix);
+
+            Random random = new Random(42);
+            double[][] values = getPatterns(random, ROWS, matrix[0]);
+            double[][] targets = getPatterns(random, ROWS, matrix[matrix.length - 1]);
+
+            CompiledNetwork exact = CompiledNetwork.compile(matrix, map, Precision.DOUBLE);
+            CompiledNetwork single = CompiledNetwork.compile(matrix, map, Precision.FLOAT);
+
+            double forward = maxError(exact.start(values), single.start(values));
+
+            for (int epoch = 0; epoch < 20; epoch++) {
+                exact.train(values, targets, ROWS, 0.7, 0.9);
+                single.train(values, targets, ROWS, 0.7, 0.9);
+            }
+
+            double trained = maxError(exact.start(values), single.start(values));
+
+            System.out.printf("%-20s %14.3e %14.3e%n", topology, forward, trained);
+        }
+    }
+
+    /**
+     * Largest absolute difference between two sets of results.
+     *
+     * @param expected Results of the double network.
+     * @param actual Results of the float network.
+     * @return Maximum absolute error.
+     */
+    private static double maxError(double[][] expected, double[][] actual) {
+
+        double max = 0;
+
+        for (int row = 0; row < expected.length; row++) {
+            for (int x = 0; x < expected[row].length; x++) {
+                max = Math.max(max, Math.abs(expected[row][x] - actual[row][x]));
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Parse a topology into a network matrix.
+     *
+     * @param topology One size per layer separated by commas.
+     * @return Matrix of the network.
+     */
+    private static int[] getMatrix(String topology) {
+
+        String[] sizes = topology.split(",");
+        int[] matrix = new int[sizes.length];
+
+        for (int layer = 0; layer < sizes.length; layer++) {
+            matrix[layer] = Integer.parseInt(sizes[layer].trim());
+        }
+
+        return matrix;
+    }
+
+    /**
+     * Draw patterns of values between zero and one.
+     *
+     * @param random Source of the values.
+     * @param rows Number of patterns.
+     * @param width Number of values per pattern.
+     * @return Patterns drawn.
+     */
+    private static double[][] getPatterns(Random random, int rows, int width) {
+
+        double[][] patterns = new double[rows][width];
+
+        for (int row = 0; row < rows; row++) {
+            for (int x = 0; x < width; x++) {
+                patterns[row][x] = random.nextDouble();
+            }
+        }
+
+        return patterns;
+    }
+}
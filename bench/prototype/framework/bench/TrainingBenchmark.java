@@ -0,0 +1,73 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This measures one training epoch over the data set, on-line and in
+ * mini-batches. The MSE target can not be reached, so each call trains for
+ * exactly one epoch.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrainingBenchmark {
+
+    private static final double LEARNING_RATE = 0.1;
+    private static final double MOMENTUM = 0.9;
+    private static final int BATCH_SIZE = 8;
+
+    /**
+     * One on-line training epoch, weights are updated after every pattern.
+     *
+     * @param state Network and data set.
+     * @return True if trained.
+     */
+    @Benchmark
+    public boolean epoch(NetworkState state) {
+
+        return state.network.startTraining(state.matrix, state.map,
+                state.dataSet, state.dataTarget, 0, -1, LEARNING_RATE, MOMENTUM, 0);
+    }
+
+    /**
+     * One mini-batch training epoch on the compiled network.
+     *
+     * @param state Network and data set.
+     * @return True if trained.
+     */
+    @Benchmark
+    public boolean epochBatch(NetworkState state) {
+
+        return state.network.startTraining(state.matrix, state.map,
+                state.dataSet, state.dataTarget, 0, -1, LEARNING_RATE, MOMENTUM,
+                0, BATCH_SIZE);
+    }
+}
@@ -25,11 +25,16 @@ import prototype.framework.util.NeuronUtil;
  */
 /**
  * This is the base object that neurons and their types will be built on.
+ *
+ * A neuron created with Precision.FLOAT holds its inputs and weights as
+ * floats, half the memory of a neuron held in double, and no double copy of
+ * them is kept. The input function still sums in double.
  */
 public class Neuron {
 
     /**
-     * Private Final Variables.
+     * Private Final Variables. A neuron held in float keeps its inputs and
+     * weights in the float arrays, the double arrays are then null.
      */
     private final double[] INPUTS;
     private final double[] NETINPUT;
@@ -37,6 +42,12 @@ public class Neuron {
     private final double[] WEIGHTS;
     private final double[] NETWEIGHT;
 
+    private final float[] INPUT_FLOATS;
+    private final float[] NETINPUT_FLOATS;
+
+    private final float[] WEIGHT_FLOATS;
+    private final float[] NETWEIGHT_FLOATS;
+
     /**
      * Private variables.
      */
@@ -47,6 +58,8 @@ public class Neuron {
 
     private boolean isBias;
 
+    private ActivationKernel kernel;
+
     /**
      * Constructor - Create the neuron with the specified number of connections
      * that feed into it from the layer above.
@@ -54,12 +67,43 @@ public class Neuron {
      * @param links Number of connections into the Neuron.
      */
     public Neuron(int links) {
+        this(links, Precision.DOUBLE);
+    }
+
+    /**
+     * Constructor - Create the neuron with the specified number of connections
+     * that feed into it from the layer above, holding its inputs and weights
+     * at the precision given.
+     *
+     * @param links Number of connections into the Neuron.
+     * @param precision Precision the inputs and weights are held in.
+     */
+    public Neuron(int links, Precision precision) {
+
+        if (precision == Precision.FLOAT) {
 
-        this.INPUTS = new double[links];
-        this.NETINPUT = new double[links];
+            this.INPUTS = null;
+            this.NETINPUT = null;
+            this.WEIGHTS = null;
+            this.NETWEIGHT = null;
 
-        this.WEIGHTS = new double[links];
-        this.NETWEIGHT = new double[links];
+            this.INPUT_FLOATS = new float[links];
+            this.NETINPUT_FLOATS = new float[links];
+            this.WEIGHT_FLOATS = new float[links];
+            this.NETWEIGHT_FLOATS = new float[links];
+
+        } else {
+
+            this.INPUTS = new double[links];
+            this.NETINPUT = new double[links];
+            this.WEIGHTS = new double[links];
+            this.NETWEIGHT = new double[links];
+
+            this.INPUT_FLOATS = null;
+            this.NETINPUT_FLOATS = null;
+            this.WEIGHT_FLOATS = null;
+            this.NETWEIGHT_FLOATS = null;
+        }
 
         /**
          * Initialize weights with random numbers between -1 and 1.
@@ -68,13 +112,18 @@ public class Neuron {
         double max = 1.0;
 
         for (int x = 0; x < links; x++) {
-            this.WEIGHTS[x] = NeuronUtil.randomDoubleRange(min, max);
+            setWeight(x, NeuronUtil.randomDoubleRange(min, max));
         }
 
         /**
          * By default neurons are created as non-bias. 
          */
         this.isBias = false;
+
+        /**
+         * By default the Sigmoid is computed exactly.
+         */
+        this.kernel = ActivationKernel.EXACT;
     }
 
     /**
@@ -96,15 +145,44 @@ public class Neuron {
         return this.name;
     }
 
+    /**
+     * Returns the precision the inputs and weights of the neuron are held in.
+     *
+     * @return Precision of the neuron.
+     */
+    public Precision getPrecision() {
+        return (WEIGHTS == null) ? Precision.FLOAT : Precision.DOUBLE;
+    }
+
+    /**
+     * Returns the number of connections into the neuron from the layer above.
+     *
+     * @return Number of connections.
+     */
+    public int getLinks() {
+        return (WEIGHTS == null) ? WEIGHT_FLOATS.length : WEIGHTS.length;
+    }
+
     /**
      * This returns a list of inputs per layer above. Note these inputs have not
      * passed through the activation function, nor have the weight values been
-     * applied. Hence raw values from the layer above.
+     * applied. Hence raw values from the layer above. A neuron held in float
+     * returns a copy, see getInput(int).
      *
      * @return Returns the input values of the neuron.
      */
     public double[] getInput() {
-        return INPUTS;
+        return (INPUTS == null) ? widen(INPUT_FLOATS) : INPUTS;
+    }
+
+    /**
+     * Returns the input value of one connection from the layer above.
+     *
+     * @param number The connection link on neuron.
+     * @return The input value.
+     */
+    public double getInput(int number) {
+        return (INPUTS == null) ? INPUT_FLOATS[number] : INPUTS[number];
     }
 
     /**
@@ -114,50 +192,101 @@ public class Neuron {
      * @param input The input value.
      */
     public void setInput(int number, double input) {
-        this.INPUTS[number] = input;
+
+        if (INPUTS == null) {
+            this.INPUT_FLOATS[number] = (float) input;
+        } else {
+            this.INPUTS[number] = input;
+        }
     }
 
     /**
      * Returns the Net Input of the Neuron. This returns the net input value per
      * connection from the layer above. Note that these values have passed
-     * through the activation function.
+     * through the activation function. A neuron held in float returns a copy.
      *
      * @return Returns net input per connection
      */
     public double[] getNetInput() {
 
-        return this.NETINPUT;
+        return (NETINPUT == null) ? widen(NETINPUT_FLOATS) : this.NETINPUT;
 
     }
 
     /**
-     * This will return the net weights before back propagation was done.
+     * This will return the net weights before back propagation was done. A
+     * neuron held in float returns a copy, see getNetWeight(int).
      *
      * @return Returns the net weights.
      */
     public double[] getNetWeight() {
 
-        return this.NETWEIGHT;
+        return (NETWEIGHT == null) ? widen(NETWEIGHT_FLOATS) : this.NETWEIGHT;
+    }
+
+    /**
+     * This will return the net weight of one connection before back
+     * propagation was done.
+     *
+     * @param number The connection link on neuron.
+     * @return The net weight.
+     */
+    public double getNetWeight(int number) {
+        return (NETWEIGHT == null) ? NETWEIGHT_FLOATS[number] : NETWEIGHT[number];
     }
 
     /**
      * This will return the weight value per connection linked to each neuron in
-     * the layer above.
+     * the layer above. A neuron held in float returns a copy, changes are made
+     * with setWeight.
      *
      * @return Gets the weights of the neuron.
      */
     public double[] getWeight() {
-        return WEIGHTS;
+        return (WEIGHTS == null) ? widen(WEIGHT_FLOATS) : WEIGHTS;
+    }
+
+    /**
+     * Returns the weight value of one connection.
+     *
+     * @param number The connection link on neuron.
+     * @return The weight value.
+     */
+    public double getWeight(int number) {
+        return (WEIGHTS == null) ? WEIGHT_FLOATS[number] : WEIGHTS[number];
     }
 
     /**
-     * Sets weight value of neuron per connection.
+     * Sets weight value of neuron per connection, rounded to float for a
+     * neuron held in float.
      *
      * @param number The connection link on neuron.
      * @param weight The weight value.
      */
     public void setWeight(int number, double weight) {
-        this.WEIGHTS[number] = weight;
+
+        if (WEIGHTS == null) {
+            this.WEIGHT_FLOATS[number] = (float) weight;
+        } else {
+            this.WEIGHTS[number] = weight;
+        }
+    }
+
+    /**
+     * Copy float values into a new array of doubles.
+     *
+     * @param values Values held in float.
+     * @return Values as doubles.
+     */
+    private static double[] widen(float[] values) {
+
+        double[] copy = new double[values.length];
+
+        for (int x = 0; x < values.length; x++) {
+            copy[x] = values[x];
+        }
+
+        return copy;
     }
 
     /**
@@ -197,7 +326,7 @@ public class Neuron {
          *
          */
         if (isBias == true) {
-            for (int x = 0; x < INPUTS.length; x++) {
+            for (int x = 0; x < getLinks(); x++) {
                 if (x == 0) {
                     
                     this.setInput(x, bias_value);
@@ -226,6 +355,24 @@ public class Neuron {
         return this.isBias;
     }
 
+    /**
+     * This will set the way the activation function of the neuron is computed.
+     *
+     * @param kernel Activation kernel of the neuron.
+     */
+    public void setActivationKernel(ActivationKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    /**
+     * This returns the way the activation function of the neuron is computed.
+     *
+     * @return Activation kernel of the neuron.
+     */
+    public ActivationKernel getActivationKernel() {
+        return this.kernel;
+    }
+
     /**
      * Returns the output of the neuron after having run through an activation
      * function. Reference: Buntine, W. and Weigend, A. (1991). Bayesian
@@ -242,7 +389,7 @@ public class Neuron {
          */
         if (this.isBias) {
             
-            this.output = this.getInput()[0];
+            this.output = this.getInput(0);
             return this.output;
             
         } else {
@@ -287,6 +434,10 @@ public class Neuron {
 
         double sum = 0;
 
+        if (WEIGHTS == null) {
+            return getFloatInputFunction();
+        }
+
         for (int num_inputs = 0; num_inputs < getInput().length; num_inputs++) {
 
             /**
@@ -312,6 +463,34 @@ public class Neuron {
         return sum;
     }
 
+    /**
+     * The input function of a neuron held in float, see getInputFunction.
+     * Each input and weight is widened, so the sum is still accumulated in
+     * double.
+     *
+     * @return Value computed from Input Function.
+     */
+    private double getFloatInputFunction() {
+
+        double sum = 0;
+
+        for (int num_inputs = 0; num_inputs < WEIGHT_FLOATS.length; num_inputs++) {
+
+            sum += ((double) INPUT_FLOATS[num_inputs] * WEIGHT_FLOATS[num_inputs]);
+
+            this.NETWEIGHT_FLOATS[num_inputs] = this.WEIGHT_FLOATS[num_inputs];
+
+            /**
+             * Bias neurons only have one value to return.
+             */
+            if (this.isBias == true) {
+                break;
+            }
+        }
+
+        return sum;
+    }
+
     /**
      * Reference.
      *
@@ -330,7 +509,8 @@ public class Neuron {
      * [Accessed 22 Nov. 2015].
      *
      * This is the out function of the neuron. Currently a Sigmoid function but
-     * can be updated to include others tanh or log.
+     * can be updated to include others tanh or log. The Sigmoid is computed
+     * by the activation kernel set on the neuron.
      *
      * @return Value computed from Activate Function.
      */
@@ -339,7 +519,7 @@ public class Neuron {
         /**
          * We are using a Sigmoid Activation function for this neuron.
          */
-        return 1.0 / (1.0 + Math.pow(Math.E, -value));
+        return this.kernel.activate(value);
     }
 
     /**
@@ -0,0 +1,58 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.base.component;
+
+/**
+ *
+ * @author Quintin-John Smith
+ */
+/**
+ * Precision used to hold the weights and activations of the neurons of a
+ * network and of a compiled network. Sums, error signals and weight changes
+ * are always accumulated in double.
+ */
+public enum Precision {
+
+    /**
+     * Weights and activations held as doubles.
+     */
+    DOUBLE {
+        @Override
+        public double round(double value) {
+            return value;
+        }
+    },
+
+    /**
+     * Weights held as floats, half the memory and memory bandwidth of DOUBLE,
+     * and activations rounded to float. Outputs are within about 1.0e-6 of
+     * DOUBLE for a Sigmoid network.
+     */
+    FLOAT {
+        @Override
+        public double round(double value) {
+            return (float) value;
+        }
+    };
+
+    /**
+     * Rounds a value to the precision.
+     *
+     * @param value Value to be stored.
+     * @return Value as it is held at this precision.
+     */
+    public abstract double round(double value);
+}
@@ -16,6 +16,7 @@
 package prototype.framework.components;
 
 import prototype.framework.base.component.Neuron;
+import prototype.framework.base.component.Precision;
 import prototype.framework.util.NeuronUtil;
 
 /**
@@ -26,7 +27,7 @@ import prototype.framework.util.NeuronUtil;
  */
 public class HiddenNeuron extends Neuron {
 
-    private final double[] delta;
+    private double[] delta;
 
     /**
      * Each Hidden neuron can receive input from n-number of neurons in the
@@ -36,15 +37,30 @@ public class HiddenNeuron extends Neuron {
      */
     public HiddenNeuron(int links) {
         super(links);
-        delta = new double[links];
     }
 
     /**
-     * Return calculated errors for each input connection.
+     * Hidden neuron holding its inputs and weights at the precision given.
+     *
+     * @param links Number of connections into the Neuron.
+     * @param precision Precision the inputs and weights are held in.
+     */
+    public HiddenNeuron(int links, Precision precision) {
+        super(links, precision);
+    }
+
+    /**
+     * Return calculated errors for each input connection. The array is only
+     * created when first asked for.
      *
      * @return Returns Neuron Errors.
      */
     public double[] getErrors() {
+
+        if (delta == null) {
+            delta = new double[super.getLinks()];
+        }
+
         return delta;
     }
 
@@ -78,9 +94,6 @@ public class HiddenNeuron extends Neuron {
      */
     public double calculateError(double[] target, double[] weight, double[] output) {
 
-        double[] error = new double[target.length];
-        double[] derivative = new double[target.length];
-
         double delta = 0;
 
         for (int x = 0; x < target.length; x++) {
@@ -88,17 +101,18 @@ public class HiddenNeuron extends Neuron {
             /**
              * Calculate error change.
              */
-            error[x] = -(target[x] - output[x]);
+            double error = -(target[x] - output[x]);
 
             /**
              * Get the derivative of the output from the layer above.
              */
-            derivative[x] = output[x] * (1 - output[x]);
+            double derivative = output[x] * (1 - output[x]);
 
             /**
-             * Sum up total effect of neuron to neurons below the chain.
+             * Sum up total effect of neuron to neurons below the chain. Kept
+             * as scalars so no arrays are allocated per neuron per pattern.
              */
-            delta += ((error[x] * derivative[x]) * weight[x]);
+            delta += ((error * derivative) * weight[x]);
 
         }
 
@@ -136,14 +150,9 @@ public class HiddenNeuron extends Neuron {
     public void updateWeights(double gradient, double learningRate, double momentum) {
 
         /**
-         * Weight from output neuron in layer below to hidden n-neuron one
-         * weight per connection.
-         */
-        double[] input = super.getInput();
-        double[] weight = super.getWeight();
-
-        /**
-         * Output of the connecting n-neuron is input to this neuron.
+         * Output of the connecting n-neuron is input to this neuron. The
+         * weights and inputs are read one connection at a time, a neuron held
+         * in float has no arrays of doubles to hand out.
          */
         double output = super.getOutput();
 
@@ -151,11 +160,11 @@ public class HiddenNeuron extends Neuron {
          * Note that n-input below is the output from the neuron in the layer
          * above.
          */
-        for (int i = 0; i < weight.length; i++) {
+        for (int i = 0; i < super.getLinks(); i++) {
 
-            double delta = (gradient * (output * (1 - output)) * input[i]);
+            double delta = (gradient * (output * (1 - output)) * super.getInput(i));
 
-            super.setWeight(i, (weight[i] - (learningRate * momentum) * delta));
+            super.setWeight(i, (super.getWeight(i) - (learningRate * momentum) * delta));
         }
     }
 
@@ -174,7 +183,7 @@ public class HiddenNeuron extends Neuron {
             double min = -1.0;
             double max = 1.0;
 
-            for (int x = 0; x < this.getWeight().length; x++) {
+            for (int x = 0; x < this.getLinks(); x++) {
                 super.setWeight(x, NeuronUtil.randomDoubleRange(min, max));
             }
         }
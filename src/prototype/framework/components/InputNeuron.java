@@ -16,6 +16,7 @@
 package prototype.framework.components;
 
 import prototype.framework.base.component.Neuron;
+import prototype.framework.base.component.Precision;
 
 /**
  *
@@ -30,7 +31,16 @@ public class InputNeuron extends Neuron {
      * vector.
      */
     public InputNeuron() {
-        super(1);
+        this(Precision.DOUBLE);
+    }
+
+    /**
+     * Input neuron holding its input at the precision given.
+     *
+     * @param precision Precision the input and weight are held in.
+     */
+    public InputNeuron(Precision precision) {
+        super(1, precision);
         super.setWeight(0, 1.0);
     }
 
@@ -49,6 +59,6 @@ public class InputNeuron extends Neuron {
         /**
          * Only one input per Input Neuron.
          */
-        return super.getInput()[0];
+        return super.getInput(0);
     }
 }
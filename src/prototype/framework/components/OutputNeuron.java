@@ -16,6 +16,7 @@
 package prototype.framework.components;
 
 import prototype.framework.base.component.Neuron;
+import prototype.framework.base.component.Precision;
 
 /**
  * @author Quintin-John Smith
@@ -34,6 +35,16 @@ public class OutputNeuron extends Neuron {
         super(links);
     }
 
+    /**
+     * Output neuron holding its inputs and weights at the precision given.
+     *
+     * @param links Number of connections from layer above.
+     * @param precision Precision the inputs and weights are held in.
+     */
+    public OutputNeuron(int links, Precision precision) {
+        super(links, precision);
+    }
+
     /**
      * This returns the Bias value of the neuron. Output neurons can never be
      * bias.
@@ -74,21 +85,16 @@ public class OutputNeuron extends Neuron {
     public void updateWeights(double target, double learningRate, double momentum) {
 
         /**
-         * Weight from output neuron to hidden n-neuron one weight per
-         * connection.
-         */
-        double[] weight = super.getWeight();
-
-        /**
-         * Output of the connecting n-neuron is input to this neuron.
+         * Output of the connecting n-neuron is input to this neuron. The
+         * weights and inputs are read one connection at a time, a neuron held
+         * in float has no arrays of doubles to hand out.
          */
-        double[] input = super.getInput();
         double output = super.getOutput();
 
         /**
          * Update weight per n-connection. 
          */
-        for (int i = 0; i < weight.length; i++) {
+        for (int i = 0; i < super.getLinks(); i++) {
 
             /**
              * Note that n-input below is the output from the neuron in the
@@ -98,13 +104,13 @@ public class OutputNeuron extends Neuron {
              * output-connection
              *
              */
-            double delta = -(target - output) * (output * (1 - output) * input[i]);
+            double delta = -(target - output) * (output * (1 - output) * super.getInput(i));
 
             /**
              * To decrease the error we subtract the delta from the current
              * weight (optionally - multiplied by a learning rate.)
              */
-            super.setWeight(i, (weight[i] - (learningRate * (momentum * delta))));
+            super.setWeight(i, (super.getWeight(i) - (learningRate * (momentum * delta))));
         }
     }
 }
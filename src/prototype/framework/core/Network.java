@@ -16,24 +16,32 @@ package prototype.framework.core;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.Collections;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.stream.DoubleStream;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.swing.event.EventListenerList;
 
-import org.w3c.dom.DOMException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
+import prototype.framework.base.component.ActivationKernel;
+import prototype.framework.base.component.Precision;
+import prototype.framework.data.DataRow;
+import prototype.framework.data.IDataset;
+import prototype.framework.data.IRowSource;
+import prototype.framework.data.MapDataset;
+import prototype.framework.data.MappedDataset;
+import prototype.framework.data.ShuffledRowSource;
+import prototype.framework.data.SparseDataset;
+import prototype.framework.data.SparseVector;
 import prototype.framework.util.FileFunctions;
+import prototype.framework.util.NetworkFile;
 import prototype.framework.util.NetworkUtil;
+import prototype.framework.util.NeuronUtil;
 
 import prototype.framework.processing.FeedForward;
 import prototype.framework.processing.BackPropagation;
+import prototype.framework.processing.CompiledNetwork;
 import prototype.framework.util.CommonFunctions;
 import prototype.framework.util.DataFunctions;
 
@@ -46,6 +54,10 @@ import prototype.framework.util.DataFunctions;
  * as defined by the user. This class will reference the rest of the classes in
  * this application and will act as an interface to functions and methods
  * provided within the Neural Network Framework.
+ *
+ * Debug messages from the feed forward and back propagation are broadcast
+ * through networkDebug while a listener is registered, unless setDebug has
+ * been called, see setDebug.
  */
 public class Network implements INetworkEvent {
 
@@ -58,10 +70,44 @@ public class Network implements INetworkEvent {
 
     /* local variables data types */
     private Map<String, Object> network_map;
+    private CompiledNetwork compiled_network;
     private int matrix[];
 
+    /**
+     * Network held in weight buffers rather than neurons, either read only
+     * from a memory mapped binary file or off heap, and the map that
+     * identifies it.
+     */
+    private CompiledNetwork buffer_network;
+    private Map<String, Object> buffer_map;
+
+    /**
+     * Neurons of the network indexed by layer and position, held next to the
+     * map so the processing classes do not look neurons up by name.
+     */
+    private Object[][] neuron_table;
+    private Map<String, Object> table_network;
+    private int table_matrix[];
+
+    /**
+     * Network map that has been pruned and which of its layers are. The
+     * weights dropped are zero in the neurons, and are dropped again each
+     * time the network is compiled.
+     */
+    private Map<String, Object> pruned_map;
+    private boolean pruned_layers[];
+
     private boolean cancel;
     private boolean shuffleData;
+    private boolean cacheData;
+    private boolean freezePruning;
+    private boolean debug;
+    private boolean debugSet;
+
+    private ActivationKernel activation_kernel = ActivationKernel.EXACT;
+    private Precision precision = Precision.DOUBLE;
+
+    private ForkJoinPool training_pool;
 
     /* Constructor */
     @SuppressWarnings("unchecked")
@@ -108,6 +154,7 @@ public class Network implements INetworkEvent {
      */
     public void addNetworkListener(INetworkEvent listener) {
         LISTENER_LIST.add(INetworkEvent.class, listener);
+        updateDebug();
     }
 
     /**
@@ -117,6 +164,7 @@ public class Network implements INetworkEvent {
      */
     public void removeNetworkListener(INetworkEvent listener) {
         LISTENER_LIST.remove(INetworkEvent.class, listener);
+        updateDebug();
     }
 
     /**
@@ -229,7 +277,8 @@ public class Network implements INetworkEvent {
 
     /**
      * This function will create a neural network based on the matrix parameters
-     * passed.
+     * passed. The neurons hold their weights at the precision set, see
+     * setPrecision.
      *
      * @param matrix Provide a matrix of the network as an array
      * @return System will return a Map containing network components.
@@ -247,7 +296,39 @@ public class Network implements INetworkEvent {
          */
         this.cancel = false;
 
-        return NetworkUtil.buildNetwork(matrix, network_map);
+        /**
+         * Neurons are about to be replaced, drop the compiled snapshot.
+         */
+        this.compiled_network = null;
+        this.neuron_table = null;
+        this.pruned_map = null;
+
+        closeNetwork();
+
+        NetworkUtil.buildNetwork(matrix, network_map, precision);
+
+        /**
+         * New neurons use the activation kernel of the network.
+         */
+        setActivationKernel(activation_kernel);
+
+        return network_map;
+
+    }
+
+    /**
+     * This function will create a neural network based on the matrix parameters
+     * passed, computed at the precision given, see setPrecision.
+     *
+     * @param matrix Provide a matrix of the network as an array
+     * @param precision Precision of the weights and activations.
+     * @return System will return a Map containing network components.
+     */
+    public Map<String, Object> buildNetwork(int matrix[], Precision precision) {
+
+        setPrecision(precision);
+
+        return buildNetwork(matrix);
 
     }
 
@@ -263,6 +344,11 @@ public class Network implements INetworkEvent {
     public boolean setNeuron(Map<String, Object> network, String name,
             double[] values, boolean bias) {
 
+        /**
+         * Weights are changing, drop the compiled snapshot.
+         */
+        this.compiled_network = null;
+
         return NetworkUtil.setNeuron(network, name, values, bias);
 
     }
@@ -271,19 +357,319 @@ public class Network implements INetworkEvent {
      * This is used to initiate the forward feed function of the neural network
      * and will return a result based on vectors passed.
      *
+     * The network map is compiled into contiguous weight arrays on first use
+     * and the compiled snapshot is reused until the network is rebuilt,
+     * loaded, trained or updated through setNeuron. Changes made directly to
+     * the neuron objects in the map are not seen by the snapshot.
+     *
      * @param matrix Matrix of network to be created, passed as an array.
      * @param vectors An array of input vectors.
      * @param network Map of current network configuration.
-     * @return double[] Returns result computed based on given input.
+     * @return double[] Returns result computed based on given input, null if
+     * the network has been closed.
      */
     public double[] startFeedForward(int matrix[], double[] vectors,
             Map<String, Object> network) {
 
+        if (isClosed(network)) {
+            return null;
+        }
+
+        CompiledNetwork compiled = getCompiledNetwork(matrix, network);
+
+        if (compiled != null) {
+
+            /**
+             * Fast path - evaluate the compiled snapshot of the network.
+             */
+            return compiled.start(vectors);
+        }
+
         /**
          * Pass to core forward feed function and return results
          */
-        return FEED_FORWARD.start(matrix, vectors, network);
+        return FEED_FORWARD.start(matrix, vectors, getNeuronTable(matrix, network));
+
+    }
+
+    /**
+     * This is used to run the forward feed function of the neural network for
+     * a block of patterns at once, and will return one result per pattern.
+     * Each layer is computed for many patterns together on the compiled
+     * network, see startFeedForward.
+     *
+     * @param matrix Matrix of network to be created, passed as an array.
+     * @param vectors An array of input vectors per pattern.
+     * @param network Map of current network configuration.
+     * @return double[][] Returns result computed for each pattern, null if
+     * the network has been closed.
+     */
+    public double[][] startFeedForward(int matrix[], double[][] vectors,
+            Map<String, Object> network) {
+
+        if (isClosed(network)) {
+            return null;
+        }
+
+        CompiledNetwork compiled = getCompiledNetwork(matrix, network);
+
+        if (compiled != null) {
+            return compiled.start(vectors);
+        }
+
+        /**
+         * Pass each pattern to core forward feed function.
+         */
+        double[][] results = new double[vectors.length][];
+
+        for (int pattern = 0; pattern < vectors.length; pattern++) {
+            results[pattern] = FEED_FORWARD.start(matrix,
+                    Arrays.copyOf(vectors[pattern], vectors[pattern].length),
+                    getNeuronTable(matrix, network));
+        }
+
+        return results;
+    }
+
+    /**
+     * This is used to run the forward feed function of the neural network for
+     * a block of patterns stored row by row in a single array. The results are
+     * returned row by row in a single array as well, one value per output
+     * neuron for each pattern.
+     *
+     * Every pattern takes the same number of vectors, so the length of the
+     * array must be a multiple of the number of patterns.
+     *
+     * @param matrix Matrix of network to be created, passed as an array.
+     * @param vectors Input vectors of all patterns, row by row.
+     * @param rows Number of patterns in the array.
+     * @param network Map of current network configuration.
+     * @return double[] Returns results computed for all patterns, row by row,
+     * null if the network has been closed.
+     * @throws IllegalArgumentException If the array does not split into rows
+     * of equal width, or a row holds fewer vectors than the input layer takes.
+     */
+    public double[] startFeedForward(int matrix[], double[] vectors, int rows,
+            Map<String, Object> network) {
+
+        int width = CompiledNetwork.getWidth(vectors, rows);
+
+        if (isClosed(network)) {
+            return null;
+        }
+
+        CompiledNetwork compiled = getCompiledNetwork(matrix, network);
+
+        if (compiled != null) {
+            return compiled.start(vectors, rows);
+        }
+
+        int inputs = NetworkUtil.getNumInuputNeurons(matrix, network);
+
+        if (rows > 0 && width < inputs) {
+            throw new IllegalArgumentException("Each pattern needs at least "
+                    + inputs + " vectors, found " + width);
+        }
+
+        /**
+         * Pass each pattern to core forward feed function.
+         */
+        int outputs = matrix[matrix.length - 1];
+
+        double[] results = new double[rows * outputs];
+
+        for (int pattern = 0; pattern < rows; pattern++) {
+
+            double[] result = FEED_FORWARD.propagate(matrix, Arrays.copyOfRange(
+                    vectors, pattern * width, (pattern + 1) * width),
+                    getNeuronTable(matrix, network));
+
+            System.arraycopy(result, 0, results, pattern * outputs, outputs);
+        }
+
+        return results;
+    }
+
+    /**
+     * This is used to run the forward feed function of the neural network for
+     * a sparse pattern, where most input vectors are zero. On the compiled
+     * network only the input vectors that are not zero are multiplied into
+     * the first hidden layer, giving the same result as the dense pattern.
+     *
+     * @param matrix Matrix of network to be created, passed as an array.
+     * @param vector Input vectors that are not zero.
+     * @param network Map of current network configuration.
+     * @return double[] Returns result computed based on given input, null if
+     * the vector does not fit the input layer or the network has been closed.
+     */
+    public double[] startFeedForward(int matrix[], SparseVector vector,
+            Map<String, Object> network) {
+
+        if (isClosed(network)) {
+            return null;
+        }
+
+        CompiledNetwork compiled = getCompiledNetwork(matrix, network);
+
+        if (compiled != null) {
+            return compiled.start(vector);
+        }
+
+        /**
+         * Pass the dense pattern to core forward feed function.
+         */
+        return FEED_FORWARD.start(matrix, vector.toArray(null),
+                getNeuronTable(matrix, network));
+    }
+
+    /**
+     * This will return the compiled snapshot of the network, compiling it if
+     * the current one does not belong to the network passed.
+     *
+     * @param matrix Matrix of network to be created, passed as an array.
+     * @param network Map of current network configuration.
+     * @return Compiled network or null if the network can not be compiled,
+     * or debug is on.
+     */
+    private CompiledNetwork getCompiledNetwork(int matrix[],
+            Map<String, Object> network) {
+
+        /**
+         * A network held in buffers is never dropped, it has no neurons to be
+         * compiled from again.
+         */
+        if (buffer_network != null && buffer_network.isCompiledFrom(matrix, network)) {
+            return buffer_network;
+        }
+
+        /**
+         * The compiled network does not trace, see setDebug.
+         */
+        if (debug) {
+            return null;
+        }
 
+        if (compiled_network == null
+                || !compiled_network.isCompiledFrom(matrix, network)) {
+
+            compiled_network = compileNetwork(matrix, network, precision);
+        }
+
+        return compiled_network;
+    }
+
+    /**
+     * This will compile the network map, pruning the layers of a pruned
+     * network again so the weights dropped stay dropped.
+     *
+     * @param matrix Matrix of network to be created, passed as an array.
+     * @param network Map of current network configuration.
+     * @param precision Precision the weights are held in.
+     * @return Compiled network or null if the network can not be compiled.
+     */
+    private CompiledNetwork compileNetwork(int matrix[],
+            Map<String, Object> network, Precision precision) {
+
+        CompiledNetwork compiled = CompiledNetwork.compile(matrix, network, precision);
+
+        if (compiled != null && network != null && network == pruned_map) {
+
+            for (int layers = 1; layers < pruned_layers.length; layers++) {
+
+                /**
+                 * Only the weights that are zero are dropped.
+                 */
+                if (pruned_layers[layers]) {
+                    compiled.prune(layers, 0);
+                }
+            }
+        }
+
+        return compiled;
+    }
+
+    /**
+     * Called as training starts, returns true if the map stands for a pruned
+     * network whose pruned weights are to stay dropped, see setFreezePruning.
+     * Otherwise training is free to bring the pruned weights back, so the
+     * network is no longer taken as pruned.
+     *
+     * @param network Map of current network configuration.
+     * @return True if the network is trained with its pruned layers.
+     */
+    private boolean keepPruned(Map<String, Object> network) {
+
+        if (network == null || network != pruned_map) {
+            return false;
+        }
+
+        if (!freezePruning) {
+            pruned_map = null;
+        }
+
+        return freezePruning;
+    }
+
+    /**
+     * Returns true if the map stands for a network mapped read only from a
+     * binary file.
+     *
+     * @param network Map of current network configuration.
+     * @return True if the network can not be trained.
+     */
+    private boolean isReadOnly(Map<String, Object> network) {
+
+        return network != null && network == buffer_map
+                && buffer_network.isReadOnly();
+    }
+
+    /**
+     * Returns true if the map stands for a network held off heap.
+     *
+     * @param network Map of current network configuration.
+     * @return True if the network is held off heap.
+     */
+    private boolean isOffHeap(Map<String, Object> network) {
+
+        return network != null && network == buffer_map
+                && buffer_network.isOffHeap();
+    }
+
+    /**
+     * Returns true if the map stood for a network that has been released by
+     * closeNetwork, or held the neurons of a network moved off heap. Such a
+     * map holds no neurons, and would otherwise be fed forward as a network
+     * whose weights are all zero.
+     *
+     * @param network Map of current network configuration.
+     * @return True if the network no longer exists.
+     */
+    private boolean isClosed(Map<String, Object> network) {
+
+        return network != null && network != buffer_map && network.isEmpty();
+    }
+
+    /**
+     * This will return the neurons of the network indexed by layer and
+     * position, building the table again if the current one does not belong
+     * to the network passed. Neurons replaced in the map directly are not
+     * seen until the network is rebuilt or loaded.
+     *
+     * @param matrix Matrix of network to be created, passed as an array.
+     * @param network Map of current network configuration.
+     * @return Neurons of each layer.
+     */
+    private Object[][] getNeuronTable(int matrix[], Map<String, Object> network) {
+
+        if (neuron_table == null || table_network != network
+                || !Arrays.equals(table_matrix, matrix)) {
+
+            neuron_table = NetworkUtil.getNeuronTable(matrix, network);
+            table_network = network;
+            table_matrix = matrix.clone();
+        }
+
+        return neuron_table;
     }
 
     /**
@@ -313,6 +699,51 @@ public class Network implements INetworkEvent {
             int epochs, double mse, double learningRate, double momentum,
             double weight_decay) {
 
+        return startTraining(matrix, network, new MapDataset(dataSet),
+                new MapDataset(dataTarget), epochs, mse, learningRate, momentum,
+                weight_decay);
+    }
+
+    /**
+     * This function is used for on-line training of the neural network from
+     * a dataset, such as a MappedDataset larger than memory. Rows are read
+     * from the dataset one pattern at a time, empty rows are ignored.
+     *
+     * @param matrix Matrix of network to be created, passed as an array.
+     * @param network Map of current network configuration.
+     * @param dataSet Dataset of input vectors used for training.
+     * @param dataTarget Dataset of input vectors targets used for training.
+     * @param epochs Number of evolutions for the network.
+     * @param mse Total Network Error
+     * @param learningRate Learning Rate of Network.
+     * @param momentum Momentum rate of Network.
+     * @param weight_decay The weight decay rate.
+     *
+     * @return True if trained, False if not trained.
+     */
+    public boolean startTraining(int[] matrix, Map<String, Object> network,
+            IDataset dataSet, IDataset dataTarget, int epochs, double mse,
+            double learningRate, double momentum, double weight_decay) {
+
+        /**
+         * A memory mapped network is read only and can not be trained, a
+         * closed network no longer exists.
+         */
+        if (isReadOnly(network) || isClosed(network)) {
+            trainingComplete(false, false);
+            return false;
+        }
+
+        /**
+         * A network held off heap has no neurons, and a pruned network keeps
+         * its pruned weights dropped, both are trained compiled one pattern
+         * at a time.
+         */
+        if (isOffHeap(network) || keepPruned(network)) {
+            return startTraining(matrix, network, dataSet, dataTarget, epochs,
+                    mse, learningRate, momentum, weight_decay, 1);
+        }
+
         /**
          * Clear out the cancel boolean if it was set in a previous session.
          */
@@ -328,7 +759,25 @@ public class Network implements INetworkEvent {
          */
         network_map = network;
 
-        int rnd[] = CommonFunctions.createSequence(dataSet.size());
+        /**
+         * Weights are about to change, drop the compiled snapshot.
+         */
+        compiled_network = null;
+
+        int patterns = Math.min(dataSet.getRows(), dataTarget.getRows());
+        int rnd[] = CommonFunctions.createSequence(patterns);
+
+        /**
+         * Scratch buffers for the input vectors and targets, reused for each
+         * pattern.
+         */
+        double[] values = null;
+        double[] targets = null;
+
+        /**
+         * Walk the neurons by layer and position rather than by name.
+         */
+        Object[][] layers = getNeuronTable(matrix, network_map);
 
         /**
          * loop until max epoch has been reached or the MSE target value has
@@ -336,9 +785,6 @@ public class Network implements INetworkEvent {
          */
         while (true) {
 
-            double[] values = null;
-            double[] targets = null;
-
             double sumSquaredError = 0.0;
 
             /**
@@ -351,36 +797,30 @@ public class Network implements INetworkEvent {
             /**
              * Cycle through each input pattern.
              */
-            for (int pattern = 0; pattern < dataSet.size(); pattern++) {
+            for (int pattern = 0; pattern < patterns; pattern++) {
+
+                int row = rnd[pattern];
 
                 /**
                  * Ignore null values in data sets received.
                  */
-                if ((dataSet.get(rnd[pattern]) != null) && (dataTarget.get(rnd[pattern]) != null)) {
-
-                    values = new double[dataSet.get(rnd[pattern]).length];
-                    targets = new double[dataTarget.get(rnd[pattern]).length];
-
-                    /**
-                     * Copy data to new arrays, so we don't change original data
-                     * settings.
-                     */
-                    values = Arrays.copyOf(
-                            dataSet.get(rnd[pattern]), dataSet.get(rnd[pattern]).length);
-
-                    targets = Arrays.copyOf(
-                            dataTarget.get(rnd[pattern]), dataTarget.get(rnd[pattern]).length);
-
-                } else {
-
+                if (dataSet.getColumns(row) == 0 || dataTarget.getColumns(row) == 0) {
                     continue;
-
                 }
 
+                /**
+                 * Copy the row to the scratch buffers, so we don't change
+                 * original data settings.
+                 */
+                values = dataSet.getRow(row, values);
+                targets = dataTarget.getRow(row, targets);
+
                 /**
                  * perform a standard feed forward and return computed value.
+                 * Back propagation reads the state left in each neuron, so
+                 * the compiled snapshot can not be used here.
                  */
-                startFeedForward(matrix, values, network_map);
+                FEED_FORWARD.propagate(matrix, values, layers);
 
                 /**
                  * Perform a back propagation and adjust weights per neuron.
@@ -393,11 +833,11 @@ public class Network implements INetworkEvent {
                  * Output errors are received per neuron in the output layer.
                  * Add them together to give a total MSE for the network.
                  */
-                //for (int err = 0; err < outputErrors.length; err++) {
-                sumSquaredError += Math.pow(DoubleStream.of(outputErrors).sum(), 2);
-                //sumSquaredError += Math.pow(outputErrors[err], 2);
-
-                //}
+                double sum = 0;
+                for (int err = 0; err < outputErrors.length; err++) {
+                    sum += outputErrors[err];
+                }
+                sumSquaredError += sum * sum;
             }
 
             /**
@@ -450,49 +890,712 @@ public class Network implements INetworkEvent {
     }
 
     /**
-     * This function is used to perform a validation on the network using unseen
-     * data not used in training. The objective is to establish how well the
-     * network has generalized information based on training datasets given.
+     * This function is used for mini-batch training of the neural network. The
+     * weight changes of batchSize patterns are computed together on a compiled
+     * copy of the network and their average is applied once per batch, instead
+     * of after every pattern. The trained weights are copied back into the
+     * network map when training stops.
+     *
+     * A batch size of one, or a network that can not be compiled, uses the
+     * on-line training. When training threads have been set each batch is
+     * split across them, see setTrainingThreads.
      *
      * @param matrix Matrix of network to be created, passed as an array.
      * @param network Map of current network configuration.
      * @param dataSet An array of input vectors used for training.
      * @param dataTarget An array of input vectors targets used for training.
-     * @return Returns true once completed.
+     * @param epochs Number of evolutions for the network.
+     * @param mse Total Network Error
+     * @param learningRate Learning Rate of Network.
+     * @param momentum Momentum rate of Network.
+     * @param weight_decay The weight decay rate.
+     * @param batchSize Number of patterns per weight update.
+     *
+     * @return True if trained, False if not trained.
      */
-    public boolean startValidation(int[] matrix, Map<String, Object> network,
-            Map<Integer, double[]> dataSet, Map<Integer, double[]> dataTarget) {
+    public boolean startTraining(int[] matrix, Map<String, Object> network,
+            Map<Integer, double[]> dataSet, Map<Integer, double[]> dataTarget,
+            int epochs, double mse, double learningRate, double momentum,
+            double weight_decay, int batchSize) {
 
-        int counter = 1;
+        return startTraining(matrix, network, new MapDataset(dataSet),
+                new MapDataset(dataTarget), epochs, mse, learningRate, momentum,
+                weight_decay, batchSize);
+    }
 
-        double[] values;
+    /**
+     * This function is used for mini-batch training of the neural network
+     * from a dataset, such as a MappedDataset larger than memory. Rows are
+     * read from the dataset one batch at a time, empty rows are ignored.
+     *
+     * @param matrix Matrix of network to be created, passed as an array.
+     * @param network Map of current network configuration.
+     * @param dataSet Dataset of input vectors used for training.
+     * @param dataTarget Dataset of input vectors targets used for training.
+     * @param epochs Number of evolutions for the network.
+     * @param mse Total Network Error
+     * @param learningRate Learning Rate of Network.
+     * @param momentum Momentum rate of Network.
+     * @param weight_decay The weight decay rate.
+     * @param batchSize Number of patterns per weight update.
+     *
+     * @return True if trained, False if not trained.
+     */
+    public boolean startTraining(int[] matrix, Map<String, Object> network,
+            IDataset dataSet, IDataset dataTarget, int epochs, double mse,
+            double learningRate, double momentum, double weight_decay,
+            int batchSize) {
+
+        /**
+         * A memory mapped network is read only and can not be trained, a
+         * closed network no longer exists.
+         */
+        if (isReadOnly(network) || isClosed(network)) {
+            trainingComplete(false, false);
+            return false;
+        }
+
+        CompiledNetwork compiled = null;
+
+        if (isOffHeap(network)) {
+
+            /**
+             * A network held off heap has no neurons, a batch size of one
+             * trains it on-line.
+             */
+            compiled = buffer_network;
+            batchSize = Math.max(1, batchSize);
+
+        } else if (keepPruned(network)) {
+
+            /**
+             * A pruned network is trained with its pruned layers, a batch
+             * size of one trains it on-line.
+             */
+            compiled = compileNetwork(matrix, network, precision);
+            batchSize = Math.max(1, batchSize);
+
+        } else if (batchSize > 1 && !debug) {
+            compiled = CompiledNetwork.compile(matrix, network, precision);
+        }
+
+        if (compiled == null) {
+
+            /**
+             * Fall back to on-line training.
+             */
+            return startTraining(matrix, network, dataSet, dataTarget, epochs,
+                    mse, learningRate, momentum, weight_decay);
+        }
+
+        /**
+         * Clear out the cancel boolean if it was set in a previous session.
+         */
+        this.cancel = false;
+
+        /**
+         * Initialize counter and batch.
+         */
+        int counter = 1;
+
+        double[][] values = new double[batchSize][];
+        double[][] targets = new double[batchSize][];
+
+        /**
+         * Create network map of components, a network held off heap has none.
+         */
+        if (!isOffHeap(network)) {
+            network_map = network;
+        }
+
+        compiled_network = null;
+
+        int patterns = Math.min(dataSet.getRows(), dataTarget.getRows());
+        int rnd[] = CommonFunctions.createSequence(patterns);
+
+        /**
+         * loop until max epoch has been reached or the MSE target value has
+         * been reached.
+         */
+        while (true) {
+
+            double sumSquaredError = 0.0;
+            int rows = 0;
+
+            /**
+             * Randomize order of training pattern after each iteration.
+             */
+            if (shuffleData) {
+                rnd = CommonFunctions.shuffleArray(rnd);
+            }
+
+            /**
+             * Cycle through each input pattern, collecting them into batches.
+             */
+            for (int pattern = 0; pattern < patterns; pattern++) {
+
+                int row = rnd[pattern];
+
+                /**
+                 * Ignore null values in data sets received.
+                 */
+                if (dataSet.getColumns(row) == 0 || dataTarget.getColumns(row) == 0) {
+                    continue;
+                }
+
+                /**
+                 * Each slot of the batch keeps its buffers between batches.
+                 */
+                values[rows] = dataSet.getRow(row, values[rows]);
+                targets[rows] = dataTarget.getRow(row, targets[rows]);
+                rows++;
+
+                if (rows == batchSize) {
+
+                    sumSquaredError += trainBatch(compiled, values, targets,
+                            rows, learningRate, momentum);
+                    rows = 0;
+                }
+            }
+
+            /**
+             * Train on the remainder of the epoch.
+             */
+            if (rows > 0) {
+                sumSquaredError += trainBatch(compiled, values, targets, rows,
+                        learningRate, momentum);
+            }
+
+            Boolean trained = endEpoch(compiled, network, false,
+                    sumSquaredError, mse, counter, epochs);
+
+            if (trained != null) {
+                return trained;
+            }
+
+            /* update number of epochs.*/
+            counter++;
+        }
+    }
+
+    /**
+     * This function is used for on-line training of the neural network from a
+     * sparse dataset, see startTraining with a batch size.
+     *
+     * @param matrix Matrix of network to be created, passed as an array.
+     * @param network Map of current network configuration.
+     * @param dataSet Sparse dataset of input vectors used for training.
+     * @param dataTarget Dataset of input vectors targets used for training.
+     * @param epochs Number of evolutions for the network.
+     * @param mse Total Network Error
+     * @param learningRate Learning Rate of Network.
+     * @param momentum Momentum rate of Network.
+     * @param weight_decay The weight decay rate.
+     *
+     * @return True if trained, False if not trained.
+     */
+    public boolean startTraining(int[] matrix, Map<String, Object> network,
+            SparseDataset dataSet, IDataset dataTarget, int epochs, double mse,
+            double learningRate, double momentum, double weight_decay) {
+
+        return startTraining(matrix, network, dataSet, dataTarget, epochs, mse,
+                learningRate, momentum, weight_decay, 1);
+    }
+
+    /**
+     * This function is used for mini-batch training of the neural network
+     * from a sparse dataset, where most input vectors are zero. The network
+     * is trained on a compiled copy, whatever the batch size, where the first
+     * hidden layer only reads and changes the weights of input vectors that
+     * are not zero. The weights change the same way as when training on the
+     * dense dataset. The batch is not split across the training threads.
+     *
+     * A network that can not be compiled is trained on the dense rows.
+     * Training returns false before the first epoch if a vector of the
+     * dataset does not fit the input layer, see SparseVector.fits.
+     *
+     * @param matrix Matrix of network to be created, passed as an array.
+     * @param network Map of current network configuration.
+     * @param dataSet Sparse dataset of input vectors used for training.
+     * @param dataTarget Dataset of input vectors targets used for training.
+     * @param epochs Number of evolutions for the network.
+     * @param mse Total Network Error
+     * @param learningRate Learning Rate of Network.
+     * @param momentum Momentum rate of Network.
+     * @param weight_decay The weight decay rate.
+     * @param batchSize Number of patterns per weight update.
+     *
+     * @return True if trained, False if not trained.
+     */
+    public boolean startTraining(int[] matrix, Map<String, Object> network,
+            SparseDataset dataSet, IDataset dataTarget, int epochs, double mse,
+            double learningRate, double momentum, double weight_decay,
+            int batchSize) {
+
+        /**
+         * A memory mapped network is read only and can not be trained, a
+         * closed network no longer exists.
+         */
+        if (isReadOnly(network) || isClosed(network)) {
+            trainingComplete(false, false);
+            return false;
+        }
+
+        CompiledNetwork compiled = isOffHeap(network) ? buffer_network
+                : keepPruned(network) ? compileNetwork(matrix, network, precision)
+                : debug ? null : CompiledNetwork.compile(matrix, network, precision);
+
+        int inputs = (compiled != null) ? compiled.getInputCount()
+                : NetworkUtil.getNumInuputNeurons(matrix, network);
+
+        int patterns = Math.min(dataSet.getRows(), dataTarget.getRows());
+
+        /**
+         * A vector that does not fit the input layer would fail its whole
+         * batch, every vector is checked before the first epoch.
+         */
+        for (int row = 0; row < patterns; row++) {
+
+            if (dataTarget.getColumns(row) != 0 && !dataSet.getVector(row).fits(inputs)) {
+                trainingComplete(false, false);
+                return false;
+            }
+        }
+
+        if (compiled == null) {
+
+            /**
+             * Fall back to training on the dense rows.
+             */
+            return startTraining(matrix, network, (IDataset) dataSet,
+                    dataTarget, epochs, mse, learningRate, momentum,
+                    weight_decay, batchSize);
+        }
+
+        /**
+         * Clear out the cancel boolean if it was set in a previous session.
+         */
+        this.cancel = false;
+
+        /**
+         * Initialize counter and batch.
+         */
+        int counter = 1;
+        batchSize = Math.max(1, batchSize);
+
+        SparseVector[] values = new SparseVector[batchSize];
+        double[][] targets = new double[batchSize][];
+
+        /**
+         * Create network map of components, a network held off heap has none.
+         */
+        if (!isOffHeap(network)) {
+            network_map = network;
+        }
+
+        compiled_network = null;
+
+        int rnd[] = CommonFunctions.createSequence(patterns);
+
+        /**
+         * loop until max epoch has been reached or the MSE target value has
+         * been reached.
+         */
+        while (true) {
+
+            double sumSquaredError = 0.0;
+            int rows = 0;
+
+            /**
+             * Randomize order of training pattern after each iteration.
+             */
+            if (shuffleData) {
+                rnd = CommonFunctions.shuffleArray(rnd);
+            }
+
+            /**
+             * Cycle through each input pattern, collecting them into batches.
+             */
+            for (int pattern = 0; pattern < patterns; pattern++) {
+
+                int row = rnd[pattern];
+
+                /**
+                 * Ignore null values in data sets received.
+                 */
+                if (dataTarget.getColumns(row) == 0) {
+                    continue;
+                }
+
+                values[rows] = dataSet.getVector(row);
+                targets[rows] = dataTarget.getRow(row, targets[rows]);
+                rows++;
+
+                if (rows == batchSize) {
+
+                    sumSquaredError += compiled.train(values, targets, rows,
+                            learningRate, momentum);
+                    rows = 0;
+                }
+            }
+
+            /**
+             * Train on the remainder of the epoch.
+             */
+            if (rows > 0) {
+                sumSquaredError += compiled.train(values, targets, rows,
+                        learningRate, momentum);
+            }
+
+            Boolean trained = endEpoch(compiled, network, false,
+                    sumSquaredError, mse, counter, epochs);
+
+            if (trained != null) {
+                return trained;
+            }
+
+            /* update number of epochs.*/
+            counter++;
+        }
+    }
+
+    /**
+     * This function is used to train the neural network from a row source,
+     * such as rows streamed from a file too large to be indexed. Each epoch
+     * is one pass over the source, so memory use does not grow with the
+     * number of rows. When shuffle data is set the rows of each pass are
+     * shuffled within a window of the given number of rows, see
+     * ShuffledRowSource, rather than across the whole source.
+     *
+     * A batch size above one trains on a compiled copy of the network as
+     * for mini-batch training, otherwise the network is trained on-line.
+     *
+     * Training stops and returns false as soon as a pass can not read every
+     * row of the source, see IRowSource.hasFailed. The weights trained up to
+     * then are kept.
+     *
+     * @param matrix Matrix of network to be created, passed as an array.
+     * @param network Map of current network configuration.
+     * @param rows Source of input vectors and targets used for training.
+     * @param window Number of rows held to shuffle from.
+     * @param epochs Number of evolutions for the network.
+     * @param mse Total Network Error
+     * @param learningRate Learning Rate of Network.
+     * @param momentum Momentum rate of Network.
+     * @param weight_decay The weight decay rate.
+     * @param batchSize Number of patterns per weight update.
+     *
+     * @return True if trained, False if not trained.
+     */
+    public boolean startTraining(int[] matrix, Map<String, Object> network,
+            IRowSource rows, int window, int epochs, double mse,
+            double learningRate, double momentum, double weight_decay,
+            int batchSize) {
+
+        /**
+         * A memory mapped network is read only and can not be trained, a
+         * closed network no longer exists.
+         */
+        if (isReadOnly(network) || isClosed(network)) {
+            trainingComplete(false, false);
+            return false;
+        }
+
+        CompiledNetwork compiled = null;
+
+        if (isOffHeap(network)) {
+
+            /**
+             * A network held off heap has no neurons, a batch size of one
+             * trains it on-line.
+             */
+            compiled = buffer_network;
+            batchSize = Math.max(1, batchSize);
+
+        } else if (keepPruned(network)) {
+
+            /**
+             * A pruned network is trained with its pruned layers, a batch
+             * size of one trains it on-line.
+             */
+            compiled = compileNetwork(matrix, network, precision);
+            batchSize = Math.max(1, batchSize);
+
+        } else if (batchSize > 1 && !debug) {
+            compiled = CompiledNetwork.compile(matrix, network, precision);
+        }
+
+        /**
+         * Clear out the cancel boolean if it was set in a previous session.
+         */
+        this.cancel = false;
+
+        /**
+         * Initialize counter and vectors.
+         */
+        int counter = 1;
+
+        if (!isOffHeap(network)) {
+            network_map = network;
+        }
+
+        compiled_network = null;
+
+        IRowSource source = (shuffleData && window > 1)
+                ? new ShuffledRowSource(rows, window) : rows;
+
+        /**
+         * Scratch buffer for the input vectors of on-line training, and the
+         * patterns of each batch.
+         */
+        double[] values = null;
+        double[][] batch = null;
+        double[][] targets = null;
+
+        Object[][] layers = null;
+
+        if (compiled == null) {
+            layers = getNeuronTable(matrix, network_map);
+        } else {
+            batch = new double[batchSize][];
+            targets = new double[batchSize][];
+        }
+
+        /**
+         * loop until max epoch has been reached or the MSE target value has
+         * been reached.
+         */
+        while (true) {
+
+            double sumSquaredError = 0.0;
+            int size = 0;
+
+            /**
+             * Stream through each input pattern of the source.
+             */
+            for (DataRow row : source) {
+
+                double[] value = row.getValues();
+                double[] target = row.getTargets();
+
+                /**
+                 * Ignore null values in data sets received.
+                 */
+                if (value == null || target == null) {
+                    continue;
+                }
+
+                if (compiled != null) {
+
+                    batch[size] = value;
+                    targets[size] = target;
+                    size++;
+
+                    if (size == batchSize) {
+
+                        sumSquaredError += trainBatch(compiled, batch, targets,
+                                size, learningRate, momentum);
+                        size = 0;
+                    }
+
+                    continue;
+                }
+
+                /**
+                 * Copy the inputs to the scratch buffer, so we don't change
+                 * original data settings.
+                 */
+                if (values == null || values.length != value.length) {
+                    values = new double[value.length];
+                }
+                System.arraycopy(value, 0, values, 0, value.length);
+
+                FEED_FORWARD.propagate(matrix, values, layers);
+
+                double[] outputErrors = startBackPropagation(matrix, target, network_map,
+                        learningRate, momentum, weight_decay);
+
+                double sum = 0;
+                for (int err = 0; err < outputErrors.length; err++) {
+                    sum += outputErrors[err];
+                }
+                sumSquaredError += sum * sum;
+            }
+
+            /**
+             * Train on the remainder of the epoch.
+             */
+            if (size > 0) {
+                sumSquaredError += trainBatch(compiled, batch, targets, size,
+                        learningRate, momentum);
+            }
+
+            /**
+             * A pass that could not read every row is not a finished epoch.
+             */
+            Boolean trained = endEpoch(compiled, network, source.hasFailed(),
+                    sumSquaredError, mse, counter, epochs);
+
+            if (trained != null) {
+                return trained;
+            }
+
+            /* update number of epochs.*/
+            counter++;
+        }
+    }
+
+    /**
+     * This ends an epoch of training. Training stops once it has been
+     * canceled, a pass has failed, the MSE target has been reached or the
+     * last epoch has been trained: the weights trained on a compiled network
+     * are copied back into the network and the outcome is broadcast.
+     * Otherwise the MSE of the epoch is broadcast.
+     *
+     * @param compiled Compiled network being trained, null if the neurons are
+     * trained on-line.
+     * @param network Map of current network configuration.
+     * @param failed True if the epoch could not read every pattern.
+     * @param sumSquaredError Total error of the epoch.
+     * @param mse Total Network Error
+     * @param counter Number of the epoch, from 1.
+     * @param epochs Number of evolutions for the network.
+     * @return True if trained, False if not trained, null to train another
+     * epoch.
+     */
+    private Boolean endEpoch(CompiledNetwork compiled, Map<String, Object> network,
+            boolean failed, double sumSquaredError, double mse, int counter,
+            int epochs) {
+
+        if (failed || cancel || sumSquaredError < mse || counter > epochs) {
+
+            /**
+             * Copy trained weights back into the network, the compiled
+             * network stays in step with it for the feed forward.
+             */
+            if (compiled != null && !isOffHeap(network)) {
+                compiled.writeBack(network);
+                compiled_network = compiled;
+            }
+
+            /**
+             * Fire event.
+             */
+            if (cancel) {
+
+                trainingComplete(false, true);
+                return false;
+
+            } else if (!failed && sumSquaredError < mse) {
+
+                trainingComplete(true, false);
+                return true;
+
+            } else {
+
+                trainingComplete(false, false);
+                return false;
+            }
+        }
+
+        /**
+         * Broadcast MSE to subscribers.
+         */
+        this.networkMSE(counter, sumSquaredError, mse);
+
+        return null;
+    }
+
+    /**
+     * Train a single batch on the compiled network, on the training threads if
+     * they have been set.
+     *
+     * @param compiled Compiled network being trained.
+     * @param values Input vectors, one array per pattern.
+     * @param targets Expected target values, one array per pattern.
+     * @param rows Number of patterns in the batch.
+     * @param learningRate Learning Rate of Network.
+     * @param momentum Momentum rate of Network.
+     * @return Sum of the squared network error of each pattern.
+     */
+    private double trainBatch(CompiledNetwork compiled, double[][] values,
+            double[][] targets, int rows, double learningRate, double momentum) {
+
+        if (training_pool != null) {
+            return compiled.train(values, targets, rows, learningRate, momentum,
+                    training_pool);
+        }
+
+        return compiled.train(values, targets, rows, learningRate, momentum);
+    }
+
+    /**
+     * This function is used to perform a validation on the network using unseen
+     * data not used in training. The objective is to establish how well the
+     * network has generalized information based on training datasets given.
+     *
+     * @param matrix Matrix of network to be created, passed as an array.
+     * @param network Map of current network configuration.
+     * @param dataSet An array of input vectors used for training.
+     * @param dataTarget An array of input vectors targets used for training.
+     * @return Returns true once completed.
+     */
+    public boolean startValidation(int[] matrix, Map<String, Object> network,
+            Map<Integer, double[]> dataSet, Map<Integer, double[]> dataTarget) {
+
+        return startValidation(matrix, network, new MapDataset(dataSet),
+                new MapDataset(dataTarget));
+    }
+
+    /**
+     * This function is used to perform a validation on the network from a
+     * dataset, such as a MappedDataset larger than memory.
+     *
+     * @param matrix Matrix of network to be created, passed as an array.
+     * @param network Map of current network configuration.
+     * @param dataSet Dataset of input vectors used for validation.
+     * @param dataTarget Dataset of input vectors targets used for validation.
+     * @return Returns true once completed, false if canceled or the network
+     * has been closed.
+     */
+    public boolean startValidation(int[] matrix, Map<String, Object> network,
+            IDataset dataSet, IDataset dataTarget) {
+
+        /**
+         * A closed network no longer exists.
+         */
+        if (isClosed(network)) {
+            validationComplete(false, false);
+            return false;
+        }
+
+        int counter = 1;
+
+        double[] values = null;
         double[] targets;
 
+        int patterns = Math.min(dataSet.getRows(), dataTarget.getRows());
+
         /**
          * Cycle through each pattern provided in the dataset.
          */
-        for (int pattern = 0; pattern < dataSet.size(); pattern++) {
+        for (int pattern = 0; pattern < patterns; pattern++) {
 
             /**
              * Ignore possible null values in datasets and targets.
              */
-            if ((dataSet.get(pattern) != null) || (dataTarget.get(pattern) != null)) {
-
-                values = new double[dataSet.get(pattern).length];
-                targets = new double[dataTarget.get(pattern).length];
-
-                /**
-                 * Copy data to new arrays, so we don't change original data
-                 * settings.
-                 */
-                values = Arrays.copyOf(dataSet.get(pattern), dataSet.get(pattern).length);
-                targets = Arrays.copyOf(dataTarget.get(pattern), dataTarget.get(pattern).length);
-
-            } else {
-
+            if (dataSet.getColumns(pattern) == 0 || dataTarget.getColumns(pattern) == 0) {
                 continue;
             }
 
+            /**
+             * Copy data to new arrays, so we don't change original data
+             * settings. The targets are handed to the listeners, so each
+             * pattern gets its own array.
+             */
+            values = dataSet.getRow(pattern, values);
+            targets = dataTarget.getRow(pattern, null);
+
             /**
              * The user has canceled the validation session.
              */
@@ -502,187 +1605,684 @@ public class Network implements INetworkEvent {
             }
 
             /**
-             * Perform standard feed forward and return results. One result per
-             * pattern passed - per output neuron.
+             * Perform standard feed forward and return results. One result per
+             * pattern passed - per output neuron.
+             */
+            double result[] = startFeedForward(matrix, values, network);
+
+            /**
+             * Raise an event broadcasting expected target value Vs computed
+             * results.
+             */
+            networkValidation(counter, targets, result);
+
+            counter++;
+        }
+
+        validationComplete(true, false);
+
+        return true;
+    }
+
+    /**
+     * This is used for back propagation and will train the network during a
+     * supervised on-line training sessions. Network weights per neuron are
+     * updated based on computed error margin per neuron in each layer.
+     *
+     * @param matrix Matrix of network to be created, passed as an array.
+     * @param targets An array of target vectors.
+     * @param network Map of current network configuration.
+     * @param learningRate Learning Rate of network.
+     * @param momentum This is the momentum of the algorithm.
+     *
+     * @return Returns total error computed in network (Target - Computed
+     * Output).
+     */
+    private double[] startBackPropagation(int matrix[], double[] targets,
+            Map<String, Object> network, double learningRate, double momentum,
+            double weight_decay) {
+
+        /**
+         * Clear out the cancel boolean if it was set in a previous session.
+         */
+        this.cancel = false;
+
+        /**
+         * Pass to core back propagation and return results.
+         */
+        return BACK_PROPAGATION.propagate(matrix, targets,
+                getNeuronTable(matrix, network), learningRate, momentum);
+
+    }
+
+    /**
+     * This function is used to prune the network after training, dropping
+     * every weight whose magnitude is below the threshold. Each weight costs
+     * a multiply and add for every pattern fed forward, the weights of a
+     * pruned layer are held as compressed sparse rows and only the weights
+     * left are read, see CompiledNetwork.prune. Pruning pays off once most
+     * weights of a layer are dropped.
+     *
+     * The weights dropped are set to zero in the neurons, are dropped each
+     * time the network is compiled, and pruned layers are saved with only the
+     * weights left by saveNetworkToBinaryFile. Training brings the pruned
+     * weights back unless setFreezePruning has been set, so a pruned network
+     * can be fine tuned.
+     *
+     * @param matrix Matrix of network, passed as an array.
+     * @param network Map of current network configuration.
+     * @param threshold Smallest magnitude of a weight that is kept.
+     *
+     * @return True if the network was pruned.
+     */
+    public boolean pruneNetwork(int matrix[], Map<String, Object> network,
+            double threshold) {
+
+        double thresholds[] = new double[Math.max(0, matrix.length - 1)];
+        Arrays.fill(thresholds, threshold);
+
+        return pruneNetwork(matrix, network, thresholds);
+    }
+
+    /**
+     * This function is used to prune the network with a threshold per layer,
+     * see pruneNetwork. The first threshold is for the first hidden layer,
+     * and a layer whose threshold is NaN is left as it is.
+     *
+     * @param matrix Matrix of network, passed as an array.
+     * @param network Map of current network configuration.
+     * @param thresholds Smallest magnitude of a weight kept, per layer.
+     *
+     * @return True if the network was pruned.
+     */
+    public boolean pruneNetwork(int matrix[], Map<String, Object> network,
+            double thresholds[]) {
+
+        return prune(matrix, network, getPruningNetwork(matrix, network),
+                thresholds);
+    }
+
+    /**
+     * This function is used to prune the given fraction of all the weights of
+     * the network, those of smallest magnitude, see pruneNetwork. Weights
+     * already pruned count towards the fraction.
+     *
+     * @param matrix Matrix of network, passed as an array.
+     * @param network Map of current network configuration.
+     * @param sparsity Fraction of the weights to be dropped, from 0 to 1.
+     *
+     * @return True if the network was pruned.
+     */
+    public boolean pruneNetworkToSparsity(int matrix[], Map<String, Object> network,
+            double sparsity) {
+
+        CompiledNetwork compiled = getPruningNetwork(matrix, network);
+
+        if (compiled == null) {
+            return false;
+        }
+
+        double thresholds[] = new double[matrix.length - 1];
+        Arrays.fill(thresholds, compiled.getThreshold(sparsity));
+
+        return !Double.isNaN(thresholds[0])
+                && prune(matrix, network, compiled, thresholds);
+    }
+
+    /**
+     * This function is used to prune the given fraction of the weights of
+     * each layer, see pruneNetworkToSparsity. The first fraction is for the
+     * first hidden layer, and a layer whose fraction is NaN is left as it is.
+     *
+     * @param matrix Matrix of network, passed as an array.
+     * @param network Map of current network configuration.
+     * @param sparsity Fraction of the weights to be dropped, per layer.
+     *
+     * @return True if the network was pruned.
+     */
+    public boolean pruneNetworkToSparsity(int matrix[], Map<String, Object> network,
+            double sparsity[]) {
+
+        CompiledNetwork compiled = getPruningNetwork(matrix, network);
+
+        if (compiled == null || sparsity.length != (matrix.length - 1)) {
+            return false;
+        }
+
+        double thresholds[] = new double[sparsity.length];
+
+        for (int layers = 1; layers < matrix.length; layers++) {
+            thresholds[layers - 1] = compiled.getThreshold(layers, sparsity[layers - 1]);
+        }
+
+        return prune(matrix, network, compiled, thresholds);
+    }
+
+    /**
+     * This will compile the network in double to be pruned, with the layers
+     * already pruned held pruned. A network held in buffers has no neurons
+     * and can not be pruned.
+     *
+     * @param matrix Matrix of network, passed as an array.
+     * @param network Map of current network configuration.
+     * @return Compiled network or null if the network can not be pruned.
+     */
+    private CompiledNetwork getPruningNetwork(int matrix[],
+            Map<String, Object> network) {
+
+        if (network == null || network == buffer_map || isClosed(network)) {
+            return null;
+        }
+
+        return compileNetwork(matrix, network, Precision.DOUBLE);
+    }
+
+    /**
+     * This will prune the layers of the compiled network with the thresholds
+     * given, write the weights left back into the neurons and record which
+     * layers are pruned.
+     *
+     * @param matrix Matrix of network, passed as an array.
+     * @param network Map of current network configuration.
+     * @param compiled Network compiled in double, see getPruningNetwork.
+     * @param thresholds Smallest magnitude of a weight kept, per layer.
+     * @return True if the network was pruned.
+     */
+    private boolean prune(int matrix[], Map<String, Object> network,
+            CompiledNetwork compiled, double thresholds[]) {
+
+        if (compiled == null || thresholds.length != (matrix.length - 1)) {
+            return false;
+        }
+
+        boolean layers[] = (network == pruned_map)
+                ? pruned_layers.clone() : new boolean[matrix.length];
+
+        for (int layer = 1; layer < matrix.length; layer++) {
+
+            if (compiled.prune(layer, thresholds[layer - 1])) {
+                layers[layer] = true;
+            }
+        }
+
+        compiled.writeBack(network);
+
+        this.pruned_map = network;
+        this.pruned_layers = layers;
+
+        /**
+         * Weights have changed, drop the compiled snapshot.
+         */
+        this.compiled_network = null;
+
+        return true;
+    }
+
+    /**
+     * This function is used to save the network configuration to file.
+     *
+     * @param file Path and name of file to be saved.
+     * @param network Map of current network configuration.
+     * @param matrix Matrix of network to be created, passed as an array.
+     *
+     * @return boolean true/false for successful saving network file.
+     */
+    @SuppressWarnings("unchecked")
+    public Boolean saveNetworkToFile(File file, Map<String, Object> network,
+            int matrix[]) {
+
+        /**
+         * A network held in buffers has no neurons to be written as XML, a
+         * closed network no longer exists.
+         */
+        if ((network != null && network == buffer_map) || isClosed(network)) {
+            return false;
+        }
+
+        /**
+         * Pass to core file functions to set data.
+         */
+        return FileFunctions.saveNetworkToFile(file, network, matrix);
+
+    }
+
+    /**
+     * This function is used to save the network configuration to file in the
+     * compact binary format. The file holds the matrix, the bias setting of
+     * each neuron and the weights of each layer as raw little-endian doubles,
+     * and is loaded with loadNetworkFromFile like an XML file.
+     *
+     * @param file Path and name of file to be saved.
+     * @param network Map of current network configuration.
+     * @param matrix Matrix of network to be created, passed as an array.
+     *
+     * @return boolean true/false for successful saving network file.
+     */
+    public Boolean saveNetworkToBinaryFile(File file, Map<String, Object> network,
+            int matrix[]) {
+
+        /**
+         * A network held off heap has no neurons, its buffers are written.
+         */
+        if (isOffHeap(network)) {
+            return buffer_network.save(file);
+        }
+
+        if (isClosed(network)) {
+            return false;
+        }
+
+        /**
+         * Pruned layers are saved with only the weights left.
+         */
+        if (network != null && network == pruned_map) {
+            return FileFunctions.saveNetworkToBinaryFile(file, network, matrix,
+                    pruned_layers);
+        }
+
+        /**
+         * Pass to core file functions to set data.
+         */
+        return FileFunctions.saveNetworkToBinaryFile(file, network, matrix);
+
+    }
+
+    /**
+     * This function will retrieve the network settings and create a network
+     * based on save parameters stored in the file. A Map is parsed to the
+     * caller in order to keep track of the network components.
+     *
+     * @param file Path and name of file to be loaded.
+     *
+     * @return Map Map of loaded network configuration.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> loadNetworkFromFile(File file) {
+
+        /**
+         * Files saved in the binary format are recognised by their first
+         * bytes, anything else is read as XML.
+         */
+        if (FileFunctions.isBinaryNetworkFile(file)) {
+            return loadNetworkFromBinaryFile(file);
+        }
+
+        /**
+         * Pass to core file functions to read the XML in a single pass. The
+         * network is built as soon as its size has been read, and each neuron
+         * is filled in as it is read.
+         */
+        return FileFunctions.readNetworkFromFile(file, (int[] size) -> {
+
+            /**
+             * Resize system matrix for new network configuration.
+             */
+            this.matrix = size;
+
+            /**
+             * Build the network with given matrix info.
+             */
+            return buildNetwork(size);
+        });
+    }
+
+    /**
+     * This function will retrieve the network settings from file and create a
+     * network computed at the precision given, see setPrecision.
+     *
+     * @param file Path and name of file to be loaded.
+     * @param precision Precision of the weights and activations.
+     *
+     * @return Map Map of loaded network configuration.
+     */
+    public Map<String, Object> loadNetworkFromFile(File file, Precision precision) {
+
+        setPrecision(precision);
+
+        return loadNetworkFromFile(file);
+    }
+
+    /**
+     * This function will retrieve the network settings from file, and when
+     * mapped is true serve the weights straight from the file instead of
+     * creating neurons for them. The file must be in the compact binary
+     * format, see saveNetworkToBinaryFile.
+     *
+     * A mapped file is shared through the page cache with every process that
+     * maps it, loads in constant time and does not use heap for its weights.
+     * The map returned holds no neurons, it stands for the mapped network when
+     * passed to startFeedForward or startValidation with getMatrix(). A
+     * mapped network is read only: it can not be trained, changed with
+     * setNeuron or saved, and uses the activation kernel set when it was
+     * loaded.
+     *
+     * @param file Path and name of file to be loaded.
+     * @param mapped True to map the file read only for inference.
+     *
+     * @return Map Map of loaded network configuration, null if the file could
+     * not be loaded.
+     */
+    public Map<String, Object> loadNetworkFromFile(File file, boolean mapped) {
+
+        if (!mapped) {
+            return loadNetworkFromFile(file);
+        }
+
+        NetworkFile model = FileFunctions.mapNetworkFromBinaryFile(file);
+
+        if (model == null) {
+
+            /**
+             * File does not exist or is not a valid binary network file.
              */
-            double result[] = startFeedForward(matrix, values, network);
+            return null;
+        }
 
-            /**
-             * Raise an event broadcasting expected target value Vs computed
-             * results.
-             */
-            networkValidation(counter, targets, result);
+        Map<String, Object> network = Collections.unmodifiableMap(new HashMap<>());
+        CompiledNetwork compiled = CompiledNetwork.map(model, network, activation_kernel);
 
-            counter++;
+        if (compiled == null) {
+            return null;
         }
 
-        validationComplete(true, false);
+        closeNetwork();
 
-        return true;
+        this.matrix = model.getMatrix();
+        this.cancel = false;
+        this.buffer_network = compiled;
+        this.buffer_map = network;
+
+        return network;
     }
 
     /**
-     * This is used for back propagation and will train the network during a
-     * supervised on-line training sessions. Network weights per neuron are
-     * updated based on computed error margin per neuron in each layer.
+     * This function will retrieve the network settings from file and hold the
+     * weights off heap, in direct memory the garbage collector does not have
+     * to trace, without creating neurons for them. A file in the compact
+     * binary format is copied into memory directly, any other file is loaded
+     * into neurons first and then moved off heap, see moveNetworkOffHeap.
      *
-     * @param matrix Matrix of network to be created, passed as an array.
-     * @param targets An array of target vectors.
-     * @param network Map of current network configuration.
-     * @param learningRate Learning Rate of network.
-     * @param momentum This is the momentum of the algorithm.
+     * @param file Path and name of file to be loaded.
      *
-     * @return Returns total error computed in network (Target - Computed
-     * Output).
+     * @return Map Map of loaded network configuration, null if the file could
+     * not be loaded.
      */
-    private double[] startBackPropagation(int matrix[], double[] targets,
-            Map<String, Object> network, double learningRate, double momentum,
-            double weight_decay) {
+    public Map<String, Object> loadNetworkOffHeap(File file) {
 
-        /**
-         * Clear out the cancel boolean if it was set in a previous session.
-         */
-        this.cancel = false;
+        if (!FileFunctions.isBinaryNetworkFile(file)) {
 
-        /**
-         * Pass to core back propagation and return results.
-         */
-        return BACK_PROPAGATION.start(matrix, targets, network, learningRate, momentum);
+            Map<String, Object> network = loadNetworkFromFile(file);
+
+            return (network == null) ? null : moveNetworkOffHeap(matrix, network);
+        }
+
+        NetworkFile model = FileFunctions.mapNetworkFromBinaryFile(file);
+
+        if (model == null) {
+            return null;
+        }
+
+        Map<String, Object> network = Collections.unmodifiableMap(new HashMap<>());
+        CompiledNetwork compiled = CompiledNetwork.load(model, network, activation_kernel);
+
+        if (compiled == null) {
+            return null;
+        }
+
+        closeNetwork();
 
+        this.matrix = model.getMatrix();
+        this.cancel = false;
+        this.buffer_network = compiled;
+        this.buffer_map = network;
+
+        return network;
     }
 
     /**
-     * This function is used to save the network configuration to file.
+     * This function will move the weights of a network off heap, into direct
+     * memory the garbage collector does not have to trace, and drop its
+     * neurons. A large network then leaves a handful of small objects on the
+     * heap instead of one neuron and four arrays per neuron, and training
+     * keeps its weight changes off heap as well.
      *
-     * @param file Path and name of file to be saved.
+     * The map returned holds no neurons, it stands for the network when passed
+     * to startFeedForward, startTraining, startValidation or
+     * saveNetworkToBinaryFile with getMatrix(). The network uses the
+     * activation kernel of its neurons and is held as doubles whatever the
+     * precision. It can not be changed with setNeuron or saved as XML. Its
+     * memory is released by closeNetwork, or when another network is built or
+     * loaded.
+     *
+     * @param matrix Matrix of network, passed as an array.
      * @param network Map of current network configuration.
-     * @param matrix Matrix of network to be created, passed as an array.
      *
-     * @return boolean true/false for successful saving network file.
+     * @return Map Map of network held off heap, null if the network could not
+     * be moved.
      */
-    @SuppressWarnings("unchecked")
-    public Boolean saveNetworkToFile(File file, Map<String, Object> network,
-            int matrix[]) {
+    public Map<String, Object> moveNetworkOffHeap(int matrix[],
+            Map<String, Object> network) {
+
+        Map<String, Object> handle = Collections.unmodifiableMap(new HashMap<>());
+        CompiledNetwork compiled = CompiledNetwork.compileOffHeap(matrix, network, handle);
+
+        if (compiled == null) {
+            return null;
+        }
+
+        closeNetwork();
 
         /**
-         * Pass to core file functions to set data.
+         * The neurons are no longer needed.
          */
-        return FileFunctions.saveNetworkToFile(file, network, matrix);
+        network.clear();
+
+        if (network == pruned_map) {
+            this.pruned_map = null;
+        }
 
+        this.matrix = matrix;
+        this.compiled_network = null;
+        this.neuron_table = null;
+        this.buffer_network = compiled;
+        this.buffer_map = handle;
+
+        return handle;
     }
 
     /**
-     * This function will retrieve the network settings and create a network
-     * based on save parameters stored in the file. A Map is parsed to the
-     * caller in order to keep track of the network components.
+     * This function releases a network held off heap or mapped from a binary
+     * file. Off heap memory is freed straight away, rather than when the
+     * garbage collector gets to it, and the map that stood for the network
+     * can no longer be used: startFeedForward returns null for it, while
+     * startTraining, startValidation and the save functions return false. It
+     * must not be called while the network is being trained or validated.
+     */
+    public void closeNetwork() {
+
+        if (buffer_network != null) {
+            buffer_network.close();
+        }
+
+        this.buffer_network = null;
+        this.buffer_map = null;
+    }
+
+    /**
+     * This will create a network from a file saved in the compact binary
+     * format.
      *
      * @param file Path and name of file to be loaded.
      *
      * @return Map Map of loaded network configuration.
      */
-    @SuppressWarnings("unchecked")
-    public Map<String, Object> loadNetworkFromFile(File file) {
+    private Map<String, Object> loadNetworkFromBinaryFile(File file) {
 
-        /**
-         * Pass to core file functions to get data.
-         */
-        Document doc;
-        doc = FileFunctions.loadNetworkFromFile(file);
+        NetworkFile model = FileFunctions.loadNetworkFromBinaryFile(file);
 
-        if (doc == null) {
+        if (model == null) {
 
             /**
-             * File does not exist.
+             * File does not exist or is not valid.
              */
             return null;
+        }
 
-        } else {
+        /**
+         * Build the network with the stored matrix and copy the bias settings
+         * and weights into the neurons.
+         */
+        this.matrix = model.getMatrix();
+        network_map = buildNetwork(matrix);
 
-            try {
+        if (!model.copyTo(getNeuronTable(matrix, network_map))) {
+            return null;
+        }
 
-                doc.getDocumentElement().getNodeName();
+        /**
+         * Layers stored pruned are pruned again.
+         */
+        boolean pruned[] = new boolean[matrix.length];
 
-                String[] matrix_size
-                        = doc.getDocumentElement().getAttribute("size").split(",");
+        for (int layers = 1; layers < matrix.length; layers++) {
 
-                /**
-                 * Resize system matrix for new network configuration.
-                 */
-                this.matrix = new int[matrix_size.length];
+            pruned[layers] = model.isPruned(layers);
 
-                /**
-                 * Strip out unwanted characters from saved algorithm.
-                 */
-                for (int x = 0; x < matrix_size.length; x++) {
+            if (pruned[layers]) {
+                this.pruned_map = network_map;
+            }
+        }
 
-                    matrix_size[x] = matrix_size[x].replace("[", "");
-                    matrix_size[x] = matrix_size[x].replace(" ", "");
-                    matrix_size[x] = matrix_size[x].replace("]", "");
+        this.pruned_layers = pruned;
 
-                    matrix[x] = Integer.parseInt(matrix_size[x]);
-                }
+        return network_map;
+    }
 
-                /**
-                 * Build the network with given matrix info.
-                 */
-                network_map = buildNetwork(matrix);
+    /**
+     * This is passed to the core common functions to load data from a CSV file.
+     * When cache data is set the file is loaded through its binary copy, see
+     * setCacheData.
+     *
+     * @param file Path and name of file to be loaded.
+     * @return Map of data loaded from CSV file..
+     */
+    public Map<Integer, double[]> loadCSVFile(String file) {
 
-                /**
-                 * Cycle through document node and update the values for each
-                 * given neuron in the network.
-                 */
-                NodeList nList = doc.getElementsByTagName("Neuron");
+        return loadCSVFile(file, 1);
+    }
 
-                for (int temp = 0; temp < nList.getLength(); temp++) {
+    /**
+     * This is passed to the core common functions to load data from a CSV file,
+     * parsing pieces of the file on several threads. This is worth it for
+     * files of many megabytes.
+     *
+     * @param file Path and name of file to be loaded.
+     * @param threads Number of threads to parse with.
+     * @return Map of data loaded from CSV file.
+     */
+    public Map<Integer, double[]> loadCSVFile(String file, int threads) {
+
+        if (cacheData) {
+
+            IDataset data = FileFunctions.loadCachedCSVDataset(file, threads);
+            return (data == null) ? null : data.toMap();
+        }
+
+        return FileFunctions.loadCSVFile(file, threads);
+    }
 
-                    Node nNode = nList.item(temp);
+    /**
+     * This is passed to the core common functions to load data from a CSV file
+     * as a flat dataset of primitive values. When cache data is set the
+     * dataset is mapped from the binary copy of the file, see setCacheData.
+     *
+     * @param file Path and name of file to be loaded.
+     * @return Dataset loaded from CSV file, null if it could not be read.
+     */
+    public IDataset loadCSVDataset(String file) {
 
-                    if (nNode.getNodeType() == Node.ELEMENT_NODE) {
+        return loadCSVDataset(file, 1);
+    }
 
-                        Element eElement = (Element) nNode;
-                        String name = eElement.getAttribute("id");
+    /**
+     * This is passed to the core common functions to load data from a CSV file
+     * as a flat dataset, parsing pieces of the file on several threads.
+     *
+     * @param file Path and name of file to be loaded.
+     * @param threads Number of threads to parse with.
+     * @return Dataset loaded from CSV file, null if it could not be read.
+     */
+    public IDataset loadCSVDataset(String file, int threads) {
 
-                        Boolean bias = Boolean.valueOf(
-                                CommonFunctions.extractNodeValue(nNode, "bias", "value", 0));
+        if (cacheData) {
+            return FileFunctions.loadCachedCSVDataset(file, threads);
+        }
 
-                        int weights = Integer.parseInt(
-                                CommonFunctions.extractNodeValue(nNode, "weights", "value", 0));
+        return FileFunctions.loadCSVDataset(file, threads);
+    }
 
-                        double weight[] = new double[weights];
+    /**
+     * This is passed to the core common functions to load both the input
+     * vectors and the targets from one CSV file in a single pass, for files
+     * where the targets are held in their own columns. Columns are named by
+     * position from 0 and columns not named are skipped.
+     *
+     * @param file Path and name of file to be loaded.
+     * @param features Columns of the input vectors, or null for every column
+     * that is not a target.
+     * @param targets Columns of the targets.
+     * @param dataSet This is passed as empty and will be populated with the
+     * input vectors.
+     * @param dataTarget This is passed as empty and will be populated with the
+     * targets.
+     * @return True if the file was loaded.
+     */
+    public boolean loadCSVFile(String file, int[] features, int[] targets,
+            Map<Integer, double[]> dataSet, Map<Integer, double[]> dataTarget) {
 
-                        for (int pos = 0; pos < weights; pos++) {
-                            weight[pos] = Double.parseDouble(
-                                    CommonFunctions.extractNodeValue(nNode, "weight", "value", pos));
-                        }
+        return FileFunctions.loadCSVFile(file, features, targets, dataSet, dataTarget);
+    }
 
-                        setNeuron(network_map, name, weight, bias);
-                    }
-                }
+    /**
+     * This is passed to the core common functions to load both the input
+     * vectors and the targets from one CSV file in a single pass, as flat
+     * datasets.
+     *
+     * @param file Path and name of file to be loaded.
+     * @param features Columns of the input vectors, or null for every column
+     * that is not a target.
+     * @param targets Columns of the targets.
+     * @return Input vectors and targets, null if the file could not be read.
+     */
+    public IDataset[] loadCSVDataset(String file, int[] features, int[] targets) {
 
-            } catch (NumberFormatException | DOMException e) {
+        return FileFunctions.loadCSVDataset(file, features, targets);
+    }
 
-                /**
-                 * Error, don't return anything.
-                 */
-                return null;
-            }
+    /**
+     * This is passed to the core common functions to save a dataset to a
+     * binary file that can be memory mapped with mapDataset.
+     *
+     * @param file Path and name of file to be saved.
+     * @param data Dataset to be saved, every row the same size.
+     * @return True if the file was written.
+     */
+    public boolean saveDatasetToBinaryFile(File file, IDataset data) {
 
-            /**
-             * No error, return created network.
-             */
-            return network_map;
-        }
+        return FileFunctions.saveDatasetToBinaryFile(file, data);
     }
 
     /**
-     * This is passed to the core common functions to load data from a CSV file.
+     * This will map a binary dataset file read only, so it can be passed to
+     * startTraining or startValidation without loading it onto the heap.
+     * Several networks, or processes, can map the same file at once.
      *
      * @param file Path and name of file to be loaded.
-     * @return Map of data loaded from CSV file..
+     * @return Dataset mapped, null if the file could not be mapped.
      */
-    public Map<Integer, double[]> loadCSVFile(String file) {
+    public MappedDataset mapDataset(File file) {
 
-        return FileFunctions.loadCSVFile(file);
+        return FileFunctions.mapDatasetFromBinaryFile(file);
     }
 
     /**
@@ -751,6 +2351,27 @@ public class Network implements INetworkEvent {
 
     }
 
+    /**
+     * This function will split a dataset into both training and validation
+     * datasets based on a percentage provided by the user. Use MapDataset or
+     * toMap to move between datasets and the Maps used by the other methods.
+     *
+     * @param trainSet The training set passed.
+     * @param trainTarget The training targets passed.
+     * @param percentage The percentage of the data used for training.
+     * @return Training set, training targets, validation set and validation
+     * targets, in that order.
+     */
+    public IDataset[] createTrainingData(IDataset trainSet, IDataset trainTarget,
+            int percentage) {
+
+        /**
+         * CommonFunctions defined function.
+         */
+        return DataFunctions.splitTrainingData(trainSet, trainTarget,
+                (100 - percentage));
+    }
+
     /**
      * This function is used to normalize data based on Gaussian normalization
      * and will return a Map of data that has been normalized.
@@ -768,6 +2389,24 @@ public class Network implements INetworkEvent {
 
     }
 
+    /**
+     * This function is used to normalize a dataset based on Gaussian
+     * normalization and will return a new dataset that has been normalized.
+     *
+     * @param data Dataset passed for normalization, every row the same size.
+     *
+     * @return Dataset after normalization has been done, null if the rows
+     * differ in size.
+     */
+    public IDataset normalizeData(IDataset data) {
+
+        /**
+         * Call Data Functions and return the result.
+         */
+        return DataFunctions.normalizeData(data);
+
+    }
+
     /**
      * This parameter will define if the network training and validation has
      * been canceled early by the user.
@@ -780,6 +2419,22 @@ public class Network implements INetworkEvent {
 
     }
 
+    /**
+     * This function is used to keep a binary copy of each CSV file loaded next
+     * to the file, named after it with ".pfds" added. If set to true, the
+     * first load of a file writes the copy and later loads map the copy
+     * instead of parsing the file again, for as long as the size, time and
+     * checksum of the file still match. Datasets loaded from a copy are read
+     * only.
+     *
+     * @param value True or False
+     */
+    public void setCacheData(boolean value) {
+
+        this.cacheData = value;
+
+    }
+
     /**
      * This function is used to randomize the order that data will be presented
      * to the Neural Network during training. If set to true, than data will be
@@ -793,6 +2448,154 @@ public class Network implements INetworkEvent {
 
     }
 
+    /**
+     * This function is used to choose how the Sigmoid activation function is
+     * computed by every neuron in the network: EXACT uses Math.exp, FAST uses
+     * an interpolated lookup table that is within 3.0e-6 of EXACT. The kernel
+     * is also used for networks built or loaded afterwards.
+     *
+     * @param kernel Activation kernel for the network.
+     */
+    public void setActivationKernel(ActivationKernel kernel) {
+
+        this.activation_kernel = kernel;
+
+        for (Object neuron : network_map.values()) {
+            NeuronUtil.setNeuronActivationKernel(neuron, kernel);
+        }
+
+        /**
+         * Outputs are changing, drop the compiled snapshot.
+         */
+        this.compiled_network = null;
+
+    }
+
+    /**
+     * This function is used to choose the precision of the weights and
+     * activations of the networks built or loaded afterwards, and of the
+     * compiled network, which performs startFeedForward, startValidation and
+     * mini-batch training. FLOAT holds the weights and inputs of each neuron
+     * as floats, halving the memory of the network, and the compiled weights
+     * as floats, halving the bandwidth needed to read them on every pass.
+     * Activations are rounded to float, while sums and weight changes are
+     * still accumulated in double. Outputs are within about 1.0e-6 of DOUBLE,
+     * and drift further with every batch trained, by about 1.0e-5 after twenty
+     * batches of a large network. FLOAT pays off for large layers whose
+     * weights do not fit in cache, a network that fits is faster in DOUBLE, as
+     * each weight has to be widened before it is used.
+     *
+     * The neurons of a network that already exists keep the precision they
+     * were built with, only its compiled network changes. A network mapped
+     * from a binary file, or held off heap, ignores the precision and always
+     * reads doubles.
+     *
+     * @param precision Precision of the weights and activations.
+     */
+    public void setPrecision(Precision precision) {
+
+        if (precision == null) {
+            return;
+        }
+
+        this.precision = precision;
+
+        /**
+         * Weights are held differently, drop the compiled snapshot.
+         */
+        this.compiled_network = null;
+
+    }
+
+    /**
+     * This function is used to keep the weights dropped by pruneNetwork
+     * dropped while a pruned network is trained, so it can be fine tuned with
+     * its pruned layers. The network is then always trained compiled, a batch
+     * size of one trains it on-line. Otherwise training brings the pruned
+     * weights back and the network is no longer pruned.
+     *
+     * @param value True or False
+     */
+    public void setFreezePruning(boolean value) {
+
+        this.freezePruning = value;
+
+    }
+
+    /**
+     * This function is used to switch the broadcast of debug messages from the
+     * feed forward and back propagation on or off. Until this is called debug
+     * is on while a network listener is registered, so subscribers of
+     * networkDebug receive the trace, and off while nobody listens, so no
+     * debug work is done while processing. Once called the value given is
+     * kept whatever listeners are registered.
+     *
+     * The compiled network does not trace, so while debug is on the network
+     * is fed forward, validated and trained through its neurons one pattern
+     * at a time, whatever the batch size. Call setDebug(false) to use the
+     * compiled network while listeners are registered. A network held off
+     * heap or mapped from a file has no neurons and is not traced, nor is a
+     * pruned network trained with setFreezePruning.
+     *
+     * @param value True or False
+     */
+    public void setDebug(boolean value) {
+
+        this.debugSet = true;
+
+        enableDebug(value);
+
+    }
+
+    /**
+     * Switch debug on while a listener is registered, unless setDebug has been
+     * called.
+     */
+    private void updateDebug() {
+
+        if (!debugSet) {
+            enableDebug(LISTENER_LIST.getListenerCount(INetworkEvent.class) > 0);
+        }
+    }
+
+    /**
+     * Switch the trace of the feed forward and back propagation on or off.
+     *
+     * @param value True or False
+     */
+    private void enableDebug(boolean value) {
+
+        this.debug = value;
+
+        FEED_FORWARD.setTraceEnabled(value);
+        BACK_PROPAGATION.setTraceEnabled(value);
+    }
+
+    /**
+     * This function is used to set the number of threads used by mini-batch
+     * training. Each batch is split between the threads, which compute the
+     * weight changes for their part in parallel before they are combined and
+     * applied. A value of one or less trains on the calling thread.
+     *
+     * The threads are kept for every training session until this is called
+     * again. Call setTrainingThreads(1) to shut them down once the network is
+     * no longer trained.
+     *
+     * @param threads Number of training threads.
+     */
+    public void setTrainingThreads(int threads) {
+
+        if (training_pool != null) {
+            training_pool.shutdown();
+            training_pool = null;
+        }
+
+        if (threads > 1) {
+            training_pool = new ForkJoinPool(threads);
+        }
+
+    }
+
     /**
      * ------------------------ Network Methods End -------------------------
      *
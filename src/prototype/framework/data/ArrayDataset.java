@@ -0,0 +1,201 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.data;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This class holds a dataset in a single flat array of values. The values of
+ * each row follow one another and the start of every row is recorded as an
+ * offset, so rows may differ in size. Most datasets hold the same number of
+ * values in every row, which makes the array row-major with a fixed width.
+ *
+ * This replaces a Map of rows keyed by pattern number, where every row read
+ * boxes the key, looks it up and follows a pointer to its own array.
+ */
+public final class ArrayDataset implements IDataset {
+
+    private final double[] VALUES;
+    private final int[] OFFSETS;
+
+    /**
+     * Width of every row, worked out when first asked for.
+     */
+    private int width = -2;
+
+    /**
+     * Constructor.
+     *
+     * @param values Values of every row, one row after the other.
+     * @param offsets Start of each row in values, with one extra entry
+     * holding the end of the last row.
+     */
+    public ArrayDataset(double[] values, int[] offsets) {
+        this.VALUES = values;
+        this.OFFSETS = offsets;
+    }
+
+    /**
+     * Constructor for a dataset where every row holds the same number of
+     * values.
+     *
+     * @param values Values of every row, one row after the other.
+     * @param columns Number of values in each row.
+     */
+    public ArrayDataset(double[] values, int columns) {
+
+        this(values, columns, (columns == 0) ? 0 : values.length / columns);
+    }
+
+    /**
+     * Constructor for a dataset where every row holds the same number of
+     * values, held at the start of a larger array.
+     *
+     * @param values Values of every row, one row after the other.
+     * @param columns Number of values in each row.
+     * @param rows Number of rows.
+     */
+    public ArrayDataset(double[] values, int columns, int rows) {
+
+        this.VALUES = values;
+        this.OFFSETS = new int[rows + 1];
+
+        for (int x = 0; x < OFFSETS.length; x++) {
+            OFFSETS[x] = x * columns;
+        }
+    }
+
+    /**
+     * Constructor that copies the rows of a Map keyed from 0.
+     *
+     * @param data Map of data.
+     */
+    public ArrayDataset(Map<Integer, double[]> data) {
+
+        int rows = data.size();
+        int size = 0;
+
+        for (int x = 0; x < rows; x++) {
+            size += data.get(x).length;
+        }
+
+        this.VALUES = new double[size];
+        this.OFFSETS = new int[rows + 1];
+
+        for (int x = 0; x < rows; x++) {
+
+            double[] row = data.get(x);
+
+            System.arraycopy(row, 0, VALUES, OFFSETS[x], row.length);
+            OFFSETS[x + 1] = OFFSETS[x] + row.length;
+        }
+    }
+
+    @Override
+    public int getRows() {
+        return OFFSETS.length - 1;
+    }
+
+    @Override
+    public int getColumns(int row) {
+        return OFFSETS[row + 1] - OFFSETS[row];
+    }
+
+    @Override
+    public int getWidth() {
+
+        if (width == -2) {
+
+            int size = (getRows() == 0) ? 0 : getColumns(0);
+
+            for (int x = 1; x < getRows() && size >= 0; x++) {
+                if (getColumns(x) != size) {
+                    size = -1;
+                }
+            }
+
+            width = size;
+        }
+
+        return width;
+    }
+
+    @Override
+    public double getValue(int row, int column) {
+        return VALUES[OFFSETS[row] + column];
+    }
+
+    @Override
+    public double[] getRow(int row, double[] buffer) {
+
+        int columns = getColumns(row);
+
+        if (buffer == null || buffer.length != columns) {
+            buffer = new double[columns];
+        }
+
+        System.arraycopy(VALUES, OFFSETS[row], buffer, 0, columns);
+
+        return buffer;
+    }
+
+    @Override
+    public DoubleBuffer getRowBuffer(int row) {
+
+        return DoubleBuffer.wrap(VALUES, OFFSETS[row], getColumns(row))
+                .slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the flat array backing the dataset. This is not a copy. The
+     * array may be longer than the values held.
+     *
+     * @return Values of every row, one row after the other.
+     */
+    public double[] getValues() {
+        return VALUES;
+    }
+
+    /**
+     * Returns the start of each row in the flat array backing the dataset,
+     * with one extra entry holding the end of the last row. This is not a
+     * copy.
+     *
+     * @return Offsets of each row.
+     */
+    public int[] getOffsets() {
+        return OFFSETS;
+    }
+
+    @Override
+    public Map<Integer, double[]> toMap() {
+
+        int rows = getRows();
+        Map<Integer, double[]> data = new HashMap<>(Math.max(16, (int) (rows / 0.75f) + 1));
+
+        for (int x = 0; x < rows; x++) {
+            data.put(x, Arrays.copyOfRange(VALUES, OFFSETS[x], OFFSETS[x + 1]));
+        }
+
+        return data;
+    }
+}
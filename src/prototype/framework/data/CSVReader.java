@@ -0,0 +1,968 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.data;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This class reads comma separated files of numbers into a flat array of
+ * doubles. The file is scanned a byte at a time and each value is parsed
+ * straight from the bytes read, so no line or field strings are created.
+ *
+ * Values are parsed to the same double as Double.parseDouble. Plain decimal
+ * values of up to 15 or so significant digits are converted directly, any
+ * other value (NaN, Infinity, hex, very long or very large values) is handed
+ * to Double.parseDouble.
+ *
+ * As with BufferedReader.readLine, a line ends at a line feed, a carriage
+ * return or both, and each line is one row. As with String.split, empty fields
+ * at the end of a line are dropped, so a line holding no value is read as a
+ * row of no values, keeping later rows at the number of their line.
+ *
+ * A file holding both the input vectors and the targets can be read in one
+ * pass by naming the columns of each, see read(File, int[], int[]). Columns
+ * not named are skipped without being parsed.
+ */
+public final class CSVReader {
+
+    /**
+     * Size of the buffer used to read the file.
+     */
+    private static final int CHUNK = 1 << 16;
+
+    /**
+     * Smallest piece of a file parsed on its own thread.
+     */
+    private static final long PIECE = 1 << 20;
+
+    /**
+     * Powers of ten that can be held exactly as a double.
+     */
+    private static final double[] POWERS = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Largest mantissa that can be held exactly as a double.
+     */
+    private static final long EXACT = 1L << 53;
+
+    /**
+     * Largest array that can be allocated.
+     */
+    private static final int MAX_ARRAY = Integer.MAX_VALUE - 8;
+
+    /**
+     * Route of a column that is not used.
+     */
+    private static final int SKIP = -1;
+
+    private double[] values;
+    private int count;
+
+    private int[] offsets;
+    private int rows;
+
+    private byte[] field;
+    private int length;
+    private int empty;
+
+    private boolean failed;
+    private boolean carriage;
+
+    /**
+     * Where each column of a line goes when reading named columns, null when
+     * every column is read. A column is held as a slot of the input vectors
+     * (from 0), a slot of the targets (from -2 down) or SKIP.
+     */
+    private int[] route;
+    private boolean project;
+
+    private double[] targets;
+    private int targetCount;
+
+    private int featureWidth;
+    private int targetWidth;
+
+    private int column;
+    private int filledFeatures;
+    private int filledTargets;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity Number of values expected.
+     */
+    public CSVReader(int capacity) {
+
+        this.values = new double[Math.max(16, capacity)];
+        this.offsets = new int[1024];
+        this.field = new byte[64];
+    }
+
+    /**
+     * Constructor for reading named columns.
+     *
+     * @param capacity Number of values expected.
+     * @param route Where each column goes, see getRoute.
+     * @param features Number of input vectors per line, -1 if every column
+     * that is not a target is used.
+     * @param targets Number of targets per line.
+     */
+    private CSVReader(int capacity, int[] route, int features, int targets) {
+
+        this(capacity);
+
+        this.route = route;
+        this.project = (features >= 0);
+        this.featureWidth = features;
+        this.targetWidth = targets;
+        this.targets = new double[Math.max(16, targets * 1024)];
+    }
+
+    /**
+     * This will read a comma separated file into a dataset.
+     *
+     * @param file Path and name of file to be loaded.
+     * @return Dataset loaded, or null if the file could not be read or holds
+     * a value that is not a number.
+     */
+    public static ArrayDataset read(File file) {
+
+        /**
+         * Most values in our files take around 8 bytes including the comma,
+         * so size the values for that and let them grow if needed.
+         */
+        CSVReader reader = new CSVReader((int) Math.min(file.length() / 8, MAX_ARRAY));
+
+        try (InputStream stream = new FileInputStream(file)) {
+
+            byte[] buffer = new byte[CHUNK];
+            int read;
+
+            while ((read = stream.read(buffer)) != -1) {
+
+                if (!reader.parse(buffer, 0, read)) {
+                    return null;
+                }
+            }
+
+        } catch (IOException ex) {
+
+            /* found error */
+            return null;
+        }
+
+        return reader.finish();
+    }
+
+    /**
+     * This will read the input vectors and targets of a comma separated file
+     * in one pass. The columns are named by position from 0, and are held in
+     * each dataset in the order named. Columns not named are skipped. Every
+     * line must hold the columns named.
+     *
+     * @param file Path and name of file to be loaded.
+     * @param features Columns of the input vectors, or null for every column
+     * that is not a target.
+     * @param targets Columns of the targets.
+     * @return Input vectors and targets as two datasets, or null if the file
+     * could not be read, a column is named twice or a line is missing a
+     * column.
+     */
+    public static ArrayDataset[] read(File file, int[] features, int[] targets) {
+
+        int[] route = getRoute(features, targets);
+
+        if (route == null) {
+            return null;
+        }
+
+        /**
+         * Only the columns used are held, size the values for them.
+         */
+        long capacity = file.length() / 8;
+
+        if (features != null) {
+            capacity = capacity * features.length / Math.max(route.length, 1);
+        }
+
+        CSVReader reader = new CSVReader((int) Math.min(capacity, MAX_ARRAY), route,
+                (features == null) ? -1 : features.length, targets.length);
+
+        try (InputStream stream = new FileInputStream(file)) {
+
+            byte[] buffer = new byte[CHUNK];
+            int read;
+
+            while ((read = stream.read(buffer)) != -1) {
+
+                if (!reader.parse(buffer, 0, read)) {
+                    return null;
+                }
+            }
+
+        } catch (IOException ex) {
+
+            /* found error */
+            return null;
+        }
+
+        ArrayDataset data = reader.finish();
+
+        if (data == null || reader.featureWidth < 1) {
+            return null;
+        }
+
+        return new ArrayDataset[]{data,
+            new ArrayDataset(reader.targets, reader.targetWidth, data.getRows())};
+    }
+
+    /**
+     * This will read a comma separated file into a dataset on several
+     * threads. The file is split into pieces that end on a line break, each
+     * piece is parsed on its own and the rows are joined back in the order
+     * of the file. Files too small to be worth splitting are read on the
+     * calling thread.
+     *
+     * @param file Path and name of file to be loaded.
+     * @param threads Number of threads to parse with.
+     * @return Dataset loaded, or null if the file could not be read or holds
+     * a value that is not a number.
+     */
+    public static ArrayDataset read(File file, int threads) {
+
+        long size = file.length();
+
+        /**
+         * Several pieces per thread even out the work when some lines are
+         * longer than others.
+         */
+        int pieces = (int) Math.min((long) threads * 4, size / PIECE);
+
+        if (threads <= 1 || pieces <= 1) {
+            return read(file);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            long[] bounds = getBounds(channel, size, pieces);
+
+            List<Future<ArrayDataset>> tasks = new ArrayList<>(pieces);
+
+            for (int x = 0; x < pieces; x++) {
+
+                final long start = bounds[x];
+                final long end = bounds[x + 1];
+
+                tasks.add(pool.submit(() -> readRange(channel, start, end)));
+            }
+
+            /**
+             * Wait for every piece before the file is closed.
+             */
+            ArrayDataset[] parts = new ArrayDataset[pieces];
+
+            for (int x = 0; x < pieces; x++) {
+                parts[x] = tasks.get(x).get();
+            }
+
+            return join(parts);
+
+        } catch (IOException | ExecutionException ex) {
+
+            /* found error */
+            return null;
+
+        } catch (InterruptedException ex) {
+
+            Thread.currentThread().interrupt();
+            return null;
+
+        } finally {
+
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * This will parse a run of bytes from the file. A line may be split
+     * across calls, it is completed by the bytes of the next call.
+     *
+     * @param bytes Bytes read from the file.
+     * @param start Position of the first byte to parse.
+     * @param end Position after the last byte to parse.
+     * @return False if a value is not a number.
+     */
+    public boolean parse(byte[] bytes, int start, int end) {
+
+        int from = start;
+
+        for (int x = start; x < end; x++) {
+
+            byte b = bytes[x];
+
+            if (b == '\n' && carriage) {
+
+                /**
+                 * The line was ended by the carriage return before it.
+                 */
+                carriage = false;
+                from = x + 1;
+                continue;
+            }
+
+            carriage = (b == '\r');
+
+            if (b == ',' || b == '\n' || b == '\r') {
+
+                if (length > 0) {
+
+                    /**
+                     * The field was started by the previous call.
+                     */
+                    append(bytes, from, x);
+                    endField(field, 0, length);
+                    length = 0;
+
+                } else {
+
+                    endField(bytes, from, x);
+                }
+
+                if (b != ',') {
+                    endRow();
+                }
+
+                if (failed) {
+                    return false;
+                }
+
+                from = x + 1;
+            }
+        }
+
+        /**
+         * Keep the start of a field that runs into the next call.
+         */
+        append(bytes, from, end);
+
+        return true;
+    }
+
+    /**
+     * This will complete the last line if the file does not end with a new
+     * line and return the values read.
+     *
+     * @return Dataset loaded, or null if a value is not a number.
+     */
+    public ArrayDataset finish() {
+
+        /**
+         * Nothing after the last line break is not a line.
+         */
+        if (length > 0 || empty > 0 || column > 0 || count != offsets[rows]) {
+            endField(field, 0, length);
+            endRow();
+        }
+
+        length = 0;
+        carriage = false;
+
+        if (failed) {
+            return null;
+        }
+
+        return new ArrayDataset(values, Arrays.copyOf(offsets, rows + 1));
+    }
+
+    /**
+     * This will hand out the lines completed so far and drop them from the
+     * reader, so a file can be read a piece at a time. A line that is not
+     * complete is kept for the next call to parse.
+     *
+     * @return Lines completed since the last call.
+     */
+    ArrayDataset drain() {
+
+        int end = offsets[rows];
+
+        ArrayDataset done = new ArrayDataset(Arrays.copyOf(values, end),
+                Arrays.copyOf(offsets, rows + 1));
+
+        System.arraycopy(values, end, values, 0, count - end);
+        count -= end;
+        rows = 0;
+
+        return done;
+    }
+
+    /**
+     * Internal function that finds where each piece of the file starts. Every
+     * piece but the first starts after a line break.
+     *
+     * @param channel Channel of the file.
+     * @param size Size of the file.
+     * @param pieces Number of pieces.
+     * @return Start of each piece, with one extra entry holding the size.
+     * @throws IOException If the file can not be read.
+     */
+    private static long[] getBounds(FileChannel channel, long size, int pieces)
+            throws IOException {
+
+        long[] bounds = new long[pieces + 1];
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+        bounds[pieces] = size;
+
+        for (int x = 1; x < pieces; x++) {
+
+            long position = Math.max(bounds[x - 1], (size / pieces) * x);
+
+            bounds[x] = size;
+
+            /**
+             * Move forward to the next line feed, which always ends a line. A
+             * file ending its lines with a carriage return alone is read as
+             * one piece.
+             */
+            search:
+            while (position < size) {
+
+                buffer.clear();
+                int read = channel.read(buffer, position);
+
+                if (read < 0) {
+                    break;
+                }
+
+                for (int y = 0; y < read; y++) {
+
+                    if (buffer.get(y) == '\n') {
+                        bounds[x] = position + y + 1;
+                        break search;
+                    }
+                }
+
+                position += read;
+            }
+        }
+
+        return bounds;
+    }
+
+    /**
+     * Internal function that parses a piece of the file.
+     *
+     * @param channel Channel of the file, read without moving its position.
+     * @param start Position of the first byte of the piece.
+     * @param end Position after the last byte of the piece.
+     * @return Rows of the piece, or null if it could not be read.
+     */
+    private static ArrayDataset readRange(FileChannel channel, long start, long end) {
+
+        CSVReader reader = new CSVReader((int) Math.min((end - start) / 8, MAX_ARRAY));
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK);
+
+        try {
+
+            long position = start;
+
+            while (position < end) {
+
+                buffer.clear();
+                buffer.limit((int) Math.min(CHUNK, end - position));
+
+                int read = channel.read(buffer, position);
+
+                if (read < 0 || !reader.parse(buffer.array(), 0, read)) {
+                    return null;
+                }
+
+                position += read;
+            }
+
+        } catch (IOException ex) {
+
+            /* found error */
+            return null;
+        }
+
+        return reader.finish();
+    }
+
+    /**
+     * Internal function that joins the rows of each piece in order.
+     *
+     * @param parts Rows of each piece.
+     * @return Rows of every piece, or null if a piece could not be read.
+     */
+    private static ArrayDataset join(ArrayDataset[] parts) {
+
+        long count = 0;
+        long rows = 0;
+
+        for (ArrayDataset part : parts) {
+
+            if (part == null) {
+                return null;
+            }
+
+            count += part.getOffsets()[part.getRows()];
+            rows += part.getRows();
+        }
+
+        if (count > MAX_ARRAY || rows >= MAX_ARRAY) {
+            throw new OutOfMemoryError("CSV file too large");
+        }
+
+        double[] values = new double[(int) count];
+        int[] offsets = new int[(int) rows + 1];
+
+        int value = 0;
+        int row = 0;
+
+        for (ArrayDataset part : parts) {
+
+            int[] from = part.getOffsets();
+            int size = from[part.getRows()];
+
+            System.arraycopy(part.getValues(), 0, values, value, size);
+
+            for (int x = 1; x <= part.getRows(); x++) {
+                offsets[row + x] = value + from[x];
+            }
+
+            value += size;
+            row += part.getRows();
+        }
+
+        return new ArrayDataset(values, offsets);
+    }
+
+    /**
+     * Internal function that keeps bytes of a field that is not complete.
+     *
+     * @param bytes Bytes read from the file.
+     * @param from Position of the first byte to keep.
+     * @param to Position after the last byte to keep.
+     */
+    private void append(byte[] bytes, int from, int to) {
+
+        int size = to - from;
+
+        if (length + size > field.length) {
+            field = Arrays.copyOf(field, Math.max(field.length * 2, length + size));
+        }
+
+        System.arraycopy(bytes, from, field, length, size);
+        length += size;
+    }
+
+    /**
+     * Internal function that adds a field read to the current row.
+     *
+     * @param bytes Bytes holding the field.
+     * @param from Position of the first byte of the field.
+     * @param to Position after the last byte of the field.
+     */
+    private void endField(byte[] bytes, int from, int to) {
+
+        if (route != null) {
+            endColumn(bytes, from, to);
+            return;
+        }
+
+        /**
+         * Double.parseDouble ignores white space around the value, this also
+         * drops the carriage return of Windows line endings.
+         */
+        while (from < to && bytes[from] <= ' ') {
+            from++;
+        }
+
+        while (to > from && bytes[to - 1] <= ' ') {
+            to--;
+        }
+
+        if (from == to) {
+
+            /**
+             * Empty fields are only allowed at the end of a line.
+             */
+            empty++;
+            return;
+        }
+
+        if (empty > 0) {
+            failed = true;
+            return;
+        }
+
+        if (count == values.length) {
+            values = Arrays.copyOf(values, grow(count));
+        }
+
+        values[count++] = parseValue(bytes, from, to);
+    }
+
+    /**
+     * Internal function that closes the current row.
+     */
+    private void endRow() {
+
+        if (route != null) {
+            endColumnRow();
+            return;
+        }
+
+        empty = 0;
+
+        if (rows + 1 == offsets.length) {
+            offsets = Arrays.copyOf(offsets, grow(offsets.length));
+        }
+
+        offsets[++rows] = count;
+    }
+
+    /**
+     * Internal function that returns where each column goes when reading
+     * named columns.
+     *
+     * @param features Columns of the input vectors, or null for every column
+     * that is not a target.
+     * @param targets Columns of the targets.
+     * @return Route of each column up to the last named, or null if a column
+     * is named twice or is not valid.
+     */
+    private static int[] getRoute(int[] features, int[] targets) {
+
+        if (targets == null) {
+            return null;
+        }
+
+        int size = 0;
+
+        for (int x : targets) {
+            size = Math.max(size, x + 1);
+        }
+
+        if (features != null) {
+            for (int x : features) {
+                size = Math.max(size, x + 1);
+            }
+        }
+
+        int[] route = new int[size];
+        Arrays.fill(route, SKIP);
+
+        for (int x = 0; x < targets.length; x++) {
+
+            if (targets[x] < 0 || route[targets[x]] != SKIP) {
+                return null;
+            }
+
+            route[targets[x]] = -(x + 2);
+        }
+
+        if (features != null) {
+
+            for (int x = 0; x < features.length; x++) {
+
+                if (features[x] < 0 || route[features[x]] != SKIP) {
+                    return null;
+                }
+
+                route[features[x]] = x;
+            }
+
+        } else {
+
+            /**
+             * Every other column is an input vector, in the order of the file.
+             */
+            int slot = 0;
+
+            for (int x = 0; x < size; x++) {
+
+                if (route[x] == SKIP) {
+                    route[x] = slot++;
+                }
+            }
+        }
+
+        return route;
+    }
+
+    /**
+     * Internal function that adds a field read to the current row when
+     * reading named columns.
+     *
+     * @param bytes Bytes holding the field.
+     * @param from Position of the first byte of the field.
+     * @param to Position after the last byte of the field.
+     */
+    private void endColumn(byte[] bytes, int from, int to) {
+
+        int at = column++;
+        int slot;
+
+        if (at < route.length) {
+            slot = route[at];
+        } else {
+            slot = project ? SKIP : at - targetWidth;
+        }
+
+        while (from < to && bytes[from] <= ' ') {
+            from++;
+        }
+
+        while (to > from && bytes[to - 1] <= ' ') {
+            to--;
+        }
+
+        if (from == to) {
+            return;
+        }
+
+        if (slot == SKIP) {
+            return;
+        }
+
+        if (slot >= 0) {
+
+            if (count + slot >= values.length) {
+                values = Arrays.copyOf(values, grow(Math.max(values.length, count + slot)));
+            }
+
+            values[count + slot] = parseValue(bytes, from, to);
+            filledFeatures++;
+
+        } else {
+
+            slot = -(slot + 2);
+
+            if (targetCount + slot >= targets.length) {
+                targets = Arrays.copyOf(targets, grow(Math.max(targets.length, targetCount + slot)));
+            }
+
+            targets[targetCount + slot] = parseValue(bytes, from, to);
+            filledTargets++;
+        }
+    }
+
+    /**
+     * Internal function that closes the current row when reading named
+     * columns.
+     */
+    private void endColumnRow() {
+
+        int inputs = filledFeatures;
+        int outputs = filledTargets;
+
+        column = 0;
+        filledFeatures = 0;
+        filledTargets = 0;
+
+        /**
+         * When every column is used the first line sets the width.
+         */
+        if (featureWidth < 0) {
+            featureWidth = inputs;
+        }
+
+        if (inputs != featureWidth || outputs != targetWidth) {
+            failed = true;
+            return;
+        }
+
+        count += featureWidth;
+        targetCount += targetWidth;
+
+        if (rows + 1 == offsets.length) {
+            offsets = Arrays.copyOf(offsets, grow(offsets.length));
+        }
+
+        offsets[++rows] = count;
+    }
+
+    /**
+     * Internal function that parses a value from the bytes of a field.
+     *
+     * @param bytes Bytes of the field.
+     * @param from Position of the first byte of the value.
+     * @param to Position after the last byte of the value.
+     * @return Value parsed.
+     */
+    private double parseValue(byte[] bytes, int from, int to) {
+
+        int x = from;
+        boolean negative = false;
+
+        if (bytes[x] == '-' || bytes[x] == '+') {
+            negative = bytes[x] == '-';
+            x++;
+        }
+
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean exact = true;
+        boolean found = false;
+
+        /**
+         * Whole part of the value.
+         */
+        for (; x < to && bytes[x] >= '0' && bytes[x] <= '9'; x++) {
+
+            found = true;
+
+            if (digits < 18) {
+
+                mantissa = mantissa * 10 + (bytes[x] - '0');
+
+                if (mantissa != 0) {
+                    digits++;
+                }
+
+            } else {
+
+                exponent++;
+                exact &= bytes[x] == '0';
+            }
+        }
+
+        /**
+         * Fraction part of the value.
+         */
+        if (x < to && bytes[x] == '.') {
+
+            for (x++; x < to && bytes[x] >= '0' && bytes[x] <= '9'; x++) {
+
+                found = true;
+
+                if (digits < 18) {
+
+                    mantissa = mantissa * 10 + (bytes[x] - '0');
+                    exponent--;
+
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+
+                } else {
+
+                    exact &= bytes[x] == '0';
+                }
+            }
+        }
+
+        /**
+         * Exponent of the value.
+         */
+        if (found && x < to && (bytes[x] == 'e' || bytes[x] == 'E')) {
+
+            x++;
+
+            boolean minus = false;
+
+            if (x < to && (bytes[x] == '-' || bytes[x] == '+')) {
+                minus = bytes[x] == '-';
+                x++;
+            }
+
+            int power = 0;
+            found = false;
+
+            for (; x < to && bytes[x] >= '0' && bytes[x] <= '9'; x++) {
+
+                found = true;
+
+                if (power < 10000) {
+                    power = power * 10 + (bytes[x] - '0');
+                }
+            }
+
+            exponent += minus ? -power : power;
+        }
+
+        if (found && x == to && exact) {
+
+            if (mantissa == 0) {
+                return negative ? -0.0 : 0.0;
+            }
+
+            /**
+             * Both the mantissa and the power of ten are exact, so a single
+             * multiply or divide rounds the same way as Double.parseDouble.
+             */
+            if (mantissa < EXACT && exponent >= -22 && exponent <= 22) {
+
+                double value = (exponent < 0)
+                        ? mantissa / POWERS[-exponent]
+                        : mantissa * POWERS[exponent];
+
+                return negative ? -value : value;
+            }
+        }
+
+        try {
+
+            return Double.parseDouble(
+                    new String(bytes, from, to - from, StandardCharsets.ISO_8859_1));
+
+        } catch (NumberFormatException ex) {
+
+            /* found error */
+            failed = true;
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Internal function that returns the next size of a growing array.
+     *
+     * @param size Current size.
+     * @return New size.
+     */
+    private static int grow(int size) {
+
+        if (size >= MAX_ARRAY) {
+            throw new OutOfMemoryError("CSV file too large");
+        }
+
+        return (int) Math.min(MAX_ARRAY, size + (size >> 1) + 16L);
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.data;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This class streams training patterns from a comma separated file, where the
+ * target values are held in the last columns of each line. The file is read
+ * again from the start for each pass, and only the lines of the piece being
+ * read are held in memory, so the file can be any size and may be appended
+ * to between passes.
+ *
+ * A pass ends early if the file can not be read or a line can not be parsed,
+ * see hasFailed.
+ */
+public final class CSVRowSource implements IRowSource {
+
+    /**
+     * Size of the buffer used to read the file.
+     */
+    private static final int CHUNK = 1 << 16;
+
+    private final File FILE;
+    private final int TARGETS;
+
+    private volatile boolean failed;
+
+    /**
+     * Constructor.
+     *
+     * @param file Path and name of file to be read.
+     * @param targets Number of target values at the end of each line.
+     */
+    public CSVRowSource(File file, int targets) {
+        this.FILE = file;
+        this.TARGETS = targets;
+    }
+
+    /**
+     * Returns true if the last pass ended early because the file could not be
+     * read or a line could not be parsed.
+     *
+     * @return True if the last pass failed.
+     */
+    @Override
+    public boolean hasFailed() {
+        return failed;
+    }
+
+    @Override
+    public Iterator<DataRow> iterator() {
+
+        failed = false;
+
+        InputStream stream;
+
+        try {
+
+            stream = new FileInputStream(FILE);
+
+        } catch (IOException ex) {
+
+            /* found error */
+            failed = true;
+            stream = null;
+        }
+
+        return new Rows(stream);
+    }
+
+    /**
+     * A single pass over the lines of the file. The file is closed once the
+     * last line has been read.
+     */
+    private final class Rows implements Iterator<DataRow> {
+
+        private final InputStream STREAM;
+        private final CSVReader READER;
+        private final byte[] BUFFER;
+
+        private ArrayDataset block;
+        private int next;
+        private boolean done;
+
+        /**
+         * Constructor.
+         *
+         * @param stream Stream of the file, null if it could not be opened.
+         */
+        private Rows(InputStream stream) {
+
+            this.STREAM = stream;
+            this.READER = new CSVReader(CHUNK / 4);
+            this.BUFFER = new byte[CHUNK];
+            this.done = (stream == null);
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            while (block == null || next == block.getRows()) {
+
+                if (done) {
+                    return false;
+                }
+
+                read();
+            }
+
+            return true;
+        }
+
+        @Override
+        public DataRow next() {
+
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            int row = next++;
+
+            double[] data = block.getValues();
+            int start = block.getOffsets()[row];
+            int split = block.getOffsets()[row + 1] - TARGETS;
+
+            return new DataRow(Arrays.copyOfRange(data, start, split),
+                    Arrays.copyOfRange(data, split, split + TARGETS));
+        }
+
+        /**
+         * Internal function that reads the next piece of the file.
+         */
+        private void read() {
+
+            next = 0;
+
+            try {
+
+                int read = STREAM.read(BUFFER);
+
+                if (read == -1) {
+
+                    block = READER.finish();
+                    stop(block == null);
+
+                } else if (READER.parse(BUFFER, 0, read)) {
+
+                    block = READER.drain();
+
+                } else {
+
+                    block = null;
+                    stop(true);
+                }
+
+            } catch (IOException ex) {
+
+                /* found error */
+                block = null;
+                stop(true);
+            }
+
+            /**
+             * Every line must hold at least one input vector as well as the
+             * targets.
+             */
+            if (block != null) {
+
+                for (int x = 0; x < block.getRows(); x++) {
+
+                    if (block.getColumns(x) <= TARGETS) {
+
+                        block = null;
+                        stop(true);
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Internal function that ends the pass and closes the file.
+         *
+         * @param error True if the pass ended on an error.
+         */
+        private void stop(boolean error) {
+
+            done = true;
+            failed |= error;
+
+            try {
+
+                STREAM.close();
+
+            } catch (IOException ex) {
+
+                /* nothing more to read */
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.data;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This class holds a single training pattern read from a row source, the
+ * input vectors and the target values expected for them.
+ */
+public final class DataRow {
+
+    private final double[] VALUES;
+    private final double[] TARGETS;
+
+    /**
+     * Constructor.
+     *
+     * @param values Input vectors of the pattern.
+     * @param targets Target values of the pattern.
+     */
+    public DataRow(double[] values, double[] targets) {
+        this.VALUES = values;
+        this.TARGETS = targets;
+    }
+
+    /**
+     * Returns the input vectors of the pattern, this is not a copy.
+     *
+     * @return Input vectors.
+     */
+    public double[] getValues() {
+        return VALUES;
+    }
+
+    /**
+     * Returns the target values of the pattern, this is not a copy.
+     *
+     * @return Target values.
+     */
+    public double[] getTargets() {
+        return TARGETS;
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This class keeps a binary copy of a comma separated file next to it, so the
+ * file is only parsed the first time it is loaded. The copy is a dataset file
+ * (see MappedDataset) named after the source with ".pfds" added, and its
+ * header records the size, last modified time and a checksum of the source.
+ * Later loads map the copy as long as all three still match the source,
+ * otherwise the source is parsed again and the copy replaced.
+ *
+ * The checksum covers the first and last megabyte of the source, so checking
+ * the copy does not mean reading the whole of a large file.
+ *
+ * Only files where every line holds the same number of values are cached.
+ */
+public final class DatasetCache {
+
+    /**
+     * Ending added to the name of the source for the cached copy.
+     */
+    public static final String SUFFIX = ".pfds";
+
+    /**
+     * Bytes at each end of the source covered by the checksum.
+     */
+    private static final int SAMPLE = 1 << 20;
+
+    /**
+     * Private constructor, this class only holds static functions.
+     */
+    private DatasetCache() {
+    }
+
+    /**
+     * This will load a comma separated file, from its cached copy if the copy
+     * is still valid.
+     *
+     * @param file Path and name of file to be loaded.
+     * @param threads Number of threads to parse with if the file is parsed.
+     * @return Dataset loaded, or null if the file could not be read.
+     */
+    public static IDataset load(File file, int threads) {
+
+        long[] stamp = getStamp(file);
+
+        if (stamp == null) {
+
+            /**
+             * File does not exist or can not be read.
+             */
+            return null;
+        }
+
+        File cache = getCacheFile(file);
+
+        if (cache.isFile()) {
+
+            MappedDataset mapped = MappedDataset.map(cache);
+
+            if (mapped != null && Arrays.equals(mapped.getHeaderData(), stamp)) {
+                return mapped;
+            }
+        }
+
+        ArrayDataset data = CSVReader.read(file, threads);
+
+        if (data != null) {
+            save(cache, data, stamp);
+        }
+
+        return data;
+    }
+
+    /**
+     * Returns the cached copy of a comma separated file.
+     *
+     * @param file Path and name of the source file.
+     * @return Path and name of the cached copy.
+     */
+    public static File getCacheFile(File file) {
+        return new File(file.getPath() + SUFFIX);
+    }
+
+    /**
+     * Internal function that writes the cached copy. The copy is written to a
+     * temporary file first and then moved into place, so another process
+     * never maps half a copy. A copy that can not be written is skipped.
+     *
+     * @param cache Path and name of the cached copy.
+     * @param data Dataset parsed from the source.
+     * @param stamp Size, time and checksum of the source.
+     */
+    private static void save(File cache, ArrayDataset data, long[] stamp) {
+
+        File temp = null;
+
+        try {
+
+            File folder = cache.getAbsoluteFile().getParentFile();
+            temp = File.createTempFile(cache.getName(), ".tmp", folder);
+
+            if (MappedDataset.write(temp, data, stamp)) {
+
+                Files.move(temp.toPath(), cache.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+
+        } catch (IOException | SecurityException ex) {
+
+            /* the data is still returned without a copy */
+
+        } finally {
+
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Internal function that identifies the contents of a file by its size,
+     * last modified time and a checksum of both ends.
+     *
+     * @param file Path and name of file.
+     * @return Size, time and checksum, or null if the file can not be read.
+     */
+    private static long[] getStamp(File file) {
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            long size = channel.size();
+            long time = Files.getLastModifiedTime(file.toPath()).toMillis();
+
+            CRC32 crc = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocate(SAMPLE);
+
+            update(crc, channel, buffer, 0);
+
+            if (size > SAMPLE) {
+                update(crc, channel, buffer, Math.max(SAMPLE, size - SAMPLE));
+            }
+
+            return new long[]{size, time, crc.getValue()};
+
+        } catch (IOException | SecurityException ex) {
+
+            return null;
+        }
+    }
+
+    /**
+     * Internal function that adds a piece of the file to the checksum.
+     *
+     * @param crc Checksum to be updated.
+     * @param channel Channel of the file.
+     * @param buffer Buffer the size of the piece.
+     * @param position Position of the piece in the file.
+     * @throws IOException If the file can not be read.
+     */
+    private static void update(CRC32 crc, FileChannel channel, ByteBuffer buffer,
+            long position) throws IOException {
+
+        buffer.clear();
+
+        while (buffer.hasRemaining()) {
+
+            int read = channel.read(buffer, position + buffer.position());
+
+            if (read < 0) {
+                break;
+            }
+        }
+
+        crc.update(buffer.array(), 0, buffer.position());
+    }
+}
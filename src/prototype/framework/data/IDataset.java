@@ -0,0 +1,87 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.data;
+
+import java.nio.DoubleBuffer;
+import java.util.Map;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * The interface for a dataset of rows of double values that can be read by
+ * position, without the whole dataset being held as a map of arrays.
+ */
+public interface IDataset {
+
+    /**
+     * Returns the number of rows in the dataset.
+     *
+     * @return Number of rows.
+     */
+    int getRows();
+
+    /**
+     * Returns the number of values held in a row.
+     *
+     * @param row Position of the row, from 0.
+     * @return Number of values in the row.
+     */
+    int getColumns(int row);
+
+    /**
+     * Returns the number of values held in every row.
+     *
+     * @return Number of values in each row, or -1 if the rows differ in size.
+     */
+    int getWidth();
+
+    /**
+     * Returns a single value of the dataset.
+     *
+     * @param row Position of the row, from 0.
+     * @param column Position of the value within the row, from 0.
+     * @return Value held.
+     */
+    double getValue(int row, int column);
+
+    /**
+     * Copies a row of the dataset into the buffer given. A new array is
+     * returned if the buffer is null or does not match the size of the row.
+     *
+     * @param row Position of the row, from 0.
+     * @param buffer Array to be filled, may be null.
+     * @return Values of the row.
+     */
+    double[] getRow(int row, double[] buffer);
+
+    /**
+     * Returns a read only view of a row, nothing is copied. The view stays
+     * valid for as long as the dataset does.
+     *
+     * @param row Position of the row, from 0.
+     * @return Values of the row.
+     */
+    DoubleBuffer getRowBuffer(int row);
+
+    /**
+     * Returns the dataset as a Map of rows keyed by position, as used by the
+     * rest of the framework.
+     *
+     * @return Map of data.
+     */
+    Map<Integer, double[]> toMap();
+}
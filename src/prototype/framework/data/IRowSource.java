@@ -0,0 +1,36 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.data;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * The interface for a source of training patterns that are read one after the
+ * other rather than held in memory, such as rows streamed from a file. Each
+ * call to iterator starts a new pass over the rows, so the source can be read
+ * once per training epoch.
+ */
+public interface IRowSource extends Iterable<DataRow> {
+
+    /**
+     * Returns true if the last pass ended early because the rows could not be
+     * read, so the pass did not cover the whole source.
+     *
+     * @return True if the last pass failed.
+     */
+    boolean hasFailed();
+}
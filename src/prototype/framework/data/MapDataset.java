@@ -0,0 +1,119 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.data;
+
+import java.nio.DoubleBuffer;
+import java.util.Map;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This class presents a Map of rows keyed by pattern number as a dataset. The
+ * rows are referenced, not copied, so changes to the arrays are seen by both.
+ * Rows missing from the map are held as empty rows.
+ */
+public final class MapDataset implements IDataset {
+
+    private static final double[] EMPTY = new double[0];
+
+    private final Map<Integer, double[]> DATA;
+    private final double[][] ROWS;
+
+    /**
+     * Constructor.
+     *
+     * @param data Map of rows keyed from 0.
+     */
+    public MapDataset(Map<Integer, double[]> data) {
+
+        this.DATA = data;
+        this.ROWS = new double[data.size()][];
+
+        /**
+         * Take the rows out of the map once, so that no keys are boxed when
+         * reading them.
+         */
+        for (int row = 0; row < ROWS.length; row++) {
+
+            double[] value = data.get(row);
+            ROWS[row] = (value == null) ? EMPTY : value;
+        }
+    }
+
+    @Override
+    public int getRows() {
+        return ROWS.length;
+    }
+
+    @Override
+    public int getColumns(int row) {
+        return ROWS[row].length;
+    }
+
+    @Override
+    public int getWidth() {
+
+        int size = (ROWS.length == 0) ? 0 : ROWS[0].length;
+
+        for (int x = 1; x < ROWS.length; x++) {
+            if (ROWS[x].length != size) {
+                return -1;
+            }
+        }
+
+        return size;
+    }
+
+    @Override
+    public double getValue(int row, int column) {
+        return ROWS[row][column];
+    }
+
+    @Override
+    public double[] getRow(int row, double[] buffer) {
+
+        double[] value = ROWS[row];
+
+        if (buffer == null || buffer.length != value.length) {
+            buffer = new double[value.length];
+        }
+
+        System.arraycopy(value, 0, buffer, 0, value.length);
+
+        return buffer;
+    }
+
+    @Override
+    public DoubleBuffer getRowBuffer(int row) {
+        return DoubleBuffer.wrap(ROWS[row]).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the array holding a row, this is not a copy.
+     *
+     * @param row Position of the row, from 0.
+     * @return Values of the row.
+     */
+    public double[] getRowArray(int row) {
+        return ROWS[row];
+    }
+
+    @Override
+    public Map<Integer, double[]> toMap() {
+        return DATA;
+    }
+}
@@ -0,0 +1,379 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This class serves a dataset from a memory mapped binary file, so rows are
+ * read from the file as they are needed rather than held on the heap. This
+ * allows training on datasets larger than memory, and the operating system
+ * shares the pages between every process mapping the same file. All values
+ * are little-endian and the layout is:
+ *
+ * magic "PFDS", int version, int size of the header in bytes, int number of
+ * columns, long number of rows, any longs of header data given by the
+ * writer, then the values of every row one row after the other as doubles.
+ * Every row holds the same number of columns.
+ */
+public final class MappedDataset implements IDataset {
+
+    /**
+     * First bytes of every binary dataset file.
+     */
+    public static final byte[] MAGIC = {'P', 'F', 'D', 'S'};
+
+    /**
+     * Version of the format written.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Size of the header written.
+     */
+    private static final int HEADER = 24;
+
+    /**
+     * Size of the buffer used to stream rows to the file.
+     */
+    private static final int CHUNK = 1 << 16;
+
+    private final int ROWS;
+    private final int COLUMNS;
+
+    /**
+     * A single mapping can not be larger than 2 GB, so large files are mapped
+     * in segments of whole rows.
+     */
+    private final int SEGMENT;
+    private final DoubleBuffer[] BUFFERS;
+
+    private final long[] DATA;
+
+    /**
+     * Constructor.
+     *
+     * @param rows Number of rows.
+     * @param columns Number of values in each row.
+     * @param segment Number of rows in each mapping.
+     * @param buffers Mapped values of each segment.
+     * @param data Header data given by the writer.
+     */
+    private MappedDataset(int rows, int columns, int segment, DoubleBuffer[] buffers,
+            long[] data) {
+        this.ROWS = rows;
+        this.COLUMNS = columns;
+        this.SEGMENT = segment;
+        this.BUFFERS = buffers;
+        this.DATA = data;
+    }
+
+    @Override
+    public int getRows() {
+        return ROWS;
+    }
+
+    @Override
+    public int getColumns(int row) {
+        return COLUMNS;
+    }
+
+    @Override
+    public int getWidth() {
+        return COLUMNS;
+    }
+
+    @Override
+    public double getValue(int row, int column) {
+        return BUFFERS[row / SEGMENT].get(((row % SEGMENT) * COLUMNS) + column);
+    }
+
+    @Override
+    public double[] getRow(int row, double[] buffer) {
+
+        if (buffer == null || buffer.length != COLUMNS) {
+            buffer = new double[COLUMNS];
+        }
+
+        DoubleBuffer values = BUFFERS[row / SEGMENT];
+        int start = (row % SEGMENT) * COLUMNS;
+
+        for (int x = 0; x < COLUMNS; x++) {
+            buffer[x] = values.get(start + x);
+        }
+
+        return buffer;
+    }
+
+    @Override
+    public DoubleBuffer getRowBuffer(int row) {
+
+        DoubleBuffer values = BUFFERS[row / SEGMENT].duplicate();
+        int start = (row % SEGMENT) * COLUMNS;
+
+        values.limit(start + COLUMNS);
+        values.position(start);
+
+        return values.slice();
+    }
+
+    /**
+     * Returns the header data given when the file was written.
+     *
+     * @return Header data, empty if none was given.
+     */
+    public long[] getHeaderData() {
+        return DATA.clone();
+    }
+
+    @Override
+    public Map<Integer, double[]> toMap() {
+
+        Map<Integer, double[]> data = new HashMap<>(Math.max(16, (int) (ROWS / 0.75f) + 1));
+
+        for (int x = 0; x < ROWS; x++) {
+            data.put(x, getRow(x, null));
+        }
+
+        return data;
+    }
+
+    /**
+     * Returns true if the file starts with the magic bytes of the binary
+     * dataset format.
+     *
+     * @param file Path and name of file.
+     * @return True if the file is a binary dataset file.
+     */
+    public static boolean isDatasetFile(File file) {
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                /**
+                 * Keep reading until the magic bytes are in.
+                 */
+            }
+
+            return !magic.hasRemaining() && Arrays.equals(magic.array(), MAGIC);
+
+        } catch (IOException | SecurityException ex) {
+
+            return false;
+        }
+    }
+
+    /**
+     * This will map a binary dataset file into memory read only.
+     *
+     * @param file Path and name of file to be loaded.
+     * @return The dataset, or null if the file could not be mapped.
+     */
+    public static MappedDataset map(File file) {
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            ByteBuffer head = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, head);
+            head.flip();
+
+            byte[] magic = new byte[MAGIC.length];
+            head.get(magic);
+
+            if (!Arrays.equals(magic, MAGIC) || head.getInt() != VERSION) {
+                return null;
+            }
+
+            int header = head.getInt();
+            int columns = head.getInt();
+            long rows = head.getLong();
+
+            if (header < HEADER || (header % Double.BYTES) != 0 || columns < 1
+                    || rows < 0 || rows > Integer.MAX_VALUE
+                    || channel.size() != header + (rows * columns * Double.BYTES)) {
+                return null;
+            }
+
+            ByteBuffer extra = ByteBuffer.allocate(header - HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, extra);
+            extra.flip();
+
+            long[] data = new long[extra.remaining() / Long.BYTES];
+
+            for (int x = 0; x < data.length; x++) {
+                data[x] = extra.getLong();
+            }
+
+            /**
+             * The mapping stays valid once the channel has been closed.
+             */
+            int segment = (int) Math.max(1, Math.min(rows,
+                    Integer.MAX_VALUE / ((long) columns * Double.BYTES)));
+
+            DoubleBuffer[] buffers = new DoubleBuffer[(int) ((rows + segment - 1) / segment)];
+            long position = header;
+
+            for (int x = 0; x < buffers.length; x++) {
+
+                long size = Math.min(segment, rows - ((long) x * segment))
+                        * columns * Double.BYTES;
+
+                buffers[x] = channel.map(FileChannel.MapMode.READ_ONLY, position, size)
+                        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+
+                position += size;
+            }
+
+            return new MappedDataset((int) rows, columns, segment, buffers, data);
+
+        } catch (IOException | RuntimeException ex) {
+
+            return null;
+        }
+    }
+
+    /**
+     * This will write a dataset to a binary dataset file, ready to be mapped.
+     * Every row of the dataset must hold the same number of values.
+     *
+     * @param file Path and name of file to be saved.
+     * @param data Dataset to be saved.
+     * @return True if the file was written.
+     */
+    public static boolean write(File file, IDataset data) {
+
+        return write(file, data, new long[0]);
+    }
+
+    /**
+     * This will write a dataset to a binary dataset file with header data,
+     * such as details of the file the dataset was read from, that is handed
+     * back by getHeaderData when the file is mapped.
+     *
+     * @param file Path and name of file to be saved.
+     * @param data Dataset to be saved.
+     * @param extra Header data to be saved.
+     * @return True if the file was written.
+     */
+    public static boolean write(File file, IDataset data, long[] extra) {
+
+        int rows = data.getRows();
+        int columns = (rows == 0) ? 0 : data.getColumns(0);
+
+        if (columns < 1) {
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            int header = HEADER + (extra.length * Long.BYTES);
+
+            ByteBuffer head = ByteBuffer.allocate(header).order(ByteOrder.LITTLE_ENDIAN);
+            head.put(MAGIC);
+            head.putInt(VERSION);
+            head.putInt(header);
+            head.putInt(columns);
+            head.putLong(rows);
+
+            for (int x = 0; x < extra.length; x++) {
+                head.putLong(extra[x]);
+            }
+
+            head.flip();
+            writeFully(channel, head);
+
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+            double[] row = null;
+
+            for (int x = 0; x < rows; x++) {
+
+                if (data.getColumns(x) != columns) {
+                    return false;
+                }
+
+                row = data.getRow(x, row);
+
+                for (int y = 0; y < columns; y++) {
+
+                    if (buffer.remaining() < Double.BYTES) {
+                        buffer.flip();
+                        writeFully(channel, buffer);
+                        buffer.clear();
+                    }
+
+                    buffer.putDouble(row[y]);
+                }
+            }
+
+            buffer.flip();
+            writeFully(channel, buffer);
+
+            return true;
+
+        } catch (IOException | RuntimeException ex) {
+
+            return false;
+        }
+    }
+
+    /**
+     * Reads until the buffer is full.
+     *
+     * @param channel Channel to read from.
+     * @param buffer Buffer to fill.
+     * @throws IOException If the end of the file is reached first.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer)
+            throws IOException {
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    /**
+     * Writes the whole buffer.
+     *
+     * @param channel Channel to write to.
+     * @param buffer Buffer to write.
+     * @throws IOException If the file can not be written.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer)
+            throws IOException {
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
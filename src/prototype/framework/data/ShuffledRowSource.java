@@ -0,0 +1,107 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.data;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This class shuffles the rows of another row source within a bounded window.
+ * The first rows read fill the window, then each row read takes the place of
+ * a row picked at random from the window, which is handed out. Only the
+ * window is held in memory, so rows can be shuffled without indexing the
+ * whole source. Rows further apart than the window keep their rough order.
+ */
+public final class ShuffledRowSource implements IRowSource {
+
+    private final IRowSource SOURCE;
+    private final int WINDOW;
+
+    /**
+     * Constructor.
+     *
+     * @param source Row source to be shuffled.
+     * @param window Number of rows held to shuffle from.
+     */
+    public ShuffledRowSource(IRowSource source, int window) {
+        this.SOURCE = source;
+        this.WINDOW = Math.max(1, window);
+    }
+
+    /**
+     * Returns true if the last pass over the source shuffled ended early.
+     *
+     * @return True if the last pass failed.
+     */
+    @Override
+    public boolean hasFailed() {
+        return SOURCE.hasFailed();
+    }
+
+    @Override
+    public Iterator<DataRow> iterator() {
+
+        final Iterator<DataRow> rows = SOURCE.iterator();
+        final Random rnd = ThreadLocalRandom.current();
+
+        return new Iterator<DataRow>() {
+
+            private final DataRow[] BUFFER = new DataRow[WINDOW];
+            private int size;
+
+            @Override
+            public boolean hasNext() {
+                return size > 0 || rows.hasNext();
+            }
+
+            @Override
+            public DataRow next() {
+
+                /**
+                 * Fill the window before handing out the first row.
+                 */
+                while (size < WINDOW && rows.hasNext()) {
+                    BUFFER[size++] = rows.next();
+                }
+
+                if (size == 0) {
+                    throw new NoSuchElementException();
+                }
+
+                int index = rnd.nextInt(size);
+                DataRow row = BUFFER[index];
+
+                /**
+                 * Put the next row in its place, or close the gap once the
+                 * source has run out.
+                 */
+                if (rows.hasNext()) {
+                    BUFFER[index] = rows.next();
+                } else {
+                    BUFFER[index] = BUFFER[--size];
+                    BUFFER[size] = null;
+                }
+
+                return row;
+            }
+        };
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.data;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This class holds a dataset whose values are mostly zero in compressed sparse
+ * rows: only the values that are not zero are kept, one row after the other,
+ * with the position of each value within its row and the start of every row
+ * recorded as an offset. Every row stands for the same number of values.
+ *
+ * Read as an IDataset every row is expanded to its full width. Training and
+ * feed forward take each row as a SparseVector instead, see getVector, so the
+ * zero values are never touched.
+ */
+public final class SparseDataset implements IDataset {
+
+    private final int WIDTH;
+    private final int[] OFFSETS;
+    private final int[] INDICES;
+    private final double[] VALUES;
+
+    /**
+     * Constructor.
+     *
+     * @param width Number of values each row stands for.
+     * @param offsets Start of each row in indices and values, with one extra
+     * entry holding the end of the last row.
+     * @param indices Position of each value within its row, ascending within
+     * each row.
+     * @param values Values that are not zero, one row after the other.
+     */
+    public SparseDataset(int width, int[] offsets, int[] indices, double[] values) {
+        this.WIDTH = width;
+        this.OFFSETS = offsets;
+        this.INDICES = indices;
+        this.VALUES = values;
+    }
+
+    /**
+     * Constructor that keeps the values of a dataset that are not zero. Every
+     * row must hold the same number of values.
+     *
+     * @param data Dataset to be compressed.
+     */
+    public SparseDataset(IDataset data) {
+
+        int rows = data.getRows();
+        int count = 0;
+
+        for (int row = 0; row < rows; row++) {
+            for (int x = 0; x < data.getColumns(row); x++) {
+                if (data.getValue(row, x) != 0) {
+                    count++;
+                }
+            }
+        }
+
+        this.WIDTH = Math.max(0, data.getWidth());
+        this.OFFSETS = new int[rows + 1];
+        this.INDICES = new int[count];
+        this.VALUES = new double[count];
+
+        int pos = 0;
+
+        for (int row = 0; row < rows; row++) {
+
+            for (int x = 0; x < data.getColumns(row); x++) {
+
+                double value = data.getValue(row, x);
+
+                if (value != 0) {
+                    INDICES[pos] = x;
+                    VALUES[pos++] = value;
+                }
+            }
+
+            OFFSETS[row + 1] = pos;
+        }
+    }
+
+    @Override
+    public int getRows() {
+        return OFFSETS.length - 1;
+    }
+
+    @Override
+    public int getColumns(int row) {
+        return WIDTH;
+    }
+
+    @Override
+    public int getWidth() {
+        return WIDTH;
+    }
+
+    @Override
+    public double getValue(int row, int column) {
+
+        int pos = Arrays.binarySearch(INDICES, OFFSETS[row], OFFSETS[row + 1], column);
+
+        return (pos < 0) ? 0 : VALUES[pos];
+    }
+
+    @Override
+    public double[] getRow(int row, double[] buffer) {
+
+        return getVector(row).toArray(buffer);
+    }
+
+    /**
+     * Returns a read only copy of a row expanded to its full width, a sparse
+     * row holds no dense values to be viewed.
+     *
+     * @param row Position of the row, from 0.
+     * @return Values of the row.
+     */
+    @Override
+    public DoubleBuffer getRowBuffer(int row) {
+
+        return DoubleBuffer.wrap(getRow(row, null)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a row as a sparse vector, a view of the arrays of the dataset.
+     *
+     * @param row Position of the row, from 0.
+     * @return Values of the row that are not zero.
+     */
+    public SparseVector getVector(int row) {
+
+        return new SparseVector(WIDTH, INDICES, VALUES, OFFSETS[row],
+                OFFSETS[row + 1] - OFFSETS[row]);
+    }
+
+    /**
+     * Returns the number of values held in a row, those that are not zero.
+     *
+     * @param row Position of the row, from 0.
+     * @return Number of values held.
+     */
+    public int getCount(int row) {
+        return OFFSETS[row + 1] - OFFSETS[row];
+    }
+
+    @Override
+    public Map<Integer, double[]> toMap() {
+
+        int rows = getRows();
+        Map<Integer, double[]> data = new HashMap<>(Math.max(16, (int) (rows / 0.75f) + 1));
+
+        for (int x = 0; x < rows; x++) {
+            data.put(x, getRow(x, null));
+        }
+
+        return data;
+    }
+}
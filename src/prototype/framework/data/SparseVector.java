@@ -0,0 +1,159 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.data;
+
+import java.util.Arrays;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This class holds a pattern of input vectors that are mostly zero as the
+ * position and value of each vector that is not zero. Positions count the
+ * input neurons that are not bias, as the vectors of a dense pattern do, and
+ * must be in ascending order. The arrays given are not copied, so a vector
+ * can be a view of one row of a SparseDataset.
+ */
+public final class SparseVector {
+
+    private final int SIZE;
+    private final int[] INDICES;
+    private final double[] VALUES;
+    private final int OFFSET;
+    private final int COUNT;
+
+    /**
+     * Constructor.
+     *
+     * @param size Number of vectors in the dense pattern.
+     * @param indices Position of each vector that is not zero, ascending.
+     * @param values Value of each vector that is not zero.
+     */
+    public SparseVector(int size, int[] indices, double[] values) {
+
+        this(size, indices, values, 0, Math.min(indices.length, values.length));
+    }
+
+    /**
+     * Constructor for a vector held within larger arrays.
+     *
+     * @param size Number of vectors in the dense pattern.
+     * @param indices Position of each vector that is not zero, ascending.
+     * @param values Value of each vector that is not zero.
+     * @param offset Position of the first entry in the arrays.
+     * @param count Number of entries.
+     */
+    public SparseVector(int size, int[] indices, double[] values, int offset,
+            int count) {
+
+        this.SIZE = size;
+        this.INDICES = indices;
+        this.VALUES = values;
+        this.OFFSET = offset;
+        this.COUNT = count;
+    }
+
+    /**
+     * Returns the number of vectors in the dense pattern.
+     *
+     * @return Size of the pattern.
+     */
+    public int getSize() {
+        return SIZE;
+    }
+
+    /**
+     * Returns the number of vectors held, those that are not zero.
+     *
+     * @return Number of entries.
+     */
+    public int getCount() {
+        return COUNT;
+    }
+
+    /**
+     * Returns the position of an entry in the dense pattern.
+     *
+     * @param entry Entry, from 0.
+     * @return Position of the vector.
+     */
+    public int getIndex(int entry) {
+        return INDICES[OFFSET + entry];
+    }
+
+    /**
+     * Returns the value of an entry.
+     *
+     * @param entry Entry, from 0.
+     * @return Value of the vector.
+     */
+    public double getValue(int entry) {
+        return VALUES[OFFSET + entry];
+    }
+
+    /**
+     * Returns true if the positions of the vector are ascending and each is
+     * below the number of inputs given, such as the input neurons of a network
+     * that take vectors.
+     *
+     * @param inputs Number of inputs the vector is passed to.
+     * @return True if the vector fits.
+     */
+    public boolean fits(int inputs) {
+
+        int last = -1;
+
+        for (int x = 0; x < COUNT; x++) {
+
+            int index = INDICES[OFFSET + x];
+
+            if (index <= last || index >= inputs) {
+                return false;
+            }
+
+            last = index;
+        }
+
+        return true;
+    }
+
+    /**
+     * Copies the vector into a dense pattern. A new array is returned if the
+     * buffer is null or does not match the size of the pattern.
+     *
+     * @param buffer Array to be filled, may be null.
+     * @return Dense pattern, zero wherever no value is held.
+     */
+    public double[] toArray(double[] buffer) {
+
+        if (buffer == null || buffer.length != SIZE) {
+            buffer = new double[SIZE];
+        } else {
+            Arrays.fill(buffer, 0);
+        }
+
+        for (int x = 0; x < COUNT; x++) {
+
+            int index = INDICES[OFFSET + x];
+
+            if (index >= 0 && index < SIZE) {
+                buffer[index] = VALUES[OFFSET + x];
+            }
+        }
+
+        return buffer;
+    }
+}
@@ -16,6 +16,7 @@
 package prototype.framework.factory;
 
 import prototype.framework.base.component.Neuron;
+import prototype.framework.base.component.Precision;
 
 /**
  *
@@ -34,4 +35,13 @@ public interface INeuron {
 
     /* Returns an Output Neuron */
     Neuron OutputNeuron(int connections);
+
+    /* Returns an Input Neuron held at the precision given */
+    Neuron InputNeuron(Precision precision);
+
+    /* Returns a Hidden Neuron held at the precision given */
+    Neuron HiddenNeuron(int connections, Precision precision);
+
+    /* Returns an Output Neuron held at the precision given */
+    Neuron OutputNeuron(int connections, Precision precision);
 }
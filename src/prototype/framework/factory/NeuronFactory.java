@@ -19,6 +19,7 @@ import prototype.framework.components.HiddenNeuron;
 import prototype.framework.components.InputNeuron;
 import prototype.framework.components.OutputNeuron;
 import prototype.framework.base.component.Neuron;
+import prototype.framework.base.component.Precision;
 
 /**
  *
@@ -64,4 +65,42 @@ public class NeuronFactory implements INeuron {
         return new OutputNeuron(connections);
     }
 
+    /**
+     * This creates a Input Neuron held at the precision given.
+     *
+     * @param precision Precision of the input and weight.
+     * @return Input Neuron
+     */
+    @Override
+    public Neuron InputNeuron(Precision precision) {
+
+        return new InputNeuron(precision);
+    }
+
+    /**
+     * This creates a Hidden Neuron held at the precision given.
+     *
+     * @param connections Number of connections to layer above
+     * @param precision Precision of the inputs and weights.
+     * @return Hidden Neuron
+     */
+    @Override
+    public Neuron HiddenNeuron(int connections, Precision precision) {
+
+        return new HiddenNeuron(connections, precision);
+    }
+
+    /**
+     * Return new Output Neuron held at the precision given.
+     *
+     * @param connections Number of connections to layer above
+     * @param precision Precision of the inputs and weights.
+     * @return Output Neuron
+     */
+    @Override
+    public Neuron OutputNeuron(int connections, Precision precision) {
+
+        return new OutputNeuron(connections, precision);
+    }
+
 }
@@ -15,9 +15,11 @@
  */
 package prototype.framework.processing;
 
+import java.util.Arrays;
 import java.util.Map;
 import javax.swing.event.EventListenerList;
 
+import prototype.framework.util.NetworkUtil;
 import prototype.framework.util.NeuronUtil;
 
 /**
@@ -36,6 +38,25 @@ public class BackPropagation implements IProcessingEvent {
      */
     final protected EventListenerList listenerList;
 
+    /**
+     * Debug information is only built and broadcast when tracing has been
+     * enabled and someone is listening. This is checked once per pass.
+     */
+    private boolean traceEnabled;
+    private boolean trace;
+
+    /**
+     * Neuron names, the table of neurons looked up from the map and scratch
+     * buffers are sized from the matrix once and reused on every pass, so a
+     * pass does not allocate.
+     */
+    private int[] namesMatrix;
+    private String[][] names;
+    private Object[][] table;
+    private double[] delta;
+    private double[][] neuronOutput;
+    private double[][] neuronWeight;
+
     /* Constructor.*/
     public BackPropagation() {
         
@@ -60,6 +81,25 @@ public class BackPropagation implements IProcessingEvent {
         listenerList.remove(IProcessingEvent.class, listener);
     }
 
+    /**
+     * Enable or disable the broadcast of debug information. When disabled no
+     * debug messages are built while processing.
+     *
+     * @param enabled True to broadcast debug information.
+     */
+    public void setTraceEnabled(boolean enabled) {
+        this.traceEnabled = enabled;
+    }
+
+    /**
+     * Returns true if debug information is broadcast.
+     *
+     * @return True if tracing is enabled.
+     */
+    public boolean isTraceEnabled() {
+        return this.traceEnabled;
+    }
+
     /**
      * broadcast debug info event to listeners
      *
@@ -136,17 +176,104 @@ public class BackPropagation implements IProcessingEvent {
     public double[] start(int matrix[], double[] target,
             Map<String, Object> network, double learningRate, double momentum) {
 
+        /**
+         * Hand back a copy, as the caller may hold on to the result.
+         */
+        return propagate(matrix, target, network, learningRate, momentum).clone();
+    }
+
+    /**
+     * Start the back propagation on a table of neurons indexed by layer and
+     * position and return the calculated error.
+     *
+     * @param matrix Matrix of Neural Network.
+     * @param target Expected Target Values
+     * @param layers Neurons of each layer, see NetworkUtil.getNeuronTable.
+     * @param learningRate Learning Rate of Network.
+     * @param momentum Moment rate used in training the network.
+     * @return Returns the calculated Error for the Network.
+     */
+    public double[] start(int matrix[], double[] target,
+            Object[][] layers, double learningRate, double momentum) {
+
+        /**
+         * Hand back a copy, as the caller may hold on to the result.
+         */
+        return propagate(matrix, target, layers, learningRate, momentum).clone();
+    }
+
+    /**
+     * Run the back propagation without allocating. The returned array of
+     * errors is reused by this instance and is only valid until the next
+     * pass.
+     *
+     * @param matrix Matrix of Neural Network.
+     * @param target Expected Target Values
+     * @param network Map of neural network.
+     * @param learningRate Learning Rate of Network.
+     * @param momentum Moment rate used in training the network.
+     * @return Returns the calculated Error for the Network.
+     */
+    public double[] propagate(int matrix[], double[] target,
+            Map<String, Object> network, double learningRate, double momentum) {
+
+        /**
+         * Names and buffers only need to be rebuilt if the matrix has changed.
+         */
+        if (!Arrays.equals(namesMatrix, matrix)) {
+            allocate(matrix);
+        }
+
+        /**
+         * Look each neuron up once, the map may have changed since the last
+         * pass.
+         */
+        table = NetworkUtil.getNeuronTable(names, network, table);
+
+        return propagate(matrix, target, table, learningRate, momentum);
+    }
+
+    /**
+     * Run the back propagation on a table of neurons without allocating. The
+     * returned array of errors is reused by this instance and is only valid
+     * until the next pass.
+     *
+     * @param matrix Matrix of Neural Network.
+     * @param target Expected Target Values
+     * @param network Neurons of each layer, see NetworkUtil.getNeuronTable.
+     * @param learningRate Learning Rate of Network.
+     * @param momentum Moment rate used in training the network.
+     * @return Returns the calculated Error for the Network.
+     */
+    public double[] propagate(int matrix[], double[] target,
+            Object[][] network, double learningRate, double momentum) {
+
+        /**
+         * Only trace this pass if enabled and someone is listening.
+         */
+        trace = traceEnabled && listenerList.getListenerCount() > 0;
+
+        /**
+         * Buffers only need to be rebuilt if the matrix has changed.
+         */
+        if (!Arrays.equals(namesMatrix, matrix)) {
+            allocate(matrix);
+        }
+
         /**
          * Will push this info to whoever is listening on the debugInfo channel.
          */
-        debugInfo("*** Back Propagation Start ***");
+        if (trace) {
+            debugInfo("*** Back Propagation Start ***");
+        }
         
         double[] outputError = null;
 
         /**
          * Now we are working backwards from output neurons to input neurons.
+         * The input layer has no weights to update, so it is not visited.
          */
-        for (int layers = (matrix.length - 1); layers > -1; layers--) {
+        for (int layers = (matrix.length - 1); layers > 0; layers--) {
             
             if (layers == (matrix.length - 1)) {
 
@@ -177,7 +304,9 @@ public class BackPropagation implements IProcessingEvent {
         /**
          * Will push this info to whoever is listening on the debugInfo channel.
          */
-        debugInfo("*** Back Propagation End ***");
+        if (trace) {
+            debugInfo("*** Back Propagation End ***");
+        }
         
         return outputError;
     }
@@ -189,48 +318,55 @@ public class BackPropagation implements IProcessingEvent {
      * @param matrix Contains an array of the network matrix.
      * @param layers The current layer of the network we are dealing with.
      * @param target An array of target values.
-     * @param network Map of the neural network containing all objects.
+     * @param network Neurons of each layer of the network.
      * @param learningRate The defined learning rate used to train the network.
      * @param momentum The defined momentum rate of the neural network.
      */
     private double[] updateOutputLayer(int matrix[], int layers, double target[],
-            Map<String, Object> network, double learningRate, double momentum) {
-        
-        double delta[] = new double[matrix[layers]];
+            Object[][] network, double learningRate, double momentum) {
         
+        /**
+         * Clear errors left from the previous pass.
+         */
+        Arrays.fill(delta, 0);
+
         for (int neurons = 0; neurons < matrix[layers]; neurons++) {
 
             /**
-             * Get neuron name in output layer.
+             * Get neuron in output layer.
              */
-            String name = "c-" + (neurons + 1);
-            if (network.get(name) != null) {
+            Object neuron = network[layers][neurons];
+            if (neuron != null) {
 
                 /**
                  * Get the delta value for the output layer.
                  */
-                delta[neurons] = NeuronUtil.calculateNeuronError(network.get(name), target[neurons]);
+                delta[neurons] = NeuronUtil.calculateNeuronError(neuron, target[neurons]);
 
                 /**
                  * Will push this info to whoever is listening on the debugInfo
                  * channel.
                  */
-                debugInfo("Calculated error for neuron "
-                        + NeuronUtil.getNeuronName(network.get(name))
-                        + " is {" + delta[neurons] + "}");
+                if (trace) {
+                    debugInfo("Calculated error for neuron "
+                            + NeuronUtil.getNeuronName(neuron)
+                            + " is {" + delta[neurons] + "}");
+                }
 
                 /**
                  * Update weights for neuron.
                  */
                 NeuronUtil.updateNeuronWeights(
-                        network.get(name), target[neurons], learningRate, momentum);
+                        neuron, target[neurons], learningRate, momentum);
 
                 /**
                  * Will push this info to whoever is listening on the debugInfo
                  * channel.
                  */
-                debugInfo("Updating all weights on neuron "
-                        + NeuronUtil.getNeuronName(network.get(name)));
+                if (trace) {
+                    debugInfo("Updating all weights on neuron "
+                            + NeuronUtil.getNeuronName(neuron));
+                }
             }
         }
         
@@ -265,59 +401,70 @@ public class BackPropagation implements IProcessingEvent {
      * @param matrix Contains an array of the network matrix.
      * @param layers The current layer of the network we are dealing with.
      * @param target An array of target values.
-     * @param network Map of the neural network containing all objects.
+     * @param network Neurons of each layer of the network.
      * @param learningRate The defined learning rate used to train the network.
      * @param momentum The defined momentum rate of the neural network. private
      */
     double updateOutputToHiddenLayer(int matrix[], int layers,
-            Map<String, Object> network, double learningRate, double target[], double momentum) {
+            Object[][] network, double learningRate, double target[], double momentum) {
         
         double error = 0;
         
-        double neuronOutput[] = new double[matrix[layers + 1]];
-        double neuronWeight[] = new double[matrix[layers + 1]];
+        double output[] = neuronOutput[layers];
+        double weight[] = neuronWeight[layers];
+
+        /**
+         * Clear values left from the previous pass, bias neurons are skipped
+         * and must read as zero.
+         */
+        Arrays.fill(output, 0);
+        Arrays.fill(weight, 0);
         
         for (int neurons = 0; neurons < matrix[layers]; neurons++) {
 
             /**
-             * get neuron name in hidden layer.
+             * get neuron in hidden layer.
              */
-            String name = "b-" + (neurons + 1) + "-" + layers;
+            Object neuron = network[layers][neurons];
             
-            if (network.get(name) != null) {
+            if (neuron != null) {
 
                 /**
                  * Will push this info to whoever is listening on the debugInfo
                  * channel.
                  */
-                debugInfo("Computing weights for neuron "
-                        + NeuronUtil.getNeuronName(network.get(name)));
+                if (trace) {
+                    debugInfo("Computing weights for neuron "
+                            + NeuronUtil.getNeuronName(neuron));
+                }
 
                 /**
                  * Get the sum of all connecting neurons affected by this
                  * neuron.
                  */
-                getConnectingLayer(matrix, network, neuronOutput, neuronWeight, neurons, layers);
+                getConnectingLayer(matrix, network, output, weight, neurons, layers);
 
                 /**
                  * Get error.
                  */
-                error = NeuronUtil.calculateNeuronError(network.get(name),
-                        target, neuronWeight, neuronOutput);
+                error = NeuronUtil.calculateNeuronError(neuron,
+                        target, weight, output);
 
                 /**
                  * Parse error.
                  */
                 NeuronUtil.updateNeuronWeights(
-                        network.get(name), error, learningRate, momentum);
+                        neuron, error, learningRate, momentum);
 
                 /**
                  * Will push this info to whoever is listening on the debugInfo
                  * channel.
                  */
-                debugInfo("Calculated error for neuron "
-                        + NeuronUtil.getNeuronName(network.get(name))
-                        + " is {" + error + "}");
+                if (trace) {
+                    debugInfo("Calculated error for neuron "
+                            + NeuronUtil.getNeuronName(neuron)
+                            + " is {" + error + "}");
+                }
             }
         }
 
@@ -355,35 +502,44 @@ public class BackPropagation implements IProcessingEvent {
      * @param matrix Contains an array of the network matrix.
      * @param layers The current layer of the network we are dealing with.
      * @param target An array of target values.
-     * @param network Map of the neural network containing all objects.
+     * @param network Neurons of each layer of the network.
      * @param learningRate The defined learning rate used to train the network.
      * @param momentum The defined momentum rate of the neural network. private
      */
     private double updateHiddenToHiddenLayerError(int matrix[], int layers,
-            Map<String, Object> network, double learningRate, double target[], double momentum) {
+            Object[][] network, double learningRate, double target[], double momentum) {
         
         double error = 0;
         
-        double neuronOutput[] = new double[matrix[layers + 1]];
-        double neuronWeight[] = new double[matrix[layers + 1]];
+        double output[] = neuronOutput[layers];
+        double weight[] = neuronWeight[layers];
+
+        /**
+         * Clear values left from the previous pass, bias neurons are skipped
+         * and must read as zero.
+         */
+        Arrays.fill(output, 0);
+        Arrays.fill(weight, 0);
         
         for (int neurons = 0; neurons < matrix[layers]; neurons++) {
 
             /**
-             * Get neuron name in hidden layer.
+             * Get neuron in hidden layer.
              */
-            String name = "b-" + (neurons + 1) + "-" + layers;
+            Object neuron = network[layers][neurons];
             
-            if (network.get(name) != null) {
+            if (neuron != null) {
 
                 /**
                  * Skip Bias Neurons as they are not connected to anything
                  * above.
                  */
-                if (NeuronUtil.getNeuronBias(network.get(name))) {
-                    debugInfo("Neuron "
-                            + NeuronUtil.getNeuronName(network.get(name))
-                            + " is Bias - Skipping.");
+                if (NeuronUtil.getNeuronBias(neuron)) {
+                    if (trace) {
+                        debugInfo("Neuron "
+                                + NeuronUtil.getNeuronName(neuron)
+                                + " is Bias - Skipping.");
+                    }
                     
                     continue;
                     
@@ -393,36 +549,40 @@ public class BackPropagation implements IProcessingEvent {
                  * Will push this info to whoever is listening on the debugInfo
                  * channel.
                  */
-                debugInfo("Computing weights for neuron " 
-                        + NeuronUtil.getNeuronName(network.get(name)));
+                if (trace) {
+                    debugInfo("Computing weights for neuron " 
+                            + NeuronUtil.getNeuronName(neuron));
+                }
 
                 /**
                  * Get the sum of all connecting neurons affected by this
                  * neuron.
                  */
-                getConnectingLayer(matrix, network, neuronOutput, neuronWeight, neurons, layers);
+                getConnectingLayer(matrix, network, output, weight, neurons, layers);
 
                 /**
                  * Get error. 
                  */
                 error = NeuronUtil.calculateNeuronError(
-                        network.get(name), target, neuronWeight, neuronOutput);
+                        neuron, target, weight, output);
 
 
                 /** 
                  * Parse error. 
                  */
                 NeuronUtil.updateNeuronWeights(
-                        network.get(name), error, learningRate, momentum);
+                        neuron, error, learningRate, momentum);
 
                 /**
                  * Will push this info to whoever is listening on the debugInfo
                  * channel.
                  */
-                debugInfo("New weight values {"
-                        + error
-                        + "} updated for neuron "
-                        + NeuronUtil.getNeuronName(network.get(name)));
+                if (trace) {
+                    debugInfo("New weight values {"
+                            + error
+                            + "} updated for neuron "
+                            + NeuronUtil.getNeuronName(neuron));
+                }
             }
         }
 
@@ -432,53 +592,74 @@ public class BackPropagation implements IProcessingEvent {
         return error;
     }
 
+    /**
+     * Build the neuron names and scratch buffers for the matrix given. The
+     * buffers for each layer match the size of the layer above, as the
+     * original per layer arrays did.
+     *
+     * @param matrix Matrix of Neural Network.
+     */
+    private void allocate(int matrix[]) {
+
+        namesMatrix = matrix.clone();
+        names = NetworkUtil.getNeuronNames(matrix);
+        delta = new double[matrix[matrix.length - 1]];
+
+        neuronOutput = new double[matrix.length][];
+        neuronWeight = new double[matrix.length][];
+
+        for (int layer = 0; layer < (matrix.length - 1); layer++) {
+            neuronOutput[layer] = new double[matrix[layer + 1]];
+            neuronWeight[layer] = new double[matrix[layer + 1]];
+        }
+    }
+
     /**
      * This will return the details of the hidden layer below that are affected
      * by the neuron in the layer above.
      *
      * @param matrix Matrix of Neural Network.
-     * @param network Map of the network.
+     * @param network Neurons of each layer of the network.
      * @param output Combined outputs from layer below.
      * @param weight Combined weights from the layer below.
      * @param position The position within the network matrix
      * @param layers The layer of the network that we are dealing with.
      */
-    private void getConnectingLayer(int matrix[], Map<String, Object> network,
+    private void getConnectingLayer(int matrix[], Object[][] network,
             double output[], double weight[], int position, int layers) {
         
         for (int neuron = 0; neuron < (matrix[layers + 1]); neuron++) {
             
-            String name;
-            
             if ((layers + 1) == (matrix.length - 1)) {
 
                 /**
                  * get output layer neuron.
                  */
-                name = "c-" + (neuron + 1);
+                Object above = network[layers + 1][neuron];
 
                 /**
                  * Does the neuron exist? 
                  */
-                if (network.get(name) != null) {
+                if (above != null) {
 
                     /**
                      * Get original output from the neuron.
                      */
-                    output[neuron] = NeuronUtil.getNeuronFinalOutPut(network.get(name));
+                    output[neuron] = NeuronUtil.getNeuronFinalOutPut(above);
 
                     /**
                      * Get original weights from the neuron.
                      */
-                    double[] weights = NeuronUtil.getNeuronNetWeight(network.get(name));
-                    weight[neuron] = weights[position];
+                    weight[neuron] = NeuronUtil.getNeuronNetWeight(above, position);
 
                     /**
                      * Will push this info to whoever is listening on the
                      * debugInfo channel.
                      */
-                    debugInfo("Getting info from neuron "
-                            + NeuronUtil.getNeuronName(network.get(name)));
+                    if (trace) {
+                        debugInfo("Getting info from neuron "
+                                + NeuronUtil.getNeuronName(above));
+                    }
                     
                 }
                 
@@ -487,37 +668,40 @@ public class BackPropagation implements IProcessingEvent {
                 /**
                  * get hidden layer neuron.
                  */
-                name = "b-" + (neuron + 1) + "-" + (layers + 1);
+                Object above = network[layers + 1][neuron];
 
                 /**
                  * Does the neuron exist? 
                  */
-                if (network.get(name) != null) {
+                if (above != null) {
                     
-                    if (NeuronUtil.getNeuronBias(network.get(name))) {
-                        debugInfo("Neuron "
-                                + NeuronUtil.getNeuronName(network.get(name))
-                                + " is Bias - Skipping.");
+                    if (NeuronUtil.getNeuronBias(above)) {
+                        if (trace) {
+                            debugInfo("Neuron "
+                                    + NeuronUtil.getNeuronName(above)
+                                    + " is Bias - Skipping.");
+                        }
                         continue;
                     }
 
                     /**
                      * Get original output from the neuron.
                      */
-                    output[neuron] = NeuronUtil.getNeuronFinalOutPut(network.get(name));
+                    output[neuron] = NeuronUtil.getNeuronFinalOutPut(above);
 
                     /**
                      * Get original weights from the neuron.
                      */
-                    double[] weights = NeuronUtil.getNeuronNetWeight(network.get(name));
-                    weight[neuron] = weights[position];
+                    weight[neuron] = NeuronUtil.getNeuronNetWeight(above, position);
 
                     /**
                      * Will push this info to whoever is listening on the
                      * debugInfo channel.
                      */
-                    debugInfo("Getting info from neuron "
-                            + NeuronUtil.getNeuronName(network.get(name)));
+                    if (trace) {
+                        debugInfo("Getting info from neuron "
+                                + NeuronUtil.getNeuronName(above));
+                    }
                 }
             }
         }
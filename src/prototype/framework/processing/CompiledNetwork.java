@@ -0,0 +1,2560 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.processing;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import prototype.framework.base.component.ActivationKernel;
+import prototype.framework.base.component.Precision;
+import prototype.framework.data.SparseVector;
+import prototype.framework.util.NetworkFile;
+import prototype.framework.util.NetworkUtil;
+import prototype.framework.util.NeuronUtil;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This class is a compiled snapshot of a neural network map that is used to
+ * perform a fast feed forward and mini-batch training. Each layer keeps the
+ * weights of all its neurons in one contiguous array (row-major, neuron x
+ * connection) together with an activation buffer, so no neuron names, map
+ * lookups or per-neuron calls are needed while the network is being evaluated.
+ *
+ * The computation mirrors FeedForward exactly - same input, summing and
+ * activation functions in the same order - so both return identical results.
+ * A network compiled with Precision.FLOAT holds its weights as floats and
+ * rounds its activations to float, and is within about 1.0e-6 of FeedForward
+ * instead.
+ * The snapshot is not updated when neurons in the map change and must be
+ * compiled again after the weights have been modified. Weights changed by
+ * training are copied back to the map with writeBack.
+ *
+ * A network compiled off heap, see compileOffHeap and load, keeps its weights
+ * and the weight changes of training in direct memory outside the Java heap,
+ * so a large network does not leave long lived arrays for the garbage
+ * collector to trace. The memory is released with close.
+ *
+ * A layer of a network held on the heap can be pruned, see prune, dropping
+ * the weights of small magnitude and keeping the rest as compressed sparse
+ * rows. The feed forward and training then only read, and only change, the
+ * weights that are left.
+ */
+public class CompiledNetwork {
+
+    /**
+     * Private Final Variables.
+     */
+    private final int[] MATRIX;
+    private final Map<String, Object> NETWORK;
+
+    /**
+     * Weights per layer, layer zero (input layer) has no weights. A network
+     * compiled with Precision.FLOAT holds them in FLOATS instead. A network
+     * mapped from a binary network file, or held off heap, reads its weights
+     * from buffers and has no weight arrays; MEMORY holds the direct memory
+     * behind the buffers of an off heap network.
+     */
+    private final Precision PRECISION;
+    private final double[][] WEIGHTS;
+    private final float[][] FLOATS;
+    private final DoubleBuffer[] BUFFERS;
+    private final ByteBuffer[] MEMORY;
+    private final boolean[][] BIAS;
+
+    /**
+     * A pruned layer holds only the weights left in WEIGHTS or FLOATS, one
+     * neuron after the other: OFFSETS holds where the weights of each neuron
+     * start, plus the end, and COLUMNS the connection of each weight in
+     * ascending order. Both are null for a layer that is not pruned.
+     */
+    private final int[][] OFFSETS;
+    private final int[][] COLUMNS;
+
+    /**
+     * Activation kernel per layer, shared by all neurons in the layer.
+     */
+    private final ActivationKernel[] KERNELS;
+
+    /**
+     * Output of each neuron per layer from the last feed forward.
+     */
+    private final double[][] ACTIVATIONS;
+
+    /**
+     * Number of neurons computed together when a block of patterns is passed
+     * through a layer, so their weights stay in cache across the block.
+     */
+    private static final int BLOCK = 32;
+
+    /**
+     * Smallest number of patterns handed to one worker in parallel training.
+     */
+    private static final int MIN_ROWS_PER_WORKER = 16;
+
+    /**
+     * Number of patterns fed forward together by the batched feed forward.
+     */
+    private static final int ROWS_PER_BLOCK = 64;
+
+    /**
+     * The cleaner of a direct buffer, resolved once. Java 9 and later free a
+     * buffer through Unsafe.invokeCleaner, Java 8 through the Cleaner returned
+     * by DirectBuffer.cleaner. Null where neither can be reached.
+     */
+    private static final Object UNSAFE = getUnsafe();
+    private static final Method INVOKE_CLEANER = (UNSAFE == null) ? null
+            : getMethod("sun.misc.Unsafe", "invokeCleaner", ByteBuffer.class);
+    private static final Method GET_CLEANER = (INVOKE_CLEANER != null) ? null
+            : getMethod("sun.nio.ch.DirectBuffer", "cleaner");
+    private static final Method CLEAN = (GET_CLEANER == null) ? null
+            : getMethod("sun.misc.Cleaner", "clean");
+
+    /**
+     * Buffers used by the batched feed forward, by mini-batch training, and
+     * one set per worker for parallel training.
+     */
+    private Workspace inference;
+    private Workspace workspace;
+    private Workspace[] workers;
+
+    /**
+     * Position of each input neuron that is not bias, in the order the
+     * vectors of a pattern are taken, and of each bias input neuron. Worked
+     * out when the first sparse pattern is fed forward.
+     */
+    private int[] input_positions;
+    private int[] bias_positions;
+
+    /**
+     * Constructor - Create the empty layer structure for the given matrix.
+     *
+     * @param matrix Provide a matrix of the network as an array
+     * @param network Map of the neural network the snapshot is taken from.
+     */
+    private CompiledNetwork(int matrix[], Map<String, Object> network,
+            Precision precision) {
+
+        this(matrix, network, precision, null, null);
+    }
+
+    /**
+     * Constructor - Create the empty layer structure for the given matrix,
+     * with the weights of each layer read from the buffers given.
+     *
+     * @param matrix Provide a matrix of the network as an array
+     * @param network Map of the neural network the snapshot is taken from.
+     * @param precision Precision the weights are held in.
+     * @param buffers Weights per layer, or null to hold weights in arrays.
+     * @param memory Direct memory behind the buffers, or null if the buffers
+     * are read only.
+     */
+    private CompiledNetwork(int matrix[], Map<String, Object> network,
+            Precision precision, DoubleBuffer[] buffers, ByteBuffer[] memory) {
+
+        this.MATRIX = Arrays.copyOf(matrix, matrix.length);
+        this.NETWORK = network;
+        this.PRECISION = precision;
+        this.BUFFERS = buffers;
+        this.MEMORY = memory;
+
+        this.WEIGHTS = new double[matrix.length][];
+        this.FLOATS = new float[matrix.length][];
+        this.BIAS = new boolean[matrix.length][];
+        this.OFFSETS = new int[matrix.length][];
+        this.COLUMNS = new int[matrix.length][];
+        this.KERNELS = new ActivationKernel[matrix.length];
+        this.ACTIVATIONS = new double[matrix.length][];
+
+        for (int layers = 0; layers < matrix.length; layers++) {
+
+            this.BIAS[layers] = new boolean[matrix[layers]];
+            this.ACTIVATIONS[layers] = new double[matrix[layers]];
+
+            if (layers > 0 && buffers == null) {
+
+                if (precision == Precision.FLOAT) {
+                    this.FLOATS[layers] = new float[matrix[layers] * matrix[layers - 1]];
+                } else {
+                    this.WEIGHTS[layers] = new double[matrix[layers] * matrix[layers - 1]];
+                }
+            }
+        }
+    }
+
+    /**
+     * This will compile the neurons held in the network map into contiguous
+     * weight arrays per layer.
+     *
+     * Networks without a hidden layer, maps that are missing neurons defined
+     * in the matrix, or layers whose neurons use different activation kernels
+     * can not be compiled and null is returned so the caller can use the
+     * standard feed forward instead.
+     *
+     * @param matrix Provide a matrix of the network as an array
+     * @param network Map of the neural network.
+     * @return Compiled network or null if the map could not be compiled.
+     */
+    public static CompiledNetwork compile(int matrix[], Map<String, Object> network) {
+
+        return compile(matrix, network, Precision.DOUBLE);
+    }
+
+    /**
+     * This will compile the neurons held in the network map into contiguous
+     * weight arrays per layer, holding the weights in the precision given.
+     *
+     * @param matrix Provide a matrix of the network as an array
+     * @param network Map of the neural network.
+     * @param precision Precision the weights are held in.
+     * @return Compiled network or null if the map could not be compiled.
+     */
+    public static CompiledNetwork compile(int matrix[], Map<String, Object> network,
+            Precision precision) {
+
+        return compile(matrix, network, network, precision, false);
+    }
+
+    /**
+     * This will compile the neurons held in a network map into weight buffers
+     * allocated off heap. The compiled network stands for the network map
+     * given, which needs no neurons, and can be fed forward and trained like
+     * any compiled network. Weights are held as doubles.
+     *
+     * @param matrix Provide a matrix of the network as an array
+     * @param source Map of the neural network the weights are taken from.
+     * @param network Map that identifies the network, see isCompiledFrom.
+     * @return Compiled network or null if the map could not be compiled.
+     */
+    public static CompiledNetwork compileOffHeap(int matrix[],
+            Map<String, Object> source, Map<String, Object> network) {
+
+        return compile(matrix, source, network, Precision.DOUBLE, true);
+    }
+
+    /**
+     * This will compile the neurons held in the source map.
+     *
+     * @param matrix Provide a matrix of the network as an array
+     * @param source Map of the neural network the weights are taken from.
+     * @param network Map that identifies the network, see isCompiledFrom.
+     * @param precision Precision the weights are held in.
+     * @param offHeap True to hold the weights off heap.
+     * @return Compiled network or null if the map could not be compiled.
+     */
+    private static CompiledNetwork compile(int matrix[], Map<String, Object> source,
+            Map<String, Object> network, Precision precision, boolean offHeap) {
+
+        if (matrix == null || source == null || network == null
+                || precision == null || matrix.length < 3) {
+            return null;
+        }
+
+        CompiledNetwork compiled = offHeap
+                ? allocate(matrix, network)
+                : new CompiledNetwork(matrix, network, precision);
+
+        Object[][] table = NetworkUtil.getNeuronTable(matrix, source);
+
+        /**
+         * How many Layers do we have in the neural network?
+         */
+        for (int layers = 0; layers < matrix.length; layers++) {
+
+            /**
+             * How many neurons do we have within each layer?
+             */
+            for (int neurons = 0; neurons < matrix[layers]; neurons++) {
+
+                Object neuron = table[layers][neurons];
+
+                if (neuron == null) {
+                    compiled.close();
+                    return null;
+                }
+
+                if (layers == 0) {
+
+                    /**
+                     * Input Neurons only carry their bias setting.
+                     */
+                    compiled.BIAS[layers][neurons] = NeuronUtil.getNeuronBias(neuron);
+                    continue;
+                }
+
+                /**
+                 * All neurons of a layer must share one activation kernel.
+                 */
+                ActivationKernel kernel = NeuronUtil.getNeuronActivationKernel(neuron);
+
+                if (kernel == null
+                        || (neurons > 0 && kernel != compiled.KERNELS[layers])) {
+                    compiled.close();
+                    return null;
+                }
+
+                compiled.KERNELS[layers] = kernel;
+
+                double[] weight = NeuronUtil.getNeuronWeight(neuron);
+
+                /**
+                 * Each neuron is connected to every neuron in the layer above.
+                 */
+                if (weight == null || weight.length != matrix[layers - 1]) {
+                    compiled.close();
+                    return null;
+                }
+
+                /**
+                 * Output neurons can never be bias.
+                 */
+                if (layers < (matrix.length - 1)) {
+                    compiled.BIAS[layers][neurons] = NeuronUtil.getNeuronBias(neuron);
+                }
+
+                if (offHeap) {
+
+                    DoubleBuffer buffer = compiled.BUFFERS[layers].duplicate();
+                    buffer.position(neurons * matrix[layers - 1]);
+                    buffer.put(weight);
+
+                } else if (precision == Precision.FLOAT) {
+
+                    float[] floats = compiled.FLOATS[layers];
+                    int offset = neurons * matrix[layers - 1];
+
+                    for (int x = 0; x < weight.length; x++) {
+                        floats[offset + x] = (float) weight[x];
+                    }
+
+                } else {
+
+                    System.arraycopy(weight, 0, compiled.WEIGHTS[layers],
+                            neurons * matrix[layers - 1], weight.length);
+                }
+            }
+        }
+
+        return compiled;
+    }
+
+    /**
+     * This is used to check if this snapshot was compiled from the given
+     * network map and matrix.
+     *
+     * @param matrix Provide a matrix of the network as an array
+     * @param network Map of the neural network.
+     * @return True if the snapshot belongs to the network.
+     */
+    public boolean isCompiledFrom(int matrix[], Map<String, Object> network) {
+
+        return this.NETWORK == network && Arrays.equals(this.MATRIX, matrix);
+    }
+
+    /**
+     * This will create a read only network whose weights are served from a
+     * binary network file mapped into memory, see NetworkFile.map. It can be
+     * fed forward but not trained.
+     *
+     * @param file Binary network file mapped into memory.
+     * @param network Map that identifies the network, see isCompiledFrom.
+     * @param kernel Activation kernel used by every layer.
+     * @return Compiled network or null if the network can not be compiled.
+     */
+    public static CompiledNetwork map(NetworkFile file, Map<String, Object> network,
+            ActivationKernel kernel) {
+
+        int[] matrix = file.getMatrix();
+
+        if (network == null || kernel == null || matrix.length < 3) {
+            return null;
+        }
+
+        DoubleBuffer[] mapped = new DoubleBuffer[matrix.length];
+
+        for (int layers = 1; layers < matrix.length; layers++) {
+            mapped[layers] = file.getWeights(layers);
+        }
+
+        CompiledNetwork compiled = new CompiledNetwork(matrix, network,
+                Precision.DOUBLE, mapped, null);
+
+        compiled.setLayers(file, kernel);
+
+        return compiled;
+    }
+
+    /**
+     * This will create a network held off heap from a binary network file,
+     * copying the weights of the file into direct memory, so no neurons are
+     * created for it. Unlike a mapped network it can be trained.
+     *
+     * @param file Binary network file, read or mapped into memory.
+     * @param network Map that identifies the network, see isCompiledFrom.
+     * @param kernel Activation kernel used by every layer.
+     * @return Compiled network or null if the network can not be compiled.
+     */
+    public static CompiledNetwork load(NetworkFile file, Map<String, Object> network,
+            ActivationKernel kernel) {
+
+        int[] matrix = file.getMatrix();
+
+        if (network == null || kernel == null || matrix.length < 3) {
+            return null;
+        }
+
+        CompiledNetwork compiled = allocate(matrix, network);
+
+        for (int layers = 1; layers < matrix.length; layers++) {
+            compiled.BUFFERS[layers].duplicate().put(file.getWeights(layers));
+        }
+
+        compiled.setLayers(file, kernel);
+
+        return compiled;
+    }
+
+    /**
+     * Create the empty layer structure for the given matrix with its weights
+     * in direct memory, in the native byte order.
+     *
+     * @param matrix Provide a matrix of the network as an array
+     * @param network Map that identifies the network, see isCompiledFrom.
+     * @return Compiled network with every weight zero.
+     */
+    private static CompiledNetwork allocate(int matrix[], Map<String, Object> network) {
+
+        DoubleBuffer[] buffers = new DoubleBuffer[matrix.length];
+        ByteBuffer[] memory = new ByteBuffer[matrix.length];
+
+        for (int layers = 1; layers < matrix.length; layers++) {
+
+            memory[layers] = ByteBuffer.allocateDirect(
+                    matrix[layers] * matrix[layers - 1] * Double.BYTES)
+                    .order(ByteOrder.nativeOrder());
+
+            buffers[layers] = memory[layers].asDoubleBuffer();
+        }
+
+        return new CompiledNetwork(matrix, network, Precision.DOUBLE, buffers, memory);
+    }
+
+    /**
+     * Set the activation kernel and bias flags of every layer from a binary
+     * network file.
+     *
+     * @param file Binary network file.
+     * @param kernel Activation kernel used by every layer.
+     */
+    private void setLayers(NetworkFile file, ActivationKernel kernel) {
+
+        for (int layers = 0; layers < MATRIX.length; layers++) {
+
+            KERNELS[layers] = kernel;
+
+            /**
+             * Output neurons can never be bias.
+             */
+            if (layers < (MATRIX.length - 1)) {
+                for (int neurons = 0; neurons < MATRIX[layers]; neurons++) {
+                    BIAS[layers][neurons] = file.getBias(layers, neurons);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of input neurons that take vectors, those that are
+     * not bias.
+     *
+     * @return Number of inputs.
+     */
+    public int getInputCount() {
+
+        prepareInputs();
+
+        return input_positions.length;
+    }
+
+    /**
+     * Returns true if the weights are read from a mapped file and can not be
+     * trained.
+     *
+     * @return True if read only.
+     */
+    public boolean isReadOnly() {
+        return this.BUFFERS != null && this.MEMORY == null;
+    }
+
+    /**
+     * Returns true if the weights are held off heap.
+     *
+     * @return True if off heap.
+     */
+    public boolean isOffHeap() {
+        return this.MEMORY != null;
+    }
+
+    /**
+     * Returns the precision the weights are held in.
+     *
+     * @return Precision of the weights.
+     */
+    public Precision getPrecision() {
+        return this.PRECISION;
+    }
+
+    /**
+     * Returns true if the layer has been pruned.
+     *
+     * @param layers Position of the layer in the network.
+     * @return True if pruned.
+     */
+    public boolean isPruned(int layers) {
+        return layers > 0 && layers < MATRIX.length && this.OFFSETS[layers] != null;
+    }
+
+    /**
+     * Returns the number of weights held for a layer, fewer than the number
+     * of connections if the layer has been pruned.
+     *
+     * @param layers Position of the layer in the network.
+     * @return Number of weights held.
+     */
+    public int getWeightCount(int layers) {
+
+        if (isPruned(layers)) {
+            return COLUMNS[layers].length;
+        }
+
+        return MATRIX[layers] * MATRIX[layers - 1];
+    }
+
+    /**
+     * This will prune a layer, dropping every weight whose magnitude is below
+     * the threshold as well as every weight that is zero. The weights left
+     * are held as compressed sparse rows, which the feed forward and training
+     * use directly; the weights dropped stay zero when the network is trained
+     * and are written back as zero. A layer can be pruned again to drop more.
+     *
+     * A network that is mapped or held off heap can not be pruned.
+     *
+     * @param layers Position of the layer in the network, from 1.
+     * @param threshold Smallest magnitude of a weight that is kept.
+     * @return True if the layer has been pruned.
+     */
+    public boolean prune(int layers, double threshold) {
+
+        if (BUFFERS != null || layers < 1 || layers >= MATRIX.length
+                || Double.isNaN(threshold)) {
+            return false;
+        }
+
+        int links = MATRIX[layers - 1];
+        int size = MATRIX[layers];
+
+        int[] offsets = new int[size + 1];
+        int count = 0;
+
+        /**
+         * Count the weights kept by each neuron.
+         */
+        for (int neurons = 0; neurons < size; neurons++) {
+
+            for (int x = 0; x < links; x++) {
+
+                double weight = getWeight(layers, neurons * links + x);
+
+                if (weight != 0 && Math.abs(weight) >= threshold) {
+                    count++;
+                }
+            }
+
+            offsets[neurons + 1] = count;
+        }
+
+        int[] columns = new int[count];
+        double[] weights = (FLOATS[layers] == null) ? new double[count] : null;
+        float[] floats = (FLOATS[layers] == null) ? null : new float[count];
+
+        for (int neurons = 0, k = 0; neurons < size; neurons++) {
+
+            for (int x = 0; x < links; x++) {
+
+                double weight = getWeight(layers, neurons * links + x);
+
+                if (weight != 0 && Math.abs(weight) >= threshold) {
+
+                    columns[k] = x;
+
+                    if (floats != null) {
+                        floats[k++] = (float) weight;
+                    } else {
+                        weights[k++] = weight;
+                    }
+                }
+            }
+        }
+
+        WEIGHTS[layers] = weights;
+        FLOATS[layers] = floats;
+        OFFSETS[layers] = offsets;
+        COLUMNS[layers] = columns;
+
+        /**
+         * The weight changes held for training no longer fit the layer.
+         */
+        dropWorkspaces();
+
+        return true;
+    }
+
+    /**
+     * Returns the magnitude below which weights are to be pruned for the
+     * given fraction of all weights of the network to be dropped. Weights
+     * that are zero, or already pruned, count as dropped.
+     *
+     * @param sparsity Fraction of weights to be dropped, from 0 to 1.
+     * @return Threshold to prune with, NaN if the sparsity is out of range.
+     */
+    public double getThreshold(double sparsity) {
+
+        return threshold(sparsity, 1, MATRIX.length);
+    }
+
+    /**
+     * Returns the magnitude below which weights are to be pruned for the
+     * given fraction of the weights of one layer to be dropped.
+     *
+     * @param layers Position of the layer in the network, from 1.
+     * @param sparsity Fraction of weights to be dropped, from 0 to 1.
+     * @return Threshold to prune with, NaN if the sparsity or the layer is
+     * out of range.
+     */
+    public double getThreshold(int layers, double sparsity) {
+
+        if (layers < 1 || layers >= MATRIX.length) {
+            return Double.NaN;
+        }
+
+        return threshold(sparsity, layers, layers + 1);
+    }
+
+    /**
+     * Sorts the magnitude of every weight of a range of layers to find the
+     * magnitude below which the given fraction of them lies.
+     *
+     * @param sparsity Fraction of weights to be dropped, from 0 to 1.
+     * @param from First layer.
+     * @param to Layer after the last layer.
+     * @return Threshold to prune with, NaN if the sparsity is out of range.
+     */
+    private double threshold(double sparsity, int from, int to) {
+
+        if (BUFFERS != null || !(sparsity >= 0 && sparsity <= 1)) {
+            return Double.NaN;
+        }
+
+        int total = 0;
+
+        for (int layers = from; layers < to; layers++) {
+            total += MATRIX[layers] * MATRIX[layers - 1];
+        }
+
+        /**
+         * Pruned weights are left as zero at the start of the array.
+         */
+        double[] magnitudes = new double[total];
+        int pos = total;
+
+        for (int layers = from; layers < to; layers++) {
+
+            int count = getWeightCount(layers);
+            double[] weight = WEIGHTS[layers];
+            float[] floats = FLOATS[layers];
+
+            for (int x = 0; x < count; x++) {
+                magnitudes[--pos] = Math.abs((weight != null) ? weight[x] : floats[x]);
+            }
+        }
+
+        Arrays.sort(magnitudes);
+
+        int drop = (int) Math.round(sparsity * total);
+
+        if (drop >= total) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        return magnitudes[drop];
+    }
+
+    /**
+     * Start the feed forward using the compiled weights and return computed
+     * result.
+     *
+     * Unlike FeedForward the input vectors are left untouched.
+     *
+     * @param vectors Input vectors for feed forward
+     * @return Returns computed results.
+     */
+    public double[] start(double[] vectors) {
+
+        /**
+         * Input Neurons - Load vectors.
+         */
+        pushInput(vectors, 0, vectors.length, ACTIVATIONS[0], 0);
+
+        /**
+         * Hidden and output layers.
+         */
+        for (int layers = 1; layers < MATRIX.length; layers++) {
+            pushLayer(layers);
+        }
+
+        /**
+         * Pull final output from network.
+         */
+        double[] output = ACTIVATIONS[MATRIX.length - 1];
+        return Arrays.copyOf(output, output.length);
+    }
+
+    /**
+     * Start the feed forward for a number of patterns at once and return the
+     * computed result of each. Patterns are fed forward in blocks, computing
+     * each layer for the whole block before moving to the next layer.
+     *
+     * @param vectors Input vectors for feed forward, one array per pattern.
+     * @return Returns computed results, one array per pattern.
+     */
+    public double[][] start(double[][] vectors) {
+
+        int outputs = MATRIX[MATRIX.length - 1];
+        double[][] results = new double[vectors.length][];
+
+        Workspace work = getInference(vectors.length);
+        double[] output = work.OUTPUTS[MATRIX.length - 1];
+
+        for (int first = 0; first < vectors.length; first += work.ROWS) {
+
+            int rows = Math.min(work.ROWS, vectors.length - first);
+
+            for (int row = 0; row < rows; row++) {
+                double[] pattern = vectors[first + row];
+                pushInput(pattern, 0, pattern.length, work.OUTPUTS[0], row * MATRIX[0]);
+            }
+
+            work.forward(rows);
+
+            for (int row = 0; row < rows; row++) {
+                results[first + row] = Arrays.copyOfRange(output,
+                        row * outputs, (row + 1) * outputs);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Start the feed forward for a number of patterns stored one after the
+     * other in a single array, and return the computed results the same way.
+     * Every pattern takes the same number of vectors, the length of the array
+     * over the number of patterns, see getWidth.
+     *
+     * @param vectors Input vectors for feed forward, row by row.
+     * @param rows Number of patterns in the array.
+     * @return Returns computed results, row by row.
+     * @throws IllegalArgumentException If the array does not split into rows
+     * of equal width, or a row holds fewer vectors than the input layer takes.
+     */
+    public double[] start(double[] vectors, int rows) {
+
+        int outputs = MATRIX[MATRIX.length - 1];
+        int width = getWidth(vectors, rows);
+
+        prepareInputs();
+
+        if (rows > 0 && width < input_positions.length) {
+            throw new IllegalArgumentException("Each pattern needs at least "
+                    + input_positions.length + " vectors, found " + width);
+        }
+
+        double[] results = new double[rows * outputs];
+
+        Workspace work = getInference(rows);
+        double[] output = work.OUTPUTS[MATRIX.length - 1];
+
+        for (int first = 0; first < rows; first += work.ROWS) {
+
+            int count = Math.min(work.ROWS, rows - first);
+
+            for (int row = 0; row < count; row++) {
+                pushInput(vectors, (first + row) * width, width,
+                        work.OUTPUTS[0], row * MATRIX[0]);
+            }
+
+            work.forward(count);
+
+            System.arraycopy(output, 0, results, first * outputs, count * outputs);
+        }
+
+        return results;
+    }
+
+    /**
+     * Returns the number of vectors of each pattern in an array holding a
+     * number of patterns one after the other.
+     *
+     * @param vectors Input vectors, row by row.
+     * @param rows Number of patterns in the array.
+     * @return Number of vectors per pattern.
+     * @throws IllegalArgumentException If the length of the array is not a
+     * multiple of the number of patterns.
+     */
+    public static int getWidth(double[] vectors, int rows) {
+
+        if (rows < 0 || (rows == 0 && vectors.length > 0)
+                || (rows > 0 && (vectors.length % rows) != 0)) {
+            throw new IllegalArgumentException("Length " + vectors.length
+                    + " does not split into " + rows + " patterns");
+        }
+
+        return (rows == 0) ? 0 : vectors.length / rows;
+    }
+
+    /**
+     * Start the feed forward for a sparse pattern and return computed result.
+     * Only the input vectors that are not zero are read and multiplied, which
+     * returns the same result as feeding forward the dense pattern.
+     *
+     * @param vector Input vectors that are not zero.
+     * @return Returns computed results, null if the positions of the vector
+     * are not ascending or do not fit the input layer.
+     */
+    public double[] start(SparseVector vector) {
+
+        double[][] results = start(new SparseVector[]{vector});
+
+        return (results == null) ? null : results[0];
+    }
+
+    /**
+     * Start the feed forward for a number of sparse patterns at once and
+     * return the computed result of each, see start(SparseVector).
+     *
+     * @param vectors Input vectors that are not zero, one per pattern.
+     * @return Returns computed results, one array per pattern, or null if the
+     * positions of a vector are not ascending or do not fit the input layer.
+     */
+    public double[][] start(SparseVector[] vectors) {
+
+        int outputs = MATRIX[MATRIX.length - 1];
+        double[][] results = new double[vectors.length][];
+
+        Workspace work = getInference(vectors.length);
+        double[] output = work.OUTPUTS[MATRIX.length - 1];
+
+        for (int first = 0; first < vectors.length; first += work.ROWS) {
+
+            int rows = Math.min(work.ROWS, vectors.length - first);
+
+            if (!work.pushSparse(vectors, first, rows)) {
+                return null;
+            }
+
+            work.forwardSparse(rows);
+
+            for (int row = 0; row < rows; row++) {
+                results[first + row] = Arrays.copyOfRange(output,
+                        row * outputs, (row + 1) * outputs);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Returns the buffers used by the batched feed forward.
+     *
+     * @param rows Number of patterns to be fed forward.
+     * @return Workspace for the batched feed forward.
+     */
+    private Workspace getInference(int rows) {
+
+        int size = Math.max(1, Math.min(ROWS_PER_BLOCK, rows));
+
+        if (inference == null || inference.ROWS < size) {
+            inference = new Workspace(size, false);
+        }
+
+        return inference;
+    }
+
+    /**
+     * Feeding vectors received into the input layer. Bias neurons always push
+     * one, every other neuron takes the next vector that is not NaN, exactly as
+     * FeedForward does.
+     *
+     * @param vectors Input vectors for feed forward
+     * @param start Position of the first vector of the pattern.
+     * @param length Number of vectors in the pattern.
+     * @param activation Activation buffer of the input layer.
+     * @param offset Position of the pattern in the activation buffer.
+     */
+    private void pushInput(double[] vectors, int start, int length,
+            double[] activation, int offset) {
+
+        boolean[] bias = BIAS[0];
+
+        int pos = start;
+        int end = start + length;
+
+        for (int neurons = 0; neurons < MATRIX[0]; neurons++) {
+
+            if (bias[neurons]) {
+
+                activation[offset + neurons] = 1;
+
+            } else {
+
+                while (pos < end && Double.isNaN(vectors[pos])) {
+                    pos++;
+                }
+
+                if (pos == end) {
+                    throw new ArrayIndexOutOfBoundsException(pos);
+                }
+
+                activation[offset + neurons] = PRECISION.round(vectors[pos++]);
+            }
+        }
+    }
+
+    /**
+     * Compute the output of each neuron in a layer from the outputs of the
+     * layer above.
+     *
+     * @param layers Position of current layer in the network.
+     */
+    private void pushLayer(int layers) {
+
+        double[] input = ACTIVATIONS[layers - 1];
+        double[] activation = ACTIVATIONS[layers];
+        boolean[] bias = BIAS[layers];
+        ActivationKernel kernel = KERNELS[layers];
+
+        int links = MATRIX[layers - 1];
+
+        for (int neurons = 0; neurons < MATRIX[layers]; neurons++) {
+
+            /**
+             * Bias Neurons simply push a value, no input or activation
+             * function.
+             */
+            if (bias[neurons]) {
+                activation[neurons] = 1;
+                continue;
+            }
+
+            /**
+             * Summarization function is defined as: f(x) += (n-INPUTS x
+             * n-weight).
+             */
+            double sum = (OFFSETS[layers] != null)
+                    ? prunedSum(layers, input, 0, neurons)
+                    : sum(layers, input, 0, neurons * links, links);
+
+            /**
+             * We are using a Sigmoid Activation function for this neuron.
+             */
+            activation[neurons] = PRECISION.round(kernel.activate(sum));
+        }
+    }
+
+    /**
+     * Summarization function of one neuron, f(x) += (n-INPUTS x n-weight),
+     * reading the weights from the arrays or the buffers. Single precision
+     * weights are summed in double.
+     *
+     * @param layers Position of current layer in the network.
+     * @param input Outputs of the layer above.
+     * @param in Position of the first output of the pattern.
+     * @param w Position of the first weight of the neuron.
+     * @param links Number of connections into the neuron.
+     * @return Weighted sum of the inputs.
+     */
+    private double sum(int layers, double[] input, int in, int w, int links) {
+
+        double[] weight = WEIGHTS[layers];
+        float[] floats = FLOATS[layers];
+        double sum = 0;
+
+        if (weight != null) {
+
+            for (int x = 0; x < links; x++) {
+                sum += (input[in + x] * weight[w + x]);
+            }
+
+        } else if (floats != null) {
+
+            for (int x = 0; x < links; x++) {
+                sum += (input[in + x] * floats[w + x]);
+            }
+
+        } else {
+
+            DoubleBuffer buffer = BUFFERS[layers];
+
+            for (int x = 0; x < links; x++) {
+                sum += (input[in + x] * buffer.get(w + x));
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * Summarization function of one neuron of a pruned layer, adding only the
+     * inputs of the weights left. They are held in ascending connection, so
+     * the sum adds the same products in the same order as the dense sum.
+     *
+     * @param layers Position of current layer in the network.
+     * @param input Outputs of the layer above.
+     * @param in Position of the first output of the pattern.
+     * @param neurons Position of the neuron in the layer.
+     * @return Weighted sum of the inputs.
+     */
+    private double prunedSum(int layers, double[] input, int in, int neurons) {
+
+        double[] weight = WEIGHTS[layers];
+        float[] floats = FLOATS[layers];
+        int[] columns = COLUMNS[layers];
+
+        int from = OFFSETS[layers][neurons];
+        int to = OFFSETS[layers][neurons + 1];
+
+        double sum = 0;
+
+        if (weight != null) {
+
+            for (int x = from; x < to; x++) {
+                sum += (input[in + columns[x]] * weight[x]);
+            }
+
+        } else {
+
+            for (int x = from; x < to; x++) {
+                sum += (input[in + columns[x]] * floats[x]);
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * Summarization function of one neuron of the first hidden layer for a
+     * sparse pattern, adding only the inputs that are not zero. They are held
+     * in ascending position, so the sum adds the same products in the same
+     * order as the dense sum and leaves out the zeros.
+     *
+     * @param w Position of the first weight of the neuron.
+     * @param positions Position of each input in the input layer.
+     * @param values Value of each input.
+     * @param from First input of the pattern.
+     * @param to Input after the last input of the pattern.
+     * @return Weighted sum of the inputs.
+     */
+    private double sparseSum(int w, int[] positions, double[] values, int from,
+            int to) {
+
+        double[] weight = WEIGHTS[1];
+        float[] floats = FLOATS[1];
+        double sum = 0;
+
+        if (weight != null) {
+
+            for (int x = from; x < to; x++) {
+                sum += (values[x] * weight[w + positions[x]]);
+            }
+
+        } else if (floats != null) {
+
+            for (int x = from; x < to; x++) {
+                sum += (values[x] * floats[w + positions[x]]);
+            }
+
+        } else {
+
+            DoubleBuffer buffer = BUFFERS[1];
+
+            for (int x = from; x < to; x++) {
+                sum += (values[x] * buffer.get(w + positions[x]));
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * Work out the position of the input neurons that take vectors and of
+     * the bias input neurons.
+     */
+    private void prepareInputs() {
+
+        if (input_positions != null) {
+            return;
+        }
+
+        int biases = 0;
+
+        for (int neurons = 0; neurons < MATRIX[0]; neurons++) {
+            if (BIAS[0][neurons]) {
+                biases++;
+            }
+        }
+
+        int[] inputs = new int[MATRIX[0] - biases];
+        int[] bias = new int[biases];
+
+        for (int neurons = 0, x = 0, y = 0; neurons < MATRIX[0]; neurons++) {
+
+            if (BIAS[0][neurons]) {
+                bias[y++] = neurons;
+            } else {
+                inputs[x++] = neurons;
+            }
+        }
+
+        bias_positions = bias;
+        input_positions = inputs;
+    }
+
+    /**
+     * Reference.
+     *
+     * Rojas, R. (1996). Neural Networks. 1st ed. [ebook] Berlin:
+     * Springer-Verlag, pp.152-184. Available at:
+     * http://page.mi.fu-berlin.de/rojas/neural/chapter/K7.pdf [Accessed 8 Nov.
+     * 2015].
+     *
+     * This performs one mini-batch step. The patterns are fed forward together,
+     * the weight changes of every pattern are computed with the same rules as
+     * BackPropagation, OutputNeuron and HiddenNeuron use on-line, and their
+     * average is applied to the weights once for the whole batch.
+     *
+     * With a single pattern the step changes the weights the same way as an
+     * on-line back propagation.
+     *
+     * @param values Input vectors, one array per pattern.
+     * @param targets Expected target values, one array per pattern.
+     * @param rows Number of patterns in the batch.
+     * @param learningRate Learning Rate of Network.
+     * @param momentum Moment rate used in training the network.
+     * @return Sum of the squared network error of each pattern.
+     */
+    public double train(double[][] values, double[][] targets, int rows,
+            double learningRate, double momentum) {
+
+        /**
+         * Mapped weights can not be changed.
+         */
+        if (isReadOnly()) {
+            return Double.NaN;
+        }
+
+        if (workspace == null || workspace.ROWS < rows) {
+
+            if (workspace != null) {
+                workspace.release();
+            }
+
+            workspace = new Workspace(rows, true);
+        }
+
+        workspace.clearGradients();
+
+        double error = workspace.accumulate(values, targets, 0, rows);
+
+        applyGradients(workspace, rows, learningRate, momentum);
+
+        return error;
+    }
+
+    /**
+     * This performs one mini-batch step on sparse patterns. The weights of the
+     * first hidden layer are only read for the inputs that are not zero, and
+     * only the weights of inputs that are not zero in some pattern of the
+     * batch are changed. Every other weight change would be zero, so the step
+     * changes the weights the same way as on the dense patterns.
+     *
+     * @param values Input vectors that are not zero, one per pattern.
+     * @param targets Expected target values, one array per pattern.
+     * @param rows Number of patterns in the batch.
+     * @param learningRate Learning Rate of Network.
+     * @param momentum Moment rate used in training the network.
+     * @return Sum of the squared network error of each pattern, NaN if the
+     * positions of a vector are not ascending or do not fit the input layer.
+     */
+    public double train(SparseVector[] values, double[][] targets, int rows,
+            double learningRate, double momentum) {
+
+        if (isReadOnly()) {
+            return Double.NaN;
+        }
+
+        if (workspace == null || workspace.ROWS < rows) {
+
+            if (workspace != null) {
+                workspace.release();
+            }
+
+            workspace = new Workspace(rows, true);
+        }
+
+        workspace.clearGradients();
+
+        double error = workspace.accumulate(values, targets, rows);
+
+        if (!Double.isNaN(error)) {
+            applyGradients(workspace, rows, learningRate, momentum);
+        }
+
+        return error;
+    }
+
+    /**
+     * This performs one mini-batch step with the batch split across the
+     * workers of a fork-join pool. Each worker feeds its part of the batch
+     * forward and sums its weight changes into its own buffers. The buffers
+     * are then added together pairwise and the average is applied to the
+     * weights once, exactly as the single threaded step does.
+     *
+     * The batch is always split the same way for the same pool size, so the
+     * result does not depend on how the workers are scheduled.
+     *
+     * @param values Input vectors, one array per pattern.
+     * @param targets Expected target values, one array per pattern.
+     * @param rows Number of patterns in the batch.
+     * @param learningRate Learning Rate of Network.
+     * @param momentum Moment rate used in training the network.
+     * @param pool Pool whose workers compute the weight changes.
+     * @return Sum of the squared network error of each pattern.
+     */
+    public double train(double[][] values, double[][] targets, int rows,
+            double learningRate, double momentum, ForkJoinPool pool) {
+
+        if (isReadOnly()) {
+            return Double.NaN;
+        }
+
+        int parts = Math.min(pool.getParallelism(),
+                (rows + MIN_ROWS_PER_WORKER - 1) / MIN_ROWS_PER_WORKER);
+
+        if (parts <= 1) {
+            return train(values, targets, rows, learningRate, momentum);
+        }
+
+        int chunk = (rows + parts - 1) / parts;
+        parts = (rows + chunk - 1) / chunk;
+
+        if (workers == null || workers.length < parts || workers[0].ROWS < chunk) {
+
+            release(workers);
+            workers = new Workspace[parts];
+
+            for (int x = 0; x < parts; x++) {
+                workers[x] = new Workspace(chunk, true);
+            }
+        }
+
+        pool.invoke(new Accumulate(values, targets, rows, chunk, 0, parts));
+
+        applyGradients(workers[0], rows, learningRate, momentum);
+
+        return workers[0].error;
+    }
+
+    /**
+     * Apply the averaged weight changes of a batch to the weights. Single
+     * precision weights are rounded once the change has been applied.
+     *
+     * @param work Workspace holding the summed weight changes per layer.
+     * @param rows Number of patterns the changes were summed over.
+     * @param learningRate Learning Rate of Network.
+     * @param momentum Moment rate used in training the network.
+     */
+    private void applyGradients(Workspace work, int rows,
+            double learningRate, double momentum) {
+
+        double rate = (learningRate * momentum) / rows;
+
+        for (int layers = 1; layers < MATRIX.length; layers++) {
+
+            double[] weight = WEIGHTS[layers];
+            float[] floats = FLOATS[layers];
+            double[] gradient = work.GRADIENTS[layers];
+
+            if (layers == 1 && work.sparse) {
+                work.applySparse(rate);
+                continue;
+            }
+
+            if (isOffHeap()) {
+
+                DoubleBuffer buffer = BUFFERS[layers];
+                DoubleBuffer sums = work.GRADIENT_BUFFERS[layers];
+
+                for (int x = 0; x < buffer.limit(); x++) {
+                    buffer.put(x, buffer.get(x) - rate * sums.get(x));
+                }
+
+                continue;
+            }
+
+            if (floats != null) {
+
+                for (int x = 0; x < floats.length; x++) {
+                    floats[x] = (float) (floats[x] - rate * gradient[x]);
+                }
+
+                continue;
+            }
+
+            for (int x = 0; x < weight.length; x++) {
+                weight[x] -= rate * gradient[x];
+            }
+        }
+    }
+
+    /**
+     * This will copy the compiled weights back into the neurons of the network
+     * map the snapshot was compiled from.
+     *
+     * @param network Map of the neural network.
+     */
+    public void writeBack(Map<String, Object> network) {
+
+        Object[][] table = NetworkUtil.getNeuronTable(MATRIX, network);
+
+        for (int layers = 1; layers < MATRIX.length; layers++) {
+
+            int links = MATRIX[layers - 1];
+
+            for (int neurons = 0; neurons < MATRIX[layers]; neurons++) {
+
+                Object neuron = table[layers][neurons];
+
+                if (neuron == null) {
+                    continue;
+                }
+
+                for (int x = 0; x < links; x++) {
+                    NeuronUtil.setNeuronWeight(neuron, x,
+                            getWeight(layers, neurons * links + x));
+                }
+            }
+        }
+    }
+
+    /**
+     * This will write the compiled weights to a binary network file, so a
+     * network without neurons, such as one held off heap, can be saved.
+     * Pruned layers are written with only their weights left.
+     *
+     * @param file Path and name of file to be saved.
+     * @return True if the file was written.
+     */
+    public boolean save(File file) {
+
+        DoubleBuffer[] weights = new DoubleBuffer[MATRIX.length];
+        boolean[] pruned = new boolean[MATRIX.length];
+
+        for (int layers = 1; layers < MATRIX.length; layers++) {
+
+            if (BUFFERS != null) {
+
+                weights[layers] = BUFFERS[layers];
+
+            } else if (OFFSETS[layers] != null) {
+
+                /**
+                 * Pruned layers are spread out, only the weights left are
+                 * written.
+                 */
+                int links = MATRIX[layers - 1];
+
+                weights[layers] = DoubleBuffer.allocate(MATRIX[layers] * links);
+                pruned[layers] = true;
+
+                for (int neurons = 0; neurons < MATRIX[layers]; neurons++) {
+                    for (int x = OFFSETS[layers][neurons]; x < OFFSETS[layers][neurons + 1]; x++) {
+                        weights[layers].put(neurons * links + COLUMNS[layers][x],
+                                (WEIGHTS[layers] != null) ? WEIGHTS[layers][x] : FLOATS[layers][x]);
+                    }
+                }
+
+            } else if (FLOATS[layers] != null) {
+
+                weights[layers] = DoubleBuffer.allocate(FLOATS[layers].length);
+
+                for (float weight : FLOATS[layers]) {
+                    weights[layers].put(weight);
+                }
+
+            } else {
+
+                weights[layers] = DoubleBuffer.wrap(WEIGHTS[layers]);
+            }
+
+            /**
+             * The network has been closed.
+             */
+            if (weights[layers] == null) {
+                return false;
+            }
+        }
+
+        return NetworkFile.write(file, MATRIX, BIAS, weights, pruned);
+    }
+
+    /**
+     * Returns one weight of a layer, whichever way the weights are held.
+     *
+     * @param layers Position of the layer in the network.
+     * @param index Position of the weight, row-major (neuron x connection).
+     * @return Weight value.
+     */
+    private double getWeight(int layers, int index) {
+
+        if (BUFFERS != null) {
+            return BUFFERS[layers].get(index);
+        }
+
+        if (OFFSETS[layers] != null) {
+
+            int links = MATRIX[layers - 1];
+            int neurons = index / links;
+
+            index = Arrays.binarySearch(COLUMNS[layers], OFFSETS[layers][neurons],
+                    OFFSETS[layers][neurons + 1], index - (neurons * links));
+
+            if (index < 0) {
+                return 0;
+            }
+        }
+
+        if (FLOATS[layers] != null) {
+            return FLOATS[layers][index];
+        }
+
+        return WEIGHTS[layers][index];
+    }
+
+    /**
+     * Changes one weight of a layer, whichever way the weights are held.
+     *
+     * @param layers Position of the layer in the network.
+     * @param index Position of the weight, row-major (neuron x connection).
+     * @param value New weight value, rounded to the precision.
+     */
+    private void setWeight(int layers, int index, double value) {
+
+        if (BUFFERS != null) {
+            BUFFERS[layers].put(index, value);
+        } else if (FLOATS[layers] != null) {
+            FLOATS[layers][index] = (float) value;
+        } else {
+            WEIGHTS[layers][index] = value;
+        }
+    }
+
+    /**
+     * This will release the off heap memory of the network and of its
+     * training buffers. The network can not be used once it has been closed,
+     * and must not be closed while it is being fed forward or trained.
+     * Networks held on the heap or mapped from a file simply drop their
+     * training buffers.
+     */
+    public void close() {
+
+        release(MEMORY);
+
+        if (BUFFERS != null) {
+            Arrays.fill(BUFFERS, null);
+        }
+
+        dropWorkspaces();
+    }
+
+    /**
+     * Drop the buffers of the feed forward and of training, releasing any
+     * held off heap.
+     */
+    private void dropWorkspaces() {
+
+        if (workspace != null) {
+            workspace.release();
+            workspace = null;
+        }
+
+        release(workers);
+        workers = null;
+        inference = null;
+    }
+
+    /**
+     * Release the training buffers of a set of workers.
+     *
+     * @param list Workers to be released, may be null.
+     */
+    private static void release(Workspace[] list) {
+
+        if (list == null) {
+            return;
+        }
+
+        for (Workspace work : list) {
+            work.release();
+        }
+    }
+
+    /**
+     * Free direct memory now rather than when the garbage collector finds it
+     * unreachable. The cleaner of a direct buffer is not public API, so it is
+     * reached through sun.misc.Unsafe on Java 9 and later and through
+     * sun.nio.ch.DirectBuffer on Java 8; where it can not be found the memory
+     * is left to the garbage collector. Each buffer must no longer be used by
+     * anything.
+     *
+     * @param memory Direct buffers to be freed, entries may be null.
+     */
+    private static void release(ByteBuffer[] memory) {
+
+        if (memory == null) {
+            return;
+        }
+
+        for (int x = 0; x < memory.length; x++) {
+
+            if (memory[x] == null) {
+                continue;
+            }
+
+            try {
+
+                if (INVOKE_CLEANER != null) {
+
+                    INVOKE_CLEANER.invoke(UNSAFE, memory[x]);
+
+                } else if (CLEAN != null) {
+
+                    Object cleaner = GET_CLEANER.invoke(memory[x]);
+
+                    if (cleaner != null) {
+                        CLEAN.invoke(cleaner);
+                    }
+                }
+
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+
+                /**
+                 * Left to the garbage collector.
+                 */
+            }
+
+            memory[x] = null;
+        }
+    }
+
+    /**
+     * Returns the instance of sun.misc.Unsafe.
+     *
+     * @return Unsafe instance, null if it can not be reached.
+     */
+    private static Object getUnsafe() {
+
+        try {
+
+            Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+
+            return field.get(null);
+
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a public method of a class that may not exist on every Java
+     * version.
+     *
+     * @param type Name of the class.
+     * @param name Name of the method.
+     * @param parameters Parameter types of the method.
+     * @return Method found, null if it can not be reached.
+     */
+    private static Method getMethod(String type, String name, Class<?>... parameters) {
+
+        try {
+            return Class.forName(type).getMethod(name, parameters);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * This holds the buffers needed to train on a block of patterns: the
+     * output of each neuron per pattern, the error signals and the summed
+     * weight changes per layer.
+     */
+    private final class Workspace {
+
+        private final int ROWS;
+
+        private final double[][] OUTPUTS;
+        private final double[][] SIGNALS;
+        private final double[][] DELTAS;
+        private final double[][] GRADIENTS;
+
+        /**
+         * Summed weight changes per layer of an off heap network, held off
+         * heap as well, and the direct memory behind them.
+         */
+        private final DoubleBuffer[] GRADIENT_BUFFERS;
+        private final ByteBuffer[] GRADIENT_MEMORY;
+
+        /**
+         * Views of the weight buffers owned by this workspace, null if the
+         * weights are held in arrays, and a row that weights and weight
+         * changes held in buffers are copied into one neuron at a time.
+         */
+        private final DoubleBuffer[] VIEWS;
+        private final double[] ROW;
+
+        /**
+         * Inputs of a block of sparse patterns: the position in the input
+         * layer and value of each input that is not zero, bias neurons
+         * included, with the start of each pattern. Allocated when the first
+         * sparse block is pushed.
+         */
+        private int[] sparse_positions;
+        private double[] sparse_values;
+        private int[] sparse_starts;
+
+        /**
+         * Input positions with a weight change in the block, and whether the
+         * last block was sparse. The weight changes of the first hidden layer
+         * are all zero whenever input_clean is set.
+         */
+        private boolean[] touched;
+        private int[] touched_list;
+        private int touched_count;
+        private boolean sparse;
+        private boolean input_clean;
+
+        private double error;
+
+        /**
+         * Constructor
+         *
+         * @param rows Maximum number of patterns in a block.
+         * @param training True if the buffers for back propagation are needed.
+         */
+        Workspace(int rows, boolean training) {
+
+            this.ROWS = rows;
+
+            this.OUTPUTS = new double[MATRIX.length][];
+            this.SIGNALS = new double[MATRIX.length][];
+            this.DELTAS = new double[MATRIX.length][];
+            this.GRADIENTS = new double[MATRIX.length][];
+            this.GRADIENT_BUFFERS = new DoubleBuffer[MATRIX.length];
+            this.GRADIENT_MEMORY = new ByteBuffer[MATRIX.length];
+            this.VIEWS = (BUFFERS == null) ? null : new DoubleBuffer[MATRIX.length];
+            this.ROW = new double[(BUFFERS == null)
+                    ? 0 : Arrays.stream(MATRIX).max().getAsInt()];
+
+            for (int layers = 1; VIEWS != null && layers < MATRIX.length; layers++) {
+                this.VIEWS[layers] = BUFFERS[layers].duplicate();
+            }
+
+            for (int layers = 0; layers < MATRIX.length; layers++) {
+
+                this.OUTPUTS[layers] = new double[rows * MATRIX[layers]];
+
+                if (layers > 0 && training) {
+                    this.SIGNALS[layers] = new double[rows * MATRIX[layers]];
+                    this.DELTAS[layers] = new double[rows * MATRIX[layers]];
+
+                    int weights = getWeightCount(layers);
+
+                    if (isOffHeap()) {
+
+                        this.GRADIENT_MEMORY[layers] = ByteBuffer.allocateDirect(
+                                weights * Double.BYTES).order(ByteOrder.nativeOrder());
+                        this.GRADIENT_BUFFERS[layers]
+                                = this.GRADIENT_MEMORY[layers].asDoubleBuffer();
+
+                    } else {
+
+                        this.GRADIENTS[layers] = new double[weights];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Reset the summed weight changes.
+         */
+        void clearGradients() {
+
+            for (int layers = 1; layers < MATRIX.length; layers++) {
+
+                /**
+                 * A sparse step leaves the first layer clean.
+                 */
+                if (layers == 1 && input_clean) {
+                    continue;
+                }
+
+                if (GRADIENTS[layers] != null) {
+                    Arrays.fill(GRADIENTS[layers], 0);
+                    continue;
+                }
+
+                DoubleBuffer sums = GRADIENT_BUFFERS[layers];
+
+                for (int x = 0; x < sums.limit(); x++) {
+                    sums.put(x, 0);
+                }
+            }
+
+            input_clean = true;
+        }
+
+        /**
+         * Free the off heap memory of the workspace.
+         */
+        void release() {
+
+            CompiledNetwork.release(GRADIENT_MEMORY);
+            Arrays.fill(GRADIENT_BUFFERS, null);
+        }
+
+        /**
+         * Add the summed weight changes and error of another workspace to this
+         * one.
+         *
+         * @param other Workspace of another worker.
+         */
+        void add(Workspace other) {
+
+            input_clean = false;
+
+            for (int layers = 1; layers < MATRIX.length; layers++) {
+
+                double[] gradient = GRADIENTS[layers];
+                double[] source = other.GRADIENTS[layers];
+
+                if (gradient == null) {
+
+                    DoubleBuffer sums = GRADIENT_BUFFERS[layers];
+                    DoubleBuffer other_sums = other.GRADIENT_BUFFERS[layers];
+
+                    for (int x = 0; x < sums.limit(); x++) {
+                        sums.put(x, sums.get(x) + other_sums.get(x));
+                    }
+
+                    continue;
+                }
+
+                for (int x = 0; x < gradient.length; x++) {
+                    gradient[x] += source[x];
+                }
+            }
+
+            error += other.error;
+        }
+
+        /**
+         * Feed a block of patterns forward and add their weight changes to the
+         * gradients.
+         *
+         * @param values Input vectors, one array per pattern.
+         * @param targets Expected target values, one array per pattern.
+         * @param from First pattern of the block.
+         * @param to Pattern after the last pattern of the block.
+         * @return Sum of the squared network error of each pattern.
+         */
+        double accumulate(double[][] values, double[][] targets, int from, int to) {
+
+            int rows = to - from;
+
+            sparse = false;
+            input_clean = false;
+
+            for (int row = 0; row < rows; row++) {
+                pushInput(values[from + row], 0, values[from + row].length,
+                        OUTPUTS[0], row * MATRIX[0]);
+            }
+
+            forward(rows);
+
+            double error = signal(targets, from, rows);
+
+            for (int layers = MATRIX.length - 1; layers > 0; layers--) {
+
+                if (layers < (MATRIX.length - 1)) {
+                    delta(layers, rows);
+                }
+
+                gradient(layers, rows);
+            }
+
+            return error;
+        }
+
+        /**
+         * Feed a block of sparse patterns forward and add their weight changes
+         * to the gradients, recording the inputs whose weights change.
+         *
+         * @param values Input vectors that are not zero, one per pattern.
+         * @param targets Expected target values, one array per pattern.
+         * @param rows Number of patterns in the block.
+         * @return Sum of the squared network error of each pattern, NaN if a
+         * vector does not fit the input layer.
+         */
+        double accumulate(SparseVector[] values, double[][] targets, int rows) {
+
+            if (!pushSparse(values, 0, rows)) {
+                return Double.NaN;
+            }
+
+            /**
+             * A pruned first layer is trained on the dense inputs.
+             */
+            if (OFFSETS[1] != null) {
+
+                sparse = false;
+                input_clean = false;
+
+                forwardSparse(rows);
+
+                double error = signal(targets, 0, rows);
+
+                for (int layers = MATRIX.length - 1; layers > 0; layers--) {
+
+                    if (layers < (MATRIX.length - 1)) {
+                        delta(layers, rows);
+                    }
+
+                    gradient(layers, rows);
+                }
+
+                return error;
+            }
+
+            sparse = true;
+
+            if (touched == null) {
+                touched = new boolean[MATRIX[0]];
+                touched_list = new int[MATRIX[0]];
+            }
+
+            for (int x = 0; x < sparse_starts[rows]; x++) {
+
+                int position = sparse_positions[x];
+
+                if (!touched[position]) {
+                    touched[position] = true;
+                    touched_list[touched_count++] = position;
+                }
+            }
+
+            forwardSparse(rows);
+
+            double error = signal(targets, 0, rows);
+
+            for (int layers = MATRIX.length - 1; layers > 0; layers--) {
+
+                if (layers < (MATRIX.length - 1)) {
+                    delta(layers, rows);
+                }
+
+                if (layers == 1) {
+                    gradientSparse(rows);
+                } else {
+                    gradient(layers, rows);
+                }
+            }
+
+            return error;
+        }
+
+        /**
+         * Load a block of sparse patterns as the inputs of the block. Bias
+         * input neurons push one, as in pushInput, and inputs that are zero
+         * are left out.
+         *
+         * @param vectors Input vectors that are not zero, one per pattern.
+         * @param from First pattern of the block.
+         * @param rows Number of patterns in the block.
+         * @return False if the positions of a vector are not ascending or do
+         * not fit the input layer.
+         */
+        boolean pushSparse(SparseVector[] vectors, int from, int rows) {
+
+            prepareInputs();
+
+            int[] inputs = input_positions;
+            int[] biases = bias_positions;
+
+            int size = rows * biases.length;
+
+            for (int row = 0; row < rows; row++) {
+                size += (vectors[from + row] == null) ? 0 : vectors[from + row].getCount();
+            }
+
+            if (sparse_positions == null || sparse_positions.length < size) {
+                sparse_positions = new int[Math.max(size, 16)];
+                sparse_values = new double[sparse_positions.length];
+            }
+
+            if (sparse_starts == null) {
+                sparse_starts = new int[ROWS + 1];
+            }
+
+            int pos = 0;
+
+            for (int row = 0; row < rows; row++) {
+
+                SparseVector vector = vectors[from + row];
+
+                if (vector == null) {
+                    return false;
+                }
+
+                sparse_starts[row] = pos;
+
+                int bias = 0;
+                int last = -1;
+
+                for (int x = 0; x < vector.getCount(); x++) {
+
+                    int index = vector.getIndex(x);
+
+                    if (index <= last || index >= inputs.length) {
+                        return false;
+                    }
+
+                    last = index;
+
+                    /**
+                     * Bias neurons before the input keep their place.
+                     */
+                    while (bias < biases.length && biases[bias] < inputs[index]) {
+                        sparse_positions[pos] = biases[bias++];
+                        sparse_values[pos++] = 1;
+                    }
+
+                    double value = vector.getValue(x);
+
+                    if (value != 0) {
+                        sparse_positions[pos] = inputs[index];
+                        sparse_values[pos++] = PRECISION.round(value);
+                    }
+                }
+
+                while (bias < biases.length) {
+                    sparse_positions[pos] = biases[bias++];
+                    sparse_values[pos++] = 1;
+                }
+            }
+
+            sparse_starts[rows] = pos;
+
+            return true;
+        }
+
+        /**
+         * Feed a block of sparse patterns, already pushed with pushSparse,
+         * through every hidden and output layer.
+         *
+         * @param rows Number of patterns in the block.
+         */
+        void forwardSparse(int rows) {
+
+            /**
+             * A pruned first layer has its own sparse weights, the inputs are
+             * spread out and fed forward dense.
+             */
+            if (OFFSETS[1] != null) {
+
+                double[] input = OUTPUTS[0];
+
+                Arrays.fill(input, 0, rows * MATRIX[0], 0);
+
+                for (int row = 0; row < rows; row++) {
+                    for (int x = sparse_starts[row]; x < sparse_starts[row + 1]; x++) {
+                        input[row * MATRIX[0] + sparse_positions[x]] = sparse_values[x];
+                    }
+                }
+
+                forward(rows);
+                return;
+            }
+
+            double[] output = OUTPUTS[1];
+            boolean[] bias = BIAS[1];
+            ActivationKernel kernel = KERNELS[1];
+
+            int links = MATRIX[0];
+            int size = MATRIX[1];
+
+            for (int row = 0; row < rows; row++) {
+
+                int from = sparse_starts[row];
+                int to = sparse_starts[row + 1];
+                int out = row * size;
+
+                for (int neurons = 0; neurons < size; neurons++) {
+
+                    if (bias[neurons]) {
+                        output[out + neurons] = 1;
+                        continue;
+                    }
+
+                    double sum = sparseSum(neurons * links, sparse_positions,
+                            sparse_values, from, to);
+
+                    output[out + neurons] = PRECISION.round(kernel.activate(sum));
+                }
+            }
+
+            for (int layers = 2; layers < MATRIX.length; layers++) {
+                forward(layers, rows);
+            }
+        }
+
+        /**
+         * Add the weight changes of a block of sparse patterns to the
+         * gradients of the first hidden layer, for the inputs that are not
+         * zero only.
+         *
+         * @param rows Number of patterns in the block.
+         */
+        private void gradientSparse(int rows) {
+
+            double[] delta = DELTAS[1];
+            double[] gradient = GRADIENTS[1];
+            DoubleBuffer sums = GRADIENT_BUFFERS[1];
+
+            int links = MATRIX[0];
+            int size = MATRIX[1];
+
+            for (int neurons = 0; neurons < size; neurons++) {
+
+                int g = neurons * links;
+
+                for (int row = 0; row < rows; row++) {
+
+                    double value = delta[row * size + neurons];
+
+                    if (value == 0) {
+                        continue;
+                    }
+
+                    int to = sparse_starts[row + 1];
+
+                    for (int x = sparse_starts[row]; x < to; x++) {
+
+                        int index = g + sparse_positions[x];
+
+                        if (gradient != null) {
+                            gradient[index] += value * sparse_values[x];
+                        } else {
+                            sums.put(index, sums.get(index) + value * sparse_values[x]);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Apply the weight changes of the first hidden layer for the inputs
+         * recorded by the last sparse block, and clear them again.
+         *
+         * @param rate Learning rate times momentum over the batch size.
+         */
+        void applySparse(double rate) {
+
+            double[] gradient = GRADIENTS[1];
+            DoubleBuffer sums = GRADIENT_BUFFERS[1];
+
+            int links = MATRIX[0];
+
+            for (int x = 0; x < touched_count; x++) {
+
+                int position = touched_list[x];
+
+                for (int neurons = 0; neurons < MATRIX[1]; neurons++) {
+
+                    int index = neurons * links + position;
+                    double change;
+
+                    if (gradient != null) {
+                        change = gradient[index];
+                        gradient[index] = 0;
+                    } else {
+                        change = sums.get(index);
+                        sums.put(index, 0);
+                    }
+
+                    setWeight(1, index, getWeight(1, index) - rate * change);
+                }
+
+                touched[position] = false;
+            }
+
+            touched_count = 0;
+        }
+
+        /**
+         * Feed a block of patterns, already loaded in the input layer, through
+         * every hidden and output layer.
+         *
+         * @param rows Number of patterns in the block.
+         */
+        void forward(int rows) {
+
+            for (int layers = 1; layers < MATRIX.length; layers++) {
+                forward(layers, rows);
+            }
+        }
+
+        /**
+         * Outputs of a layer for the block: the block of outputs from the
+         * layer above times the transposed weights, followed by the activation
+         * function.
+         *
+         * @param layers Position of current layer in the network.
+         * @param rows Number of patterns in the block.
+         */
+        private void forward(int layers, int rows) {
+
+            double[] input = OUTPUTS[layers - 1];
+            double[] output = OUTPUTS[layers];
+            boolean[] bias = BIAS[layers];
+            ActivationKernel kernel = KERNELS[layers];
+
+            int links = MATRIX[layers - 1];
+            int size = MATRIX[layers];
+
+            /**
+             * Weights held in buffers are copied out one neuron at a time and
+             * used for the whole block.
+             */
+            if (VIEWS != null) {
+
+                DoubleBuffer view = VIEWS[layers];
+
+                for (int neurons = 0; neurons < size; neurons++) {
+
+                    if (bias[neurons]) {
+
+                        for (int row = 0; row < rows; row++) {
+                            output[row * size + neurons] = 1;
+                        }
+
+                        continue;
+                    }
+
+                    view.position(neurons * links);
+                    view.get(ROW, 0, links);
+
+                    for (int row = 0; row < rows; row++) {
+
+                        int in = row * links;
+                        double sum = 0;
+
+                        for (int x = 0; x < links; x++) {
+                            sum += (input[in + x] * ROW[x]);
+                        }
+
+                        output[row * size + neurons] = PRECISION.round(kernel.activate(sum));
+                    }
+                }
+
+                return;
+            }
+
+            for (int block = 0; block < size; block += BLOCK) {
+
+                int last = Math.min(size, block + BLOCK);
+
+                for (int row = 0; row < rows; row++) {
+
+                    int in = row * links;
+                    int out = row * size;
+
+                    for (int neurons = block; neurons < last; neurons++) {
+
+                        if (bias[neurons]) {
+                            output[out + neurons] = 1;
+                            continue;
+                        }
+
+                        double sum = (OFFSETS[layers] != null)
+                                ? prunedSum(layers, input, in, neurons)
+                                : sum(layers, input, in, neurons * links, links);
+
+                        output[out + neurons] = PRECISION.round(kernel.activate(sum));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Error signal of each neuron, -(target - output) x out(1 - out), for
+         * every layer. As in HiddenNeuron.calculateError the target of the
+         * same position is used for hidden neurons, and only as many neurons
+         * as there are targets carry a signal. The output layer signal is its
+         * delta.
+         *
+         * @param targets Expected target values, one array per pattern.
+         * @param from First pattern of the block.
+         * @param rows Number of patterns in the block.
+         * @return Sum of the squared network error of each pattern.
+         */
+        private double signal(double[][] targets, int from, int rows) {
+
+            int outputLayer = MATRIX.length - 1;
+            double sumSquaredError = 0;
+
+            for (int row = 0; row < rows; row++) {
+
+                double[] target = targets[from + row];
+
+                for (int layers = 1; layers < MATRIX.length; layers++) {
+
+                    int size = MATRIX[layers];
+                    int offset = row * size;
+
+                    double[] output = OUTPUTS[layers];
+                    double[] signal = SIGNALS[layers];
+
+                    int count = Math.min(size, target.length);
+
+                    for (int neurons = 0; neurons < size; neurons++) {
+
+                        if (neurons >= count && layers < outputLayer) {
+                            signal[offset + neurons] = 0;
+                            continue;
+                        }
+
+                        double out = output[offset + neurons];
+                        signal[offset + neurons]
+                                = -(target[neurons] - out) * (out * (1 - out));
+                    }
+                }
+
+                /**
+                 * Network error of the pattern, as in Neuron.calculateError.
+                 */
+                double error = 0;
+                int offset = row * MATRIX[outputLayer];
+
+                for (int neurons = 0; neurons < MATRIX[outputLayer]; neurons++) {
+                    error += (Math.pow(target[neurons]
+                            - OUTPUTS[outputLayer][offset + neurons], 2) * 0.5);
+                }
+
+                sumSquaredError += Math.pow(error, 2);
+            }
+
+            System.arraycopy(SIGNALS[outputLayer], 0, DELTAS[outputLayer], 0,
+                    rows * MATRIX[outputLayer]);
+
+            return sumSquaredError;
+        }
+
+        /**
+         * Delta of each hidden neuron for the block: the block of signals from
+         * the layer below times its weights, times the derivative of the
+         * neuron output.
+         *
+         * @param layers Position of current layer in the network.
+         * @param rows Number of patterns in the block.
+         */
+        private void delta(int layers, int rows) {
+
+            double[] signal = SIGNALS[layers + 1];
+            double[] weight = WEIGHTS[layers + 1];
+            float[] floats = FLOATS[layers + 1];
+            int[] offsets = OFFSETS[layers + 1];
+            int[] columns = COLUMNS[layers + 1];
+            double[] output = OUTPUTS[layers];
+            double[] delta = DELTAS[layers];
+
+            int size = MATRIX[layers];
+            int below = MATRIX[layers + 1];
+
+            Arrays.fill(delta, 0, rows * size, 0);
+
+            /**
+             * Weights held in buffers are copied out one neuron at a time and
+             * used for the whole block, each delta still adds the neurons
+             * below in the same order.
+             */
+            if (VIEWS != null) {
+
+                DoubleBuffer view = VIEWS[layers + 1];
+
+                for (int neurons = 0; neurons < below; neurons++) {
+
+                    view.position(neurons * size);
+                    view.get(ROW, 0, size);
+
+                    for (int row = 0; row < rows; row++) {
+
+                        double value = signal[row * below + neurons];
+
+                        if (value == 0) {
+                            continue;
+                        }
+
+                        int offset = row * size;
+
+                        for (int x = 0; x < size; x++) {
+                            delta[offset + x] += value * ROW[x];
+                        }
+                    }
+                }
+            }
+
+            for (int row = 0; row < rows; row++) {
+
+                int offset = row * size;
+
+                for (int neurons = 0; VIEWS == null && neurons < below; neurons++) {
+
+                    double value = signal[row * below + neurons];
+
+                    if (value == 0) {
+                        continue;
+                    }
+
+                    /**
+                     * A pruned layer below only adds its weights left.
+                     */
+                    if (offsets != null) {
+
+                        int last = offsets[neurons + 1];
+
+                        for (int x = offsets[neurons]; x < last; x++) {
+                            delta[offset + columns[x]] += value
+                                    * ((weight != null) ? weight[x] : floats[x]);
+                        }
+
+                        continue;
+                    }
+
+                    int w = neurons * size;
+
+                    if (floats != null) {
+
+                        for (int x = 0; x < size; x++) {
+                            delta[offset + x] += value * floats[w + x];
+                        }
+
+                        continue;
+                    }
+
+                    for (int x = 0; x < size; x++) {
+                        delta[offset + x] += value * weight[w + x];
+                    }
+                }
+
+                for (int x = 0; x < size; x++) {
+                    double out = output[offset + x];
+                    delta[offset + x] *= (out * (1 - out));
+                }
+            }
+        }
+
+        /**
+         * Add the weight changes of the block to the gradients of a layer: the
+         * transposed block of deltas times the block of outputs from the layer
+         * above.
+         *
+         * @param layers Position of current layer in the network.
+         * @param rows Number of patterns in the block.
+         */
+        private void gradient(int layers, int rows) {
+
+            double[] delta = DELTAS[layers];
+            double[] input = OUTPUTS[layers - 1];
+            double[] gradient = GRADIENTS[layers];
+            DoubleBuffer sums = GRADIENT_BUFFERS[layers];
+
+            int links = MATRIX[layers - 1];
+            int size = MATRIX[layers];
+
+            /**
+             * A pruned layer only sums the changes of its weights left.
+             */
+            if (OFFSETS[layers] != null) {
+
+                int[] offsets = OFFSETS[layers];
+                int[] columns = COLUMNS[layers];
+
+                for (int neurons = 0; neurons < size; neurons++) {
+
+                    for (int row = 0; row < rows; row++) {
+
+                        double value = delta[row * size + neurons];
+
+                        if (value == 0) {
+                            continue;
+                        }
+
+                        int in = row * links;
+                        int last = offsets[neurons + 1];
+
+                        for (int x = offsets[neurons]; x < last; x++) {
+                            gradient[x] += value * input[in + columns[x]];
+                        }
+                    }
+                }
+
+                return;
+            }
+
+            /**
+             * Off heap changes are summed one neuron at a time in a heap row,
+             * copied in and out of the buffer in bulk.
+             */
+            if (sums != null) {
+                gradient = ROW;
+            }
+
+            for (int neurons = 0; neurons < size; neurons++) {
+
+                int g = neurons * links;
+
+                if (sums != null) {
+                    sums.position(g);
+                    sums.get(gradient, 0, links);
+                    g = 0;
+                }
+
+                for (int row = 0; row < rows; row++) {
+
+                    double value = delta[row * size + neurons];
+
+                    if (value == 0) {
+                        continue;
+                    }
+
+                    int in = row * links;
+
+                    for (int x = 0; x < links; x++) {
+                        gradient[g + x] += value * input[in + x];
+                    }
+                }
+
+                if (sums != null) {
+                    sums.position(neurons * links);
+                    sums.put(gradient, 0, links);
+                }
+            }
+        }
+    }
+
+    /**
+     * This computes the weight changes for a range of parts of a batch,
+     * splitting the range in two until each task handles a single part, and
+     * then adds the buffers of the second half into the first.
+     */
+    private final class Accumulate extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final double[][] VALUES;
+        private final double[][] TARGETS;
+
+        private final int ROWS;
+        private final int CHUNK;
+        private final int FIRST;
+        private final int LAST;
+
+        /**
+         * Constructor
+         *
+         * @param values Input vectors, one array per pattern.
+         * @param targets Expected target values, one array per pattern.
+         * @param rows Number of patterns in the batch.
+         * @param chunk Number of patterns per part.
+         * @param first First part handled by the task.
+         * @param last Part after the last part handled by the task.
+         */
+        Accumulate(double[][] values, double[][] targets, int rows, int chunk,
+                int first, int last) {
+
+            this.VALUES = values;
+            this.TARGETS = targets;
+            this.ROWS = rows;
+            this.CHUNK = chunk;
+            this.FIRST = first;
+            this.LAST = last;
+        }
+
+        @Override
+        protected void compute() {
+
+            if ((LAST - FIRST) == 1) {
+
+                Workspace worker = workers[FIRST];
+
+                worker.clearGradients();
+                worker.error = worker.accumulate(VALUES, TARGETS,
+                        FIRST * CHUNK, Math.min(ROWS, (FIRST + 1) * CHUNK));
+
+                return;
+            }
+
+            int middle = (FIRST + LAST) >>> 1;
+
+            invokeAll(new Accumulate(VALUES, TARGETS, ROWS, CHUNK, FIRST, middle),
+                    new Accumulate(VALUES, TARGETS, ROWS, CHUNK, middle, LAST));
+
+            /**
+             * Reduce the second half into the first.
+             */
+            workers[FIRST].add(workers[middle]);
+        }
+    }
+}
@@ -15,8 +15,10 @@
  */
 package prototype.framework.processing;
 
+import java.util.Arrays;
 import java.util.Map;
 import javax.swing.event.EventListenerList;
+import prototype.framework.util.NetworkUtil;
 import prototype.framework.util.NeuronUtil;
 
 /**
@@ -34,6 +36,23 @@ public class FeedForward implements IProcessingEvent {
      */
     final protected EventListenerList listenerList;
 
+    /**
+     * Debug information is only built and broadcast when tracing has been
+     * enabled and someone is listening. This is checked once per pass.
+     */
+    private boolean traceEnabled;
+    private boolean trace;
+
+    /**
+     * Neuron names, the table of neurons looked up from the map and the result
+     * buffer are built once per matrix and reused on every pass, so a pass
+     * does not allocate.
+     */
+    private int[] namesMatrix;
+    private String[][] names;
+    private Object[][] table;
+    private double[] result;
+
     /**
      * Constructor
      */
@@ -60,6 +79,25 @@ public class FeedForward implements IProcessingEvent {
         listenerList.remove(IProcessingEvent.class, listener);
     }
 
+    /**
+     * Enable or disable the broadcast of debug information. When disabled no
+     * debug messages are built while processing.
+     *
+     * @param enabled True to broadcast debug information.
+     */
+    public void setTraceEnabled(boolean enabled) {
+        this.traceEnabled = enabled;
+    }
+
+    /**
+     * Returns true if debug information is broadcast.
+     *
+     * @return True if tracing is enabled.
+     */
+    public boolean isTraceEnabled() {
+        return this.traceEnabled;
+    }
+
     /**
      * broadcast debug info event to listeners
      *
@@ -88,36 +126,104 @@ public class FeedForward implements IProcessingEvent {
      */
     public double[] start(int matrix[], double[] vectors, Map<String, Object> network) {
 
+        /**
+         * Hand back a copy, as the caller may hold on to the result.
+         */
+        return propagate(matrix, vectors, network).clone();
+    }
+
+    /**
+     * Start the feed forward on a table of neurons indexed by layer and
+     * position and return computed result.
+     *
+     * @param matrix Provide a matrix of the network as an array
+     * @param vectors Input vectors for feed forward
+     * @param layers Neurons of each layer, see NetworkUtil.getNeuronTable.
+     * @return Returns computed results.
+     */
+    public double[] start(int matrix[], double[] vectors, Object[][] layers) {
+
+        /**
+         * Hand back a copy, as the caller may hold on to the result.
+         */
+        return propagate(matrix, vectors, layers).clone();
+    }
+
+    /**
+     * Run the feed forward using current set weights without allocating. The
+     * returned array is reused by this instance and is only valid until the
+     * next pass.
+     *
+     * @param matrix Provide a matrix of the network as an array
+     * @param vectors Input vectors for feed forward
+     * @param network Map of the neural network.
+     * @return Returns computed results.
+     */
+    public double[] propagate(int matrix[], double[] vectors, Map<String, Object> network) {
+
+        /**
+         * Names only need to be rebuilt if the matrix has changed.
+         */
+        if (!Arrays.equals(namesMatrix, matrix)) {
+            namesMatrix = matrix.clone();
+            names = NetworkUtil.getNeuronNames(matrix);
+        }
+
+        /**
+         * Look each neuron up once, the map may have changed since the last
+         * pass.
+         */
+        table = NetworkUtil.getNeuronTable(names, network, table);
+
+        return propagate(matrix, vectors, table);
+    }
+
+    /**
+     * Run the feed forward on a table of neurons without allocating. The
+     * returned array is reused by this instance and is only valid until the
+     * next pass.
+     *
+     * @param matrix Provide a matrix of the network as an array
+     * @param vectors Input vectors for feed forward
+     * @param layers Neurons of each layer, see NetworkUtil.getNeuronTable.
+     * @return Returns computed results.
+     */
+    public double[] propagate(int matrix[], double[] vectors, Object[][] layers) {
+
+        /**
+         * Only trace this pass if enabled and someone is listening.
+         */
+        trace = traceEnabled && listenerList.getListenerCount() > 0;
+
+        if (result == null || result.length != matrix[matrix.length - 1]) {
+            result = new double[matrix[matrix.length - 1]];
+        }
+
         /**
          * How many Layers do we have in the neural network?
          */
-        for (int layers = 0; layers < matrix.length; layers++) {
+        for (int layer = 0; layer < matrix.length; layer++) {
 
             /**
              * How many neurons do we have within each layer?
              */
-            for (int neurons = 0; neurons < matrix[layers]; neurons++) {
+            for (int neurons = 0; neurons < matrix[layer]; neurons++) {
 
-                if (layers == 0) {
+                if (layer == 0) {
 
                     /**
                      * Input Neurons - Load vectors.
                      */
-                    pushInput(vectors, network, neurons);
-
-                } else if (layers == (matrix.length - 1)) {
-
-                    /**
-                     * This is the output layer.
-                     */
-                    pushOutput(matrix, network, neurons, layers);
+                    pushInput(vectors, layers[0][neurons]);
 
                 } else {
 
                     /**
-                     * n-Amount of Hidden layers.
+                     * n-Amount of Hidden layers and the output layer. Only
+                     * hidden layers may have bias neurons.
                      */
-                    pushHidden(matrix, network, neurons, layers);
+                    pushLayer(matrix, layers[layer][neurons], layers[layer - 1],
+                            layer, layer < (matrix.length - 1));
                 }
             }
         }
@@ -125,7 +231,7 @@ public class FeedForward implements IProcessingEvent {
         /**
          * Pull final output from network.
          */
-        return pullResult(matrix, network);
+        return pullResult(matrix, layers[matrix.length - 1]);
     }
 
     /**
@@ -133,13 +239,10 @@ public class FeedForward implements IProcessingEvent {
      * to each neuron in the input layer.
      *
      * @param vectors Input vectors for feed forward
-     * @param network Map of the neural network.
-     * @param position Position of Neuron in the network.
+     * @param neuron Neuron in the input layer, may be null.
      */
-    private void pushInput(double[] vectors, Map<String, Object> network,
-            int position) {
+    private void pushInput(double[] vectors, Object neuron) {
 
-        String name = "a-" + (position + 1);
         int pos;
 
         /**
@@ -157,9 +260,9 @@ public class FeedForward implements IProcessingEvent {
         /**
          * See if the neuron exists within the network matrix.
          */
-        if (network.containsKey(name)) {
+        if (neuron != null) {
 
-            boolean bias = NeuronUtil.getNeuronBias(network.get(name));
+            boolean bias = NeuronUtil.getNeuronBias(neuron);
 
             /**
              * Don't push to bias neurons.
@@ -169,15 +272,17 @@ public class FeedForward implements IProcessingEvent {
                 /**
                  * Push output to the next level.
                  */
-                NeuronUtil.setNeuronInput(network.get(name), 0, vectors[pos]);
+                NeuronUtil.setNeuronInput(neuron, 0, vectors[pos]);
 
                 /**
                  * Will push this info to whoever is listening on the debugInfo
                  * channel.
                  */
-                debugInfo("Setting input vectors "
-                        + NeuronUtil.getNeuronName(network.get(name))
-                        + " " + vectors[pos]);
+                if (trace) {
+                    debugInfo("Setting input vectors "
+                            + NeuronUtil.getNeuronName(neuron)
+                            + " " + vectors[pos]);
+                }
 
                 /**
                  * Set the Vector to Nan once used.
@@ -189,193 +294,107 @@ public class FeedForward implements IProcessingEvent {
                 /**
                  * Push output to the next level.
                  */
-                NeuronUtil.setNeuronInput(network.get(name), 0, 1);
+                NeuronUtil.setNeuronInput(neuron, 0, 1);
 
                 /**
                  * Will push this info to whoever is listening on the debugInfo
                  * channel.
                  */
-                debugInfo("Setting Bias "
-                        + NeuronUtil.getNeuronName(network.get(name))
-                );
+                if (trace) {
+                    debugInfo("Setting Bias "
+                            + NeuronUtil.getNeuronName(neuron)
+                    );
+                }
             }
 
         }
     }
 
     /**
-     * Push data from n-hidden layer or input layer.
+     * Push data from the layer below into a neuron in a hidden layer or the
+     * output layer.
      *
      * @param matrix Provide a matrix of the network as an array
-     * @param network Map of the neural network.
-     * @param neuron Position of neuron in the network.
-     * @param layers Position of current layer in the network.
+     * @param neuron Neuron being pushed to, may be null.
+     * @param below Neurons of the layer below.
+     * @param layer Position of current layer in the network.
+     * @param hidden True if the neuron is in a hidden layer.
      */
-    private void pushHidden(int matrix[], Map<String, Object> network,
-            int neuron, int layers) {
-
-        String name_hidden = "b-" + (neuron + 1) + "-" + layers;
+    private void pushLayer(int matrix[], Object neuron, Object[] below,
+            int layer, boolean hidden) {
 
-        if (network.containsKey(name_hidden)) {
-
-            /**
-             * Don't push to Bias Neurons.
-             */
-            if (NeuronUtil.getNeuronBias(network.get(name_hidden))) {
-                return;
-            }
-
-            for (int neurons = 0; neurons < matrix[layers - 1]; neurons++) {
-                if (layers == 1) {
-
-                    /**
-                     * We are passing from the input to hidden.
-                     */
-                    String name_input = "a-" + (neurons + 1);
-
-                    if (network.containsKey(name_input)) {
-
-                        /**
-                         * Don't push to Bias Neurons.
-                         */
-                        if (NeuronUtil.getNeuronBias(network.get(name_hidden)) != true) {
-
-                            /**
-                             * Push output to the next level.
-                             */
-                            NeuronUtil.setNeuronInput(network.get(name_hidden),
-                                    neurons,
-                                    NeuronUtil.getNeuronOutput(network.get(name_input))
-                            );
-
-                            /**
-                             * Will push this info to whoever is listening on
-                             * the debugInfo channel.
-                             */
-                            debugInfo("Pushing "
-                                    + NeuronUtil.getNeuronName(network.get(name_input)) + " -> "
-                                    + NeuronUtil.getNeuronName(network.get(name_hidden)) + " -{"
-                                    + NeuronUtil.getNeuronOutput(network.get(name_input)) + "}");
-
-                        }
-                    }
-
-                } else {
-
-                    /**
-                     * We are passing from the hidden to hidden.
-                     */
-                    String name_input = "b-" + (neurons + 1) + "-" + (layers - 1);
-
-                    /* Are we passing from the hidden to hidden?*/
-                    if (network.containsKey(name_input)) {
-
-                        /**
-                         * Push output to the next level.
-                         */
-                        NeuronUtil.setNeuronInput(network.get(name_hidden),
-                                neurons,
-                                NeuronUtil.getNeuronOutput(network.get(name_input))
-                        );
-
-                        /**
-                         * Will push this info to whoever is listening on the
-                         * debugInfo channel.
-                         */
-                        debugInfo("Pushing "
-                                + NeuronUtil.getNeuronName(network.get(name_input)) + " -> "
-                                + NeuronUtil.getNeuronName(network.get(name_hidden)) + " - {"
-                                + NeuronUtil.getNeuronOutput(network.get(name_input)) + "}");
-
-                    }
-                }
-            }
+        if (neuron == null) {
+            return;
         }
-    }
-
-    /**
-     * Push to output layer
-     *
-     * @param matrix Provide a matrix of the network as an array
-     * @param network Map of the neural network.
-     * @param neuron Position of neuron in the network.
-     * @param layers Position of current layer in the network.
-     */
-    private void pushOutput(int matrix[], Map<String, Object> network,
-            int neuron, int layers) {
-
-        String name_out = "c-" + (neuron + 1);
 
         /**
-         * Get the output neuron we are pulling data from.
+         * Don't push to Bias Neurons.
          */
-        if (network.containsKey(name_out)) {
+        if (hidden && NeuronUtil.getNeuronBias(neuron)) {
+            return;
+        }
 
-            for (int neurons = 0; neurons < matrix[layers - 1]; neurons++) {
+        for (int neurons = 0; neurons < matrix[layer - 1]; neurons++) {
 
-                String name_hidden = "b-" + (neurons + 1) + "-" + (layers - 1);
+            Object input = below[neurons];
 
-                if (network.containsKey(name_hidden)) {
+            if (input != null) {
 
-                    /**
-                     * Push output to the next level.
-                     */
-                    NeuronUtil.setNeuronInput(network.get(name_out),
-                            neurons,
-                            NeuronUtil.getNeuronOutput(network.get(name_hidden))
-                    );
+                /**
+                 * Push output to the next level.
+                 */
+                NeuronUtil.setNeuronInput(neuron, neurons,
+                        NeuronUtil.getNeuronOutput(input));
 
-                    /**
-                     * Will push this info to whoever is listening on the
-                     * debugInfo channel.
-                     */
+                /**
+                 * Will push this info to whoever is listening on the debugInfo
+                 * channel.
+                 */
+                if (trace) {
                     debugInfo("Pushing "
-                            + NeuronUtil.getNeuronName(network.get(name_hidden)) + " -> "
-                            + NeuronUtil.getNeuronName(network.get(name_out)) + " - {"
-                            + NeuronUtil.getNeuronOutput(network.get(name_hidden)) + "}");
-
+                            + NeuronUtil.getNeuronName(input) + " -> "
+                            + NeuronUtil.getNeuronName(neuron) + " - {"
+                            + NeuronUtil.getNeuronOutput(input) + "}");
                 }
             }
         }
-
     }
 
     /**
      * Pull computation from final layer
      *
      * @param matrix Provide a matrix of the network as an array
-     * @param network Map of the neural network.
-     * @param neuron Position of neuron in the network.
+     * @param outputs Neurons of the output layer.
      * @return Computed result
      */
-    private double[] pullResult(int matrix[], Map<String, Object> network) {
+    private double[] pullResult(int matrix[], Object[] outputs) {
 
-        double result[] = new double[matrix[matrix.length - 1]];
+        /**
+         * Clear results left from the previous pass.
+         */
+        Arrays.fill(result, 0);
 
         for (int layer = 0; layer < matrix[matrix.length - 1]; layer++) {
 
             /**
-             * This is the Output Layer.
+             * Check if the Neuron exists in the Output Layer.
              */
-            String name = "c-" + (layer + 1);
-
-            /**
-             * Check if the Neuron exists.
-             */
-            if (network.containsKey(name)) {
+            if (outputs[layer] != null) {
 
                 /**
                  * Pull result from output neuron.
                  */
-                result[layer] = NeuronUtil.getNeuronOutput(network.get(name));
+                result[layer] = NeuronUtil.getNeuronOutput(outputs[layer]);
 
                 /**
                  * Will push this info to whomever is listening on the debugInfo
                  * channel.
                  */
-                debugInfo("Final result from "
-                        + NeuronUtil.getNeuronName(network.get(name))
-                        + " = " + result[layer]);
+                if (trace) {
+                    debugInfo("Final result from "
+                            + NeuronUtil.getNeuronName(outputs[layer])
+                            + " = " + result[layer]);
+                }
 
             }
         }
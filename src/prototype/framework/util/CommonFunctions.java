@@ -16,10 +16,8 @@
 package prototype.framework.util;
 
 import java.util.Random;
-import org.w3c.dom.DOMException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
@@ -32,85 +30,55 @@ import java.util.concurrent.ThreadLocalRandom;
 public class CommonFunctions {
 
     /**
-     * This will extract the attribute of an XML node given the name, attribute
-     * type and position.
-     *
-     * @param nNode This is the node in the XML Document.
-     * @param name The name of the node we are looking for.
-     * @param value The name of the attribute we are looking for.
-     * @param pos The position of the attribute, if we are dealing with
-     * multi-value.
-     * @return Returns the value of the node attribute as a string value.
-     */
-    public static String extractNodeValue(Node nNode, String name, String value,
-            int pos) {
-
-        try {
-
-            Element eElement = (Element) nNode;
-            Element item = (Element) eElement.getElementsByTagName(name).item(pos);
-            
-            return item.getAttribute(value);
-
-        } catch (NumberFormatException | DOMException e) {
-
-            return null;
-        }
-    }
-
-    /**
-     * This is an internal function that is used to get the values and
-     * attributes of each neuron in the network when saving algorithm data for
+     * This is an internal function that is used to write the values and
+     * attributes of each neuron in the network when saving algorithm data to
      * file.
      *
-     * @param doc XML Document passed.
+     * @param writer XML stream being written.
      * @param neuron Neuron Object
-     * @return Node Returns new node based on values passed.
+     * @throws XMLStreamException If the neuron could not be written.
      */
-    static Node getNeuron(Document doc, Object neuron) {
-        Element element = doc.createElement("Neuron");
+    static void writeNeuron(XMLStreamWriter writer, Object neuron)
+            throws XMLStreamException {
+
+        double[] weights = NeuronUtil.getNeuronWeight(neuron);
+
+        writer.writeCharacters("\n    ");
+        writer.writeStartElement("Neuron");
 
         /**
          * Set id attribute.
          */
-        element.setAttribute("id", NeuronUtil.getNeuronName(neuron));
+        writer.writeAttribute("id", NeuronUtil.getNeuronName(neuron));
 
-        element.appendChild(
-                getNeuronWeights(
-                        doc, "bias", "value",
-                        Boolean.toString(NeuronUtil.getNeuronBias(neuron))));
+        writeNeuronValue(writer, "bias",
+                Boolean.toString(NeuronUtil.getNeuronBias(neuron)));
 
-        element.appendChild(
-                getNeuronWeights(doc, "weights", "value",
-                        Integer.toString(NeuronUtil.getNeuronWeight(neuron).length)));
+        writeNeuronValue(writer, "weights", Integer.toString(weights.length));
 
-        for (int x = 0; x < NeuronUtil.getNeuronWeight(neuron).length; x++) {
-            
-            element.appendChild(
-                    getNeuronWeights(doc, "weight", "value",
-                            Double.toString(NeuronUtil.getNeuronWeight(neuron)[x])));
-            
+        for (int x = 0; x < weights.length; x++) {
+            writeNeuronValue(writer, "weight", Double.toString(weights[x]));
         }
 
-        return element;
+        writer.writeCharacters("\n    ");
+        writer.writeEndElement();
     }
 
     /**
-     * This is a utility method to create text node.
+     * This is a utility method to write an empty element holding a value
+     * attribute.
      *
-     * @param doc XML Document
-     * @param name name of node to be created.
-     * @param attribute attribute of node.
+     * @param writer XML stream being written.
+     * @param name name of element to be written.
      * @param value value of attribute.
-     * @return Node Returns a Node created based on parsed values.
+     * @throws XMLStreamException If the element could not be written.
      */
-    private static Node getNeuronWeights(Document doc, String name,
-            String attribute, String value) {
-
-        Element node = doc.createElement(name);
-        node.setAttribute(attribute, value);
+    private static void writeNeuronValue(XMLStreamWriter writer, String name,
+            String value) throws XMLStreamException {
 
-        return node;
+        writer.writeCharacters("\n        ");
+        writer.writeEmptyElement(name);
+        writer.writeAttribute("value", value);
     }
 
     /**
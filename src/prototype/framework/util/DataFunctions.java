@@ -15,10 +15,13 @@
  */
 package prototype.framework.util;
 
+import java.nio.DoubleBuffer;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
+import prototype.framework.data.ArrayDataset;
+import prototype.framework.data.IDataset;
 
 /**
  *
@@ -99,6 +102,73 @@ public class DataFunctions {
         }
     }
 
+    /**
+     * This is used to split a dataset into training and validation datasets.
+     * The validation rows are picked at random, the training rows keep the
+     * order they had.
+     *
+     * @param trainSet This is the dataset given that will be split.
+     * @param trainTarget This is the target values associated with the dataSet.
+     * @param percentage The percentage of the data used as validation data.
+     * @return Training set, training targets, validation set and validation
+     * targets, in that order.
+     */
+    public static ArrayDataset[] splitTrainingData(IDataset trainSet,
+            IDataset trainTarget, int percentage) {
+
+        int rows = Math.min(trainSet.getRows(), trainTarget.getRows());
+
+        /**
+         * Get split percentage and amount of records that are to be used as
+         * validation data.
+         */
+        int split = (int) (rows * ((double) percentage) / 100);
+
+        int rnd[] = CommonFunctions.createSequence(rows);
+        rnd = CommonFunctions.shuffleArray(rnd);
+
+        /**
+         * The rest of the rows are used for training, in their first order.
+         */
+        Arrays.sort(rnd, split, rows);
+
+        return new ArrayDataset[]{
+            copyRows(trainSet, rnd, split, rows),
+            copyRows(trainTarget, rnd, split, rows),
+            copyRows(trainSet, rnd, 0, split),
+            copyRows(trainTarget, rnd, 0, split)
+        };
+    }
+
+    /**
+     * Internal function that copies some of the rows of a dataset into a new
+     * dataset.
+     *
+     * @param data Dataset to copy from.
+     * @param order Positions of the rows to copy.
+     * @param from First entry of order to copy.
+     * @param to Entry of order after the last to copy.
+     * @return Dataset of the rows copied.
+     */
+    private static ArrayDataset copyRows(IDataset data, int[] order, int from, int to) {
+
+        int[] offsets = new int[(to - from) + 1];
+
+        for (int x = from; x < to; x++) {
+            offsets[(x - from) + 1] = offsets[x - from] + data.getColumns(order[x]);
+        }
+
+        double[] values = new double[offsets[to - from]];
+
+        for (int x = from; x < to; x++) {
+
+            DoubleBuffer row = data.getRowBuffer(order[x]);
+            row.get(values, offsets[x - from], row.remaining());
+        }
+
+        return new ArrayDataset(values, offsets);
+    }
+
     /**
      * The method performs a Gaussian normalization on the specified columns by
      * subtracting the column mean from each value and then dividing by the
@@ -185,4 +255,81 @@ public class DataFunctions {
          */
         return data_map;
     }
+
+    /**
+     * This performs the same Gaussian normalization as normalizeData on a
+     * dataset, giving the same values. Every row must hold the same number
+     * of values.
+     *
+     * @param data Data to be normalized.
+     * @return Returns a new dataset of normalized data, or null if the rows
+     * differ in size.
+     */
+    public static ArrayDataset normalizeData(IDataset data) {
+
+        int rows = data.getRows();
+        int width = data.getWidth();
+
+        if (width < 0) {
+            return null;
+        }
+
+        /**
+         * Copy the data so we don't modify the original.
+         */
+        double[] values = new double[rows * width];
+
+        for (int row = 0; row < rows; row++) {
+            data.getRowBuffer(row).get(values, row * width, width);
+        }
+
+        /**
+         * Work out every column together so the array is read in order, the
+         * sums of each column are still added up row by row.
+         */
+        double[] mean = new double[width];
+        double[] sum = new double[width];
+
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < width; col++) {
+                sum[col] += values[(row * width) + col];
+            }
+        }
+
+        for (int col = 0; col < width; col++) {
+            mean[col] = sum[col] / rows;
+        }
+
+        /**
+         * As with normalizeData the squared deviations are added on to the
+         * column sum.
+         */
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < width; col++) {
+
+                double value = values[(row * width) + col] - mean[col];
+                sum[col] += value * value;
+            }
+        }
+
+        /**
+         * Update column and row with new normalized value.
+         */
+        for (int col = 0; col < width; col++) {
+            sum[col] = Math.sqrt(sum[col] / (rows - 1));
+        }
+
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < width; col++) {
+
+                int at = (row * width) + col;
+                values[at] = (values[at] - mean[col]) / sum[col];
+            }
+        }
+
+        /**
+         * Return new dataset with normalized data.
+         */
+        return new ArrayDataset(values, width, rows);
+    }
 }
@@ -15,30 +15,30 @@
  */
 package prototype.framework.util;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import org.w3c.dom.DOMException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.xml.sax.SAXException;
+import java.util.function.Function;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import prototype.framework.data.ArrayDataset;
+import prototype.framework.data.CSVReader;
+import prototype.framework.data.DatasetCache;
+import prototype.framework.data.IDataset;
+import prototype.framework.data.MappedDataset;
 /**
  *
  * @author Quintin-John Smith
@@ -49,30 +49,137 @@ import org.xml.sax.SAXException;
 public class FileFunctions {
 
     /**
-     * This retrieve the saved XML file from a specified file path and return
-     * the data as a document.
+     * This reads a network saved as XML in a single streaming pass. When the
+     * Network element is read its size is passed to the builder, which returns
+     * the map of the new network, and each Neuron element is then copied into
+     * the neuron of the same name as it is read. No document is kept in
+     * memory, so time and memory do not grow with the square of the number
+     * of weights per neuron.
+     *
+     * As with setNeuron, the weights of a neuron are only set when their
+     * number matches the connections of the neuron, and neurons not found in
+     * the network are skipped.
      *
      * @param file Path and name of file to be loaded.
-     * @return Document Returns and XML Document.
+     * @param builder Builds the network for the matrix read from the file.
+     * @return Map Returns the map of the loaded network, or null if the file
+     * could not be read.
      */
-    public static Document loadNetworkFromFile(File file) {
+    public static Map<String, Object> readNetworkFromFile(File file,
+            Function<int[], Map<String, Object>> builder) {
+
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+
+        /**
+         * Network files never need a DTD or external entities.
+         */
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        try (InputStream stream = new BufferedInputStream(new FileInputStream(file))) {
+
+            XMLStreamReader reader = factory.createXMLStreamReader(stream);
+
+            Map<String, Object> network = null;
+
+            Object neuron = null;
+            int links = 0;
+            int weights = -1;
+            int pos = 0;
+
+            try {
+
+                while (reader.hasNext()) {
+
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+
+                    switch (reader.getLocalName()) {
+
+                        case "Network":
+
+                            network = builder.apply(
+                                    parseMatrix(reader.getAttributeValue(null, "size")));
+                            break;
+
+                        case "Neuron":
+
+                            neuron = (network == null) ? null
+                                    : network.get(reader.getAttributeValue(null, "id"));
+
+                            links = (neuron == null) ? 0
+                                    : NeuronUtil.getNeuronWeight(neuron).length;
+                            weights = -1;
+                            pos = 0;
+                            break;
+
+                        case "bias":
+
+                            if (neuron != null) {
+                                NeuronUtil.setNeuronBias(neuron, Boolean.parseBoolean(
+                                        reader.getAttributeValue(null, "value")));
+                            }
+                            break;
+
+                        case "weights":
 
-        try {
+                            weights = Integer.parseInt(reader.getAttributeValue(null, "value"));
+                            break;
 
-            File fXmlFile = file;
-            DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-            Document doc = dBuilder.parse(fXmlFile);
+                        case "weight":
 
-            doc.getDocumentElement().normalize();
+                            /**
+                             * Only weights matching the neuron connections are
+                             * set.
+                             */
+                            if (neuron != null && weights == links && pos < weights) {
+                                NeuronUtil.setNeuronWeight(neuron, pos, Double.parseDouble(
+                                        reader.getAttributeValue(null, "value")));
+                            }
 
-            return doc;
+                            pos++;
+                            break;
 
-        } catch (ParserConfigurationException | SAXException | IOException ex) {
+                        default:
+                            break;
+                    }
+                }
+
+            } finally {
+
+                reader.close();
+            }
+
+            return network;
+
+        } catch (XMLStreamException | IOException | RuntimeException ex) {
 
             return null;
         }
+    }
+
+    /**
+     * Parse the size attribute of a network file, written as "[3, 4, 2]".
+     *
+     * @param size Value of the size attribute.
+     * @return Matrix of network.
+     */
+    private static int[] parseMatrix(String size) {
+
+        String[] matrix_size = size.split(",");
+        int[] matrix = new int[matrix_size.length];
+
+        /**
+         * Strip out unwanted characters from saved algorithm.
+         */
+        for (int x = 0; x < matrix_size.length; x++) {
+
+            matrix[x] = Integer.parseInt(matrix_size[x]
+                    .replace("[", "").replace(" ", "").replace("]", ""));
+        }
 
+        return matrix;
     }
 
     /**
@@ -87,98 +194,133 @@ public class FileFunctions {
     public static Boolean saveNetworkToFile(File file, Map<String, Object> network,
             int matrix[]) {
 
-        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder dBuilder;
-
-        String name;
-
-        try {
+        XMLOutputFactory factory = XMLOutputFactory.newInstance();
 
-            dBuilder = dbFactory.newDocumentBuilder();
-            Document doc = dBuilder.newDocument();
+        try (Writer stream = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8))) {
 
             /**
-             * Add elements to Document. 
+             * Each element is written out as soon as it is created, so no
+             * document is held in memory.
              */
-            Element rootElement = doc.createElement("Network");
-            rootElement.setAttribute("size", Arrays.toString(matrix));
-            doc.appendChild(rootElement);
+            XMLStreamWriter writer = factory.createXMLStreamWriter(stream);
 
-            /**
-             * How many Layers do we have in the neural network? 
-             */
-            for (int layers = 0; layers < matrix.length; layers++) {
+            try {
+
+                writer.writeStartDocument("UTF-8", "1.0");
+                writer.writeCharacters("\n");
+
+                writer.writeStartElement("Network");
+                writer.writeAttribute("size", Arrays.toString(matrix));
 
                 /**
-                 * How many neurons do we have within each layer? 
+                 * Walk the neurons of each layer in order, the names are only
+                 * written out by the neurons themselves.
                  */
-                for (int neurons = 0; neurons < matrix[layers]; neurons++) {
-                    if (layers == 0) {
-                        /* Load input neurons */
-                        name = "a-" + (neurons + 1);
-
-                        if (network.get(name) != null) {
-                            rootElement.appendChild(
-                                    CommonFunctions.getNeuron(doc, network.get(name)));
-                        }
+                Object[][] table = NetworkUtil.getNeuronTable(matrix, network);
 
-                    } else if (layers == (matrix.length - 1)) {
-                        /** 
-                         * Load output neurons. 
-                         */
-                        name = "c-" + (neurons + 1);
-
-                        if (network.get(name) != null) {
-                            rootElement.appendChild(
-                                    CommonFunctions.getNeuron(doc, network.get(name)));
-                        }
+                /**
+                 * How many Layers do we have in the neural network? 
+                 */
+                for (int layers = 0; layers < matrix.length; layers++) {
 
-                    } else {
-                        /**
-                         * Load hidden neuron layers. 
-                         */
-                        name = "b-" + (neurons + 1) + "-" + layers;
+                    /**
+                     * How many neurons do we have within each layer? 
+                     */
+                    for (int neurons = 0; neurons < matrix[layers]; neurons++) {
 
-                        if (network.get(name) != null) {
-                            rootElement.appendChild(
-                                    CommonFunctions.getNeuron(doc, network.get(name)));
+                        if (table[layers][neurons] != null) {
+                            CommonFunctions.writeNeuron(writer, table[layers][neurons]);
                         }
                     }
                 }
-            }
 
-            /**
-             * For output to file. 
-             */
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            Transformer transformer = transformerFactory.newTransformer();
+                writer.writeCharacters("\n");
+                writer.writeEndElement();
+                writer.writeCharacters("\n");
+                writer.writeEndDocument();
 
-            /**
-             * Correct formatting.
-             */
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            DOMSource source = new DOMSource(doc);
+            } finally {
 
-            /**
-             * Write to file. 
-             */
-            StreamResult sfile = new StreamResult(file);
-            transformer.transform(source, sfile);
+                writer.close();
+            }
 
-        } catch (ParserConfigurationException | DOMException e) {
+        } catch (XMLStreamException | IOException ex) {
 
             return false;
+        }
 
-        } catch (TransformerConfigurationException ex) {
+        return true;
+    }
 
-            return false;
+    /**
+     * This function is used to save the current network configuration to the
+     * compact binary format, see NetworkFile.
+     *
+     * @param file Path and name of file to be saved.
+     * @param network Map of current network configuration.
+     * @param matrix Matrix of network to be created, passed as an array.
+     * @return boolean true/false for successful saving network file.
+     */
+    public static Boolean saveNetworkToBinaryFile(File file, Map<String, Object> network,
+            int matrix[]) {
 
-        } catch (TransformerException ex) {
+        return NetworkFile.write(file, matrix, NetworkUtil.getNeuronTable(matrix, network));
+    }
 
-            return false;
-        }
+    /**
+     * This function is used to save the current network configuration to the
+     * compact binary format, storing only the weights that are not zero for
+     * the layers flagged as pruned.
+     *
+     * @param file Path and name of file to be saved.
+     * @param network Map of current network configuration.
+     * @param matrix Matrix of network to be created, passed as an array.
+     * @param pruned Pruned flag of each layer, null if none is pruned.
+     * @return boolean true/false for successful saving network file.
+     */
+    public static Boolean saveNetworkToBinaryFile(File file, Map<String, Object> network,
+            int matrix[], boolean pruned[]) {
 
-        return true;
+        return NetworkFile.write(file, matrix,
+                NetworkUtil.getNeuronTable(matrix, network), pruned);
+    }
+
+    /**
+     * This retrieves a network saved in the compact binary format.
+     *
+     * @param file Path and name of file to be loaded.
+     * @return NetworkFile Returns the network file, or null if it could not be
+     * read.
+     */
+    public static NetworkFile loadNetworkFromBinaryFile(File file) {
+
+        return NetworkFile.read(file);
+    }
+
+    /**
+     * This maps a network saved in the compact binary format into memory read
+     * only, so its weights are read from the file rather than the heap.
+     *
+     * @param file Path and name of file to be loaded.
+     * @return NetworkFile Returns the network file, or null if it could not be
+     * mapped.
+     */
+    public static NetworkFile mapNetworkFromBinaryFile(File file) {
+
+        return NetworkFile.map(file);
+    }
+
+    /**
+     * Returns true if the file is in the compact binary format rather than
+     * XML.
+     *
+     * @param file Path and name of file.
+     * @return True for a binary network file.
+     */
+    public static boolean isBinaryNetworkFile(File file) {
+
+        return NetworkFile.isNetworkFile(file);
     }
 
     /**
@@ -190,104 +332,154 @@ public class FileFunctions {
      */
     public static Map<Integer, double[]> loadCSVFile(String File) {
 
-        /**
-         * Initialize variables. 
-         */
-        String line;
-        BufferedReader stream = null;
-        
-        List<List<String>> csvData = new ArrayList<>();
+        ArrayDataset data = loadCSVDataset(File);
 
-        try {
+        if (data == null) {
 
-            /**
-             * Read the file from the given parameter. 
-             */
-            stream = new BufferedReader(new FileReader(File));
-            while ((line = stream.readLine()) != null) {
+            /* found error */
+            return null;
+        }
 
-                /** 
-                 * Convert commas into arrays for parsing data back.
-                 */
-                String[] splitted = line.split(",");
+        /* return data to caller.*/
+        return data.toMap();
+    }
 
-                List<String> dataLine = new ArrayList<>(splitted.length);
-                dataLine.addAll(Arrays.asList(splitted));
-                csvData.add(dataLine);
+    /**
+     * This is used to upload CSV files into the system for both Datasets and
+     * Target values, parsing pieces of the file on several threads.
+     *
+     * @param File Path and name of file to be loaded.
+     * @param threads Number of threads to parse with.
+     * @return Map Returns a Map of data loaded.
+     */
+    public static Map<Integer, double[]> loadCSVFile(String File, int threads) {
 
-            }
-            
-        } catch (FileNotFoundException ex) {
+        ArrayDataset data = loadCSVDataset(File, threads);
 
-            /* found error */
-            return null;
-            
-        } catch (IOException ex) {
+        if (data == null) {
 
             /* found error */
             return null;
+        }
 
-        } finally {
+        /* return data to caller.*/
+        return data.toMap();
+    }
 
-            if (stream != null) {
-                
-                try {
+    /**
+     * This is used to upload CSV files into the system as a flat dataset of
+     * primitive values rather than a Map of rows.
+     *
+     * @param File Path and name of file to be loaded.
+     * @return Dataset loaded, or null if the file could not be read.
+     */
+    public static ArrayDataset loadCSVDataset(String File) {
 
-                    /* done reading, close the stream.*/
-                    stream.close();
+        return CSVReader.read(new File(File));
+    }
 
-                } catch (IOException ex) {
+    /**
+     * This is used to upload CSV files into the system as a flat dataset,
+     * parsing pieces of the file on several threads.
+     *
+     * @param File Path and name of file to be loaded.
+     * @param threads Number of threads to parse with.
+     * @return Dataset loaded, or null if the file could not be read.
+     */
+    public static ArrayDataset loadCSVDataset(String File, int threads) {
 
-                    /* found error */
-                    return null;
-                }
-            }
+        return CSVReader.read(new File(File), threads);
+    }
+
+    /**
+     * This is used to upload the input vectors and targets of a CSV file that
+     * holds both, reading the file once. Columns are named by position from
+     * 0, columns not named are skipped.
+     *
+     * @param File Path and name of file to be loaded.
+     * @param features Columns of the input vectors, or null for every column
+     * that is not a target.
+     * @param targets Columns of the targets.
+     * @param dataSet This is passed as empty and will be populated with the
+     * input vectors.
+     * @param dataTarget This is passed as empty and will be populated with the
+     * targets.
+     * @return True if the file was loaded.
+     */
+    public static boolean loadCSVFile(String File, int[] features, int[] targets,
+            Map<Integer, double[]> dataSet, Map<Integer, double[]> dataTarget) {
+
+        ArrayDataset[] data = loadCSVDataset(File, features, targets);
+
+        if (data == null) {
+
+            /* found error */
+            return false;
         }
 
-        /* return data to caller.*/
-        return loadData(csvData);
+        dataSet.clear();
+        dataTarget.clear();
+
+        dataSet.putAll(data[0].toMap());
+        dataTarget.putAll(data[1].toMap());
 
+        return true;
     }
 
     /**
-     * Internal function that will convert a nested List component into an array
-     * that can be read by the system.
+     * This is used to upload the input vectors and targets of a CSV file that
+     * holds both as two flat datasets, reading the file once.
      *
-     * @param input This contains multi-dimension lists of data to be parsed.
-     * @return Map Returns a map of the data converted and ready for upload.
+     * @param File Path and name of file to be loaded.
+     * @param features Columns of the input vectors, or null for every column
+     * that is not a target.
+     * @param targets Columns of the targets.
+     * @return Input vectors and targets, or null if the file could not be read.
      */
-    @SuppressWarnings("unchecked")
-    private static Map<Integer, double[]> loadData(List<List<String>> input) {
+    public static ArrayDataset[] loadCSVDataset(String File, int[] features,
+            int[] targets) {
 
-        Map<Integer, double[]> arrayData = new HashMap();
+        return CSVReader.read(new File(File), features, targets);
+    }
 
-        /**
-         * Loop through the lists and create arrays.
-         */
-        for (int x = 0; x < input.size(); x++) {
+    /**
+     * This is used to upload CSV files into the system through a binary copy
+     * kept next to the file, see DatasetCache. The first load parses the file
+     * and writes the copy, later loads map the copy while the file is
+     * unchanged.
+     *
+     * @param File Path and name of file to be loaded.
+     * @param threads Number of threads to parse with.
+     * @return Dataset loaded, or null if the file could not be read.
+     */
+    public static IDataset loadCachedCSVDataset(String File, int threads) {
 
-            List<String> lineData = input.get(x);
+        return DatasetCache.load(new File(File), threads);
+    }
 
-            /**
-             * Set the size of the arrays created.
-             */
-            double value[] = new double[lineData.size()];
+    /**
+     * This is used to save a dataset to a binary file that can be memory
+     * mapped, see mapDatasetFromBinaryFile. Every row must hold the same
+     * number of values.
+     *
+     * @param file Path and name of file to be saved.
+     * @param data Dataset to be saved.
+     * @return True if the file was written.
+     */
+    public static boolean saveDatasetToBinaryFile(File file, IDataset data) {
 
-            for (int i = 0; i < lineData.size(); i++) {
-                
-                value[i] = Double.parseDouble(lineData.get(i));
-                
-            }
+        return MappedDataset.write(file, data);
+    }
 
-            /**
-             * Add data to map.
-             */
-            arrayData.put(x, value);
-        }
+    /**
+     * This is used to map a binary dataset file read only, rows are read from
+     * the file as they are used rather than loaded onto the heap.
+     *
+     * @param file Path and name of file to be loaded.
+     * @return Dataset mapped, or null if the file could not be mapped.
+     */
+    public static MappedDataset mapDatasetFromBinaryFile(File file) {
 
-        /**
-         * Return data. 
-         */
-        return arrayData;
+        return MappedDataset.map(file);
     }
 }
@@ -0,0 +1,932 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This class reads and writes the compact binary network format. All values
+ * are little-endian and the layout is:
+ *
+ * magic "PFNN", int version, int number of layers, int size of each layer,
+ * one byte bias flag per neuron for every layer, padding up to a multiple of
+ * 8 bytes, then one block of weights per layer from the first hidden layer
+ * onwards. Each block holds the weights of every neuron in the layer one
+ * neuron after the other (row-major, neuron x connection) as doubles.
+ *
+ * Input neurons carry no weights that are used, so none are stored.
+ *
+ * Networks with pruned layers are written as version 2, where each block
+ * starts with a long holding the number of weights stored for the layer. A
+ * block holding every weight is laid out as above. A pruned block holds only
+ * the weights left (compressed sparse rows): an int per neuron plus one for
+ * where the weights of each neuron start, an int per weight for the
+ * connection it belongs to, padding up to a multiple of 8 bytes, then the
+ * weights as doubles. Networks without pruned layers are still written as
+ * version 1. A pruned layer with no weight left at zero is written as a block
+ * holding every weight, as the number stored tells the two blocks apart.
+ */
+public final class NetworkFile {
+
+    /**
+     * First bytes of every binary network file.
+     */
+    public static final byte[] MAGIC = {'P', 'F', 'N', 'N'};
+
+    /**
+     * Version of the format written, the first version is written when no
+     * layer is pruned.
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * Size of the buffer used to stream weights to and from the file.
+     */
+    private static final int CHUNK = 1 << 16;
+
+    private final int[] MATRIX;
+    private final boolean[][] BIAS;
+    private final DoubleBuffer[] WEIGHTS;
+    private final boolean[] PRUNED;
+
+    /**
+     * Constructor.
+     *
+     * @param matrix Matrix of the network.
+     * @param bias Bias flag of each neuron per layer.
+     * @param weights Weights of each layer, null for the input layer.
+     * @param pruned Pruned flag of each layer.
+     */
+    private NetworkFile(int matrix[], boolean[][] bias, DoubleBuffer[] weights,
+            boolean[] pruned) {
+        this.MATRIX = matrix;
+        this.BIAS = bias;
+        this.WEIGHTS = weights;
+        this.PRUNED = pruned;
+    }
+
+    /**
+     * Returns the matrix of the network stored in the file.
+     *
+     * @return Matrix of network, passed as an array.
+     */
+    public int[] getMatrix() {
+        return MATRIX.clone();
+    }
+
+    /**
+     * Returns true if the neuron is a bias neuron.
+     *
+     * @param layer Position of the layer in the network.
+     * @param neuron Position of the neuron within the layer.
+     * @return True if bias.
+     */
+    public boolean getBias(int layer, int neuron) {
+        return BIAS[layer][neuron];
+    }
+
+    /**
+     * Returns true if the layer was stored pruned, holding only the weights
+     * that are not zero.
+     *
+     * @param layer Position of the layer in the network, from 1.
+     * @return True if pruned.
+     */
+    public boolean isPruned(int layer) {
+        return PRUNED[layer];
+    }
+
+    /**
+     * Returns the weights of a layer, row-major (neuron x connection). The
+     * weights dropped from a pruned layer are zero.
+     *
+     * @param layer Position of the layer in the network, from 1.
+     * @return Read only weights of the layer.
+     */
+    public DoubleBuffer getWeights(int layer) {
+        return WEIGHTS[layer].asReadOnlyBuffer();
+    }
+
+    /**
+     * This will copy the bias flags and weights into the neurons of a network
+     * built from the same matrix.
+     *
+     * @param layers Neurons of each layer, see NetworkUtil.getNeuronTable.
+     * @return True if every neuron was found and updated.
+     */
+    public boolean copyTo(Object[][] layers) {
+
+        for (int layer = 0; layer < MATRIX.length; layer++) {
+
+            int links = (layer == 0) ? 0 : MATRIX[layer - 1];
+            DoubleBuffer weights = (layer == 0) ? null : getWeights(layer);
+
+            for (int neuron = 0; neuron < MATRIX[layer]; neuron++) {
+
+                Object target = layers[layer][neuron];
+
+                if (target == null) {
+                    return false;
+                }
+
+                /**
+                 * Output neurons can never be bias.
+                 */
+                if (layer < (MATRIX.length - 1)) {
+                    NeuronUtil.setNeuronBias(target, BIAS[layer][neuron]);
+                }
+
+                for (int x = 0; x < links; x++) {
+                    NeuronUtil.setNeuronWeight(target, x, weights.get());
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns true if the file starts with the magic bytes of the binary
+     * network format.
+     *
+     * @param file Path and name of file.
+     * @return True if the file is a binary network file.
+     */
+    public static boolean isNetworkFile(File file) {
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                /**
+                 * Keep reading until the magic bytes are in.
+                 */
+            }
+
+            return !magic.hasRemaining() && Arrays.equals(magic.array(), MAGIC);
+
+        } catch (IOException | SecurityException ex) {
+
+            return false;
+        }
+    }
+
+    /**
+     * This will read a binary network file into memory.
+     *
+     * @param file Path and name of file to be loaded.
+     * @return The network file, or null if the file could not be read.
+     */
+    public static NetworkFile read(File file) {
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+
+            /**
+             * Header first, growing the buffer if the header is large.
+             */
+            int[] matrix = readMatrix(channel, buffer);
+
+            if (matrix == null) {
+                return null;
+            }
+
+            int header = getHeaderSize(matrix);
+
+            ByteBuffer head = ByteBuffer.allocate(header).order(ByteOrder.LITTLE_ENDIAN);
+            channel.position(0);
+            readFully(channel, head);
+
+            int version = head.getInt(MAGIC.length);
+
+            if (version == 1
+                    && channel.size() != header + (getWeightCount(matrix) * Double.BYTES)) {
+                return null;
+            }
+
+            boolean[][] bias = readBias(matrix, head);
+
+            /**
+             * Stream the weights of each layer into heap arrays.
+             */
+            DoubleBuffer[] weights = new DoubleBuffer[matrix.length];
+            boolean[] pruned = new boolean[matrix.length];
+
+            for (int layer = 1; layer < matrix.length; layer++) {
+
+                int links = matrix[layer - 1];
+                double[] values = new double[matrix[layer] * links];
+
+                long stored = values.length;
+
+                if (version > 1) {
+
+                    buffer.clear();
+                    buffer.limit(Long.BYTES);
+                    readFully(channel, buffer);
+                    buffer.flip();
+
+                    stored = buffer.getLong();
+                }
+
+                if (stored == values.length) {
+
+                    readDoubles(channel, buffer, values, values.length);
+                    weights[layer] = DoubleBuffer.wrap(values);
+                    continue;
+                }
+
+                if (stored < 0 || stored > values.length) {
+                    return null;
+                }
+
+                /**
+                 * Pruned layer, the weights left are spread back out.
+                 */
+                int count = (int) stored;
+                int[] offsets = new int[matrix[layer] + 1];
+                int[] columns = new int[count];
+                double[] kept = new double[count];
+
+                readInts(channel, buffer, offsets);
+                readInts(channel, buffer, columns);
+
+                if (((offsets.length + count) & 1) != 0) {
+                    channel.position(channel.position() + Integer.BYTES);
+                }
+
+                readDoubles(channel, buffer, kept, count);
+
+                if (offsets[0] != 0 || offsets[matrix[layer]] != count) {
+                    return null;
+                }
+
+                for (int neuron = 0; neuron < matrix[layer]; neuron++) {
+
+                    int last = -1;
+
+                    if (offsets[neuron + 1] < offsets[neuron]) {
+                        return null;
+                    }
+
+                    for (int x = offsets[neuron]; x < offsets[neuron + 1]; x++) {
+
+                        if (columns[x] <= last || columns[x] >= links) {
+                            return null;
+                        }
+
+                        last = columns[x];
+                        values[neuron * links + columns[x]] = kept[x];
+                    }
+                }
+
+                weights[layer] = DoubleBuffer.wrap(values);
+                pruned[layer] = true;
+            }
+
+            if (channel.position() != channel.size()) {
+                return null;
+            }
+
+            return new NetworkFile(matrix, bias, weights, pruned);
+
+        } catch (IOException | RuntimeException ex) {
+
+            return null;
+        }
+    }
+
+    /**
+     * This will map a binary network file into memory read only. The weights
+     * are served from the mapped file rather than copied onto the heap, so
+     * the operating system can share the pages between processes reading the
+     * same file. Each layer is mapped on its own.
+     *
+     * Pruned layers are not stored in full and can not be served from the
+     * file, so a file with pruned layers is read into memory instead.
+     *
+     * @param file Path and name of file to be loaded.
+     * @return The network file, or null if the file could not be mapped.
+     */
+    public static NetworkFile map(File file) {
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+
+            int[] matrix = readMatrix(channel, buffer);
+
+            if (matrix == null) {
+                return null;
+            }
+
+            int header = getHeaderSize(matrix);
+
+            ByteBuffer head = ByteBuffer.allocate(header).order(ByteOrder.LITTLE_ENDIAN);
+            channel.position(0);
+            readFully(channel, head);
+
+            if (head.getInt(MAGIC.length) != 1) {
+                return read(file);
+            }
+
+            if (channel.size() != header + (getWeightCount(matrix) * Double.BYTES)) {
+                return null;
+            }
+
+            boolean[][] bias = readBias(matrix, head);
+
+            /**
+             * The mapping stays valid once the channel has been closed.
+             */
+            DoubleBuffer[] weights = new DoubleBuffer[matrix.length];
+            long position = header;
+
+            for (int layer = 1; layer < matrix.length; layer++) {
+
+                long size = (long) matrix[layer] * matrix[layer - 1] * Double.BYTES;
+
+                weights[layer] = channel.map(FileChannel.MapMode.READ_ONLY, position, size)
+                        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+
+                position += size;
+            }
+
+            return new NetworkFile(matrix, bias, weights, new boolean[matrix.length]);
+
+        } catch (IOException | RuntimeException ex) {
+
+            return null;
+        }
+    }
+
+    /**
+     * This will write a network to a binary network file.
+     *
+     * @param file Path and name of file to be saved.
+     * @param matrix Matrix of network, passed as an array.
+     * @param layers Neurons of each layer, see NetworkUtil.getNeuronTable.
+     * @return True if the file was written.
+     */
+    public static boolean write(File file, int matrix[], Object[][] layers) {
+
+        return write(file, matrix, layers, null);
+    }
+
+    /**
+     * This will write a network to a binary network file, storing only the
+     * weights that are not zero for the layers flagged as pruned.
+     *
+     * @param file Path and name of file to be saved.
+     * @param matrix Matrix of network, passed as an array.
+     * @param layers Neurons of each layer, see NetworkUtil.getNeuronTable.
+     * @param pruned Pruned flag of each layer, null if none is pruned.
+     * @return True if the file was written.
+     */
+    public static boolean write(File file, int matrix[], Object[][] layers,
+            boolean[] pruned) {
+
+        boolean[][] bias = new boolean[matrix.length][];
+        DoubleBuffer[][] rows = new DoubleBuffer[matrix.length][];
+
+        for (int layer = 0; layer < matrix.length; layer++) {
+
+            bias[layer] = new boolean[matrix[layer]];
+            rows[layer] = new DoubleBuffer[matrix[layer]];
+
+            for (int neuron = 0; neuron < matrix[layer]; neuron++) {
+
+                /**
+                 * Every neuron of the matrix must be in the network.
+                 */
+                if (layers[layer][neuron] == null) {
+                    return false;
+                }
+
+                bias[layer][neuron] = (layer < (matrix.length - 1))
+                        && NeuronUtil.getNeuronBias(layers[layer][neuron]);
+
+                if (layer == 0) {
+                    continue;
+                }
+
+                double[] weight = NeuronUtil.getNeuronWeight(layers[layer][neuron]);
+
+                if (weight == null || weight.length != matrix[layer - 1]) {
+                    return false;
+                }
+
+                rows[layer][neuron] = DoubleBuffer.wrap(weight);
+            }
+        }
+
+        return write(file, matrix, bias, rows, pruned);
+    }
+
+    /**
+     * This will write a network held in weight buffers, rather than neurons,
+     * to a binary network file.
+     *
+     * @param file Path and name of file to be saved.
+     * @param matrix Matrix of network, passed as an array.
+     * @param bias Bias flag of each neuron per layer.
+     * @param weights Weights of each layer row-major (neuron x connection),
+     * null for the input layer.
+     * @return True if the file was written.
+     */
+    public static boolean write(File file, int matrix[], boolean[][] bias,
+            DoubleBuffer[] weights) {
+
+        return write(file, matrix, bias, weights, null);
+    }
+
+    /**
+     * This will write a network held in weight buffers, rather than neurons,
+     * to a binary network file, storing only the weights that are not zero
+     * for the layers flagged as pruned.
+     *
+     * @param file Path and name of file to be saved.
+     * @param matrix Matrix of network, passed as an array.
+     * @param bias Bias flag of each neuron per layer.
+     * @param weights Weights of each layer row-major (neuron x connection),
+     * null for the input layer.
+     * @param pruned Pruned flag of each layer, null if none is pruned.
+     * @return True if the file was written.
+     */
+    public static boolean write(File file, int matrix[], boolean[][] bias,
+            DoubleBuffer[] weights, boolean[] pruned) {
+
+        DoubleBuffer[][] rows = new DoubleBuffer[matrix.length][];
+
+        for (int layer = 1; layer < matrix.length; layer++) {
+
+            DoubleBuffer source = weights[layer].duplicate();
+            source.clear();
+
+            int links = matrix[layer - 1];
+
+            if (source.remaining() != matrix[layer] * links) {
+                return false;
+            }
+
+            /**
+             * One view per neuron, nothing is copied.
+             */
+            rows[layer] = new DoubleBuffer[matrix[layer]];
+
+            for (int neuron = 0; neuron < matrix[layer]; neuron++) {
+
+                source.limit((neuron + 1) * links);
+                source.position(neuron * links);
+
+                rows[layer][neuron] = source.slice();
+            }
+        }
+
+        return write(file, matrix, bias, rows, pruned);
+    }
+
+    /**
+     * This will write the weights of each neuron to a binary network file.
+     *
+     * @param file Path and name of file to be saved.
+     * @param matrix Matrix of network, passed as an array.
+     * @param bias Bias flag of each neuron per layer.
+     * @param rows Weights of each neuron per layer, null for the input layer.
+     * @param pruned Pruned flag of each layer, null if none is pruned.
+     * @return True if the file was written.
+     */
+    private static boolean write(File file, int matrix[], boolean[][] bias,
+            DoubleBuffer[][] rows, boolean[] pruned) {
+
+        int version = 1;
+
+        /**
+         * Only a layer with weights dropped is stored sparse, a block holding
+         * every weight is read back as a dense block.
+         */
+        boolean[] sparse = new boolean[matrix.length];
+
+        for (int layer = 1; pruned != null && layer < matrix.length; layer++) {
+
+            sparse[layer] = pruned[layer] && (getCount(rows[layer])
+                    < (long) matrix[layer] * matrix[layer - 1]);
+
+            if (sparse[layer]) {
+                version = VERSION;
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            writeHeader(channel, matrix, bias, version);
+
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+
+            for (int layer = 1; layer < matrix.length; layer++) {
+
+                if (sparse[layer]) {
+                    writePruned(channel, buffer, rows[layer]);
+                    continue;
+                }
+
+                if (version > 1) {
+                    reserve(channel, buffer, Long.BYTES);
+                    buffer.putLong((long) matrix[layer] * matrix[layer - 1]);
+                }
+
+                for (DoubleBuffer row : rows[layer]) {
+
+                    row = row.duplicate();
+                    row.clear();
+
+                    while (row.hasRemaining()) {
+                        reserve(channel, buffer, Double.BYTES);
+                        buffer.putDouble(row.get());
+                    }
+                }
+            }
+
+            buffer.flip();
+            writeFully(channel, buffer);
+
+            return true;
+
+        } catch (IOException | RuntimeException ex) {
+
+            return false;
+        }
+    }
+
+    /**
+     * Number of weights of a layer that are not zero.
+     *
+     * @param rows Weights of each neuron in the layer.
+     * @return Number of weights that are not zero.
+     */
+    private static long getCount(DoubleBuffer[] rows) {
+
+        long count = 0;
+
+        for (DoubleBuffer row : rows) {
+            for (int x = 0; x < row.limit(); x++) {
+                if (row.get(x) != 0) {
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Writes the weights that are not zero of a pruned layer as compressed
+     * sparse rows: the number of weights stored, where the weights of each
+     * neuron start, the connection of each weight, and the weights.
+     *
+     * @param channel Channel to write to.
+     * @param buffer Little-endian buffer to write with.
+     * @param rows Weights of each neuron in the layer.
+     * @throws IOException If the file can not be written.
+     */
+    private static void writePruned(FileChannel channel, ByteBuffer buffer,
+            DoubleBuffer[] rows) throws IOException {
+
+        int[] offsets = new int[rows.length + 1];
+
+        for (int neuron = 0; neuron < rows.length; neuron++) {
+
+            int count = 0;
+
+            for (int x = 0; x < rows[neuron].limit(); x++) {
+                if (rows[neuron].get(x) != 0) {
+                    count++;
+                }
+            }
+
+            offsets[neuron + 1] = offsets[neuron] + count;
+        }
+
+        int count = offsets[rows.length];
+
+        reserve(channel, buffer, Long.BYTES);
+        buffer.putLong(count);
+
+        for (int offset : offsets) {
+            reserve(channel, buffer, Integer.BYTES);
+            buffer.putInt(offset);
+        }
+
+        for (DoubleBuffer row : rows) {
+            for (int x = 0; x < row.limit(); x++) {
+                if (row.get(x) != 0) {
+                    reserve(channel, buffer, Integer.BYTES);
+                    buffer.putInt(x);
+                }
+            }
+        }
+
+        /**
+         * The weights start on a multiple of 8.
+         */
+        if (((offsets.length + count) & 1) != 0) {
+            reserve(channel, buffer, Integer.BYTES);
+            buffer.putInt(0);
+        }
+
+        for (DoubleBuffer row : rows) {
+            for (int x = 0; x < row.limit(); x++) {
+                if (row.get(x) != 0) {
+                    reserve(channel, buffer, Double.BYTES);
+                    buffer.putDouble(row.get(x));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the magic bytes, version, matrix and bias flags, padded up to a
+     * multiple of 8 bytes.
+     *
+     * @param channel Channel positioned at the start of the file.
+     * @param matrix Matrix of network, passed as an array.
+     * @param bias Bias flag of each neuron per layer.
+     * @param version Version of the format written.
+     * @throws IOException If the file can not be written.
+     */
+    private static void writeHeader(FileChannel channel, int matrix[],
+            boolean[][] bias, int version) throws IOException {
+
+        ByteBuffer head = ByteBuffer.allocate(getHeaderSize(matrix))
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        head.put(MAGIC);
+        head.putInt(version);
+        head.putInt(matrix.length);
+
+        for (int layer = 0; layer < matrix.length; layer++) {
+            head.putInt(matrix[layer]);
+        }
+
+        for (int layer = 0; layer < matrix.length; layer++) {
+            for (int neuron = 0; neuron < matrix[layer]; neuron++) {
+
+                /**
+                 * Output neurons can never be bias.
+                 */
+                boolean flag = (layer < (matrix.length - 1)) && bias[layer][neuron];
+
+                head.put((byte) (flag ? 1 : 0));
+            }
+        }
+
+        /**
+         * The rest of the header is padding.
+         */
+        head.clear();
+        writeFully(channel, head);
+    }
+
+    /**
+     * Reads the magic bytes, version and matrix from the start of the file.
+     *
+     * @param channel Channel positioned at the start of the file.
+     * @param buffer Little-endian buffer to read with.
+     * @return Matrix of the network, or null if this is not a valid file.
+     * @throws IOException If the file can not be read.
+     */
+    private static int[] readMatrix(FileChannel channel, ByteBuffer buffer)
+            throws IOException {
+
+        buffer.clear();
+        buffer.limit(MAGIC.length + (2 * Integer.BYTES));
+        readFully(channel, buffer);
+        buffer.flip();
+
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+
+        int version = buffer.getInt();
+
+        if (!Arrays.equals(magic, MAGIC) || version < 1 || version > VERSION) {
+            return null;
+        }
+
+        int length = buffer.getInt();
+
+        /**
+         * A network has at least an input and an output layer.
+         */
+        if (length < 2 || length > (CHUNK / Integer.BYTES)) {
+            return null;
+        }
+
+        buffer.clear();
+        buffer.limit(length * Integer.BYTES);
+        readFully(channel, buffer);
+        buffer.flip();
+
+        int[] matrix = new int[length];
+
+        for (int layer = 0; layer < length; layer++) {
+
+            matrix[layer] = buffer.getInt();
+
+            if (matrix[layer] < 1) {
+                return null;
+            }
+        }
+
+        return matrix;
+    }
+
+    /**
+     * Reads the bias flags from the header.
+     *
+     * @param matrix Matrix of the network.
+     * @param head Header of the file.
+     * @return Bias flag of each neuron per layer.
+     */
+    private static boolean[][] readBias(int matrix[], ByteBuffer head) {
+
+        head.position(MAGIC.length + ((2 + matrix.length) * Integer.BYTES));
+
+        boolean[][] bias = new boolean[matrix.length][];
+
+        for (int layer = 0; layer < matrix.length; layer++) {
+
+            bias[layer] = new boolean[matrix[layer]];
+
+            for (int neuron = 0; neuron < matrix[layer]; neuron++) {
+                bias[layer][neuron] = head.get() != 0;
+            }
+        }
+
+        return bias;
+    }
+
+    /**
+     * Size of the header, padded so the weights start on a multiple of 8.
+     *
+     * @param matrix Matrix of the network.
+     * @return Size in bytes.
+     */
+    static int getHeaderSize(int matrix[]) {
+
+        long size = MAGIC.length + ((2L + matrix.length) * Integer.BYTES);
+
+        for (int layer = 0; layer < matrix.length; layer++) {
+            size += matrix[layer];
+        }
+
+        return (int) ((size + 7) & ~7L);
+    }
+
+    /**
+     * Number of weights stored for the network.
+     *
+     * @param matrix Matrix of the network.
+     * @return Number of weights.
+     */
+    static long getWeightCount(int matrix[]) {
+
+        long count = 0;
+
+        for (int layer = 1; layer < matrix.length; layer++) {
+            count += (long) matrix[layer] * matrix[layer - 1];
+        }
+
+        return count;
+    }
+
+    /**
+     * Reads a number of doubles from the channel.
+     *
+     * @param channel Channel to read from.
+     * @param buffer Little-endian buffer to read with.
+     * @param values Array to fill.
+     * @param length Number of values to read.
+     * @throws IOException If the end of the file is reached first.
+     */
+    private static void readDoubles(FileChannel channel, ByteBuffer buffer,
+            double[] values, int length) throws IOException {
+
+        int done = 0;
+
+        while (done < length) {
+
+            buffer.clear();
+            buffer.limit(Math.min(buffer.capacity(), (length - done) * Double.BYTES));
+            readFully(channel, buffer);
+            buffer.flip();
+
+            int count = buffer.remaining() / Double.BYTES;
+            buffer.asDoubleBuffer().get(values, done, count);
+            done += count;
+        }
+    }
+
+    /**
+     * Reads an array of ints from the channel.
+     *
+     * @param channel Channel to read from.
+     * @param buffer Little-endian buffer to read with.
+     * @param values Array to fill.
+     * @throws IOException If the end of the file is reached first.
+     */
+    private static void readInts(FileChannel channel, ByteBuffer buffer,
+            int[] values) throws IOException {
+
+        int done = 0;
+
+        while (done < values.length) {
+
+            buffer.clear();
+            buffer.limit(Math.min(buffer.capacity(),
+                    (values.length - done) * Integer.BYTES));
+            readFully(channel, buffer);
+            buffer.flip();
+
+            int count = buffer.remaining() / Integer.BYTES;
+            buffer.asIntBuffer().get(values, done, count);
+            done += count;
+        }
+    }
+
+    /**
+     * Writes out the buffer if it has less room left than needed.
+     *
+     * @param channel Channel to write to.
+     * @param buffer Buffer being filled.
+     * @param bytes Number of bytes about to be put.
+     * @throws IOException If the file can not be written.
+     */
+    private static void reserve(FileChannel channel, ByteBuffer buffer, int bytes)
+            throws IOException {
+
+        if (buffer.remaining() < bytes) {
+            buffer.flip();
+            writeFully(channel, buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Reads until the buffer is full.
+     *
+     * @param channel Channel to read from.
+     * @param buffer Buffer to fill.
+     * @throws IOException If the end of the file is reached first.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer)
+            throws IOException {
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    /**
+     * Writes the whole buffer.
+     *
+     * @param channel Channel to write to.
+     * @param buffer Buffer to write.
+     * @throws IOException If the file can not be written.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer)
+            throws IOException {
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
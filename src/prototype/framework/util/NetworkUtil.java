@@ -15,10 +15,9 @@
  */
 package prototype.framework.util;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.Map;
 import prototype.framework.base.component.NeuronType;
+import prototype.framework.base.component.Precision;
 import prototype.framework.factory.NeuronFactory;
 
 /**
@@ -41,6 +40,22 @@ public class NetworkUtil {
     public static Map<String, Object> buildNetwork(int matrix[],
             Map<String, Object> network) {
 
+        return buildNetwork(matrix, network, Precision.DOUBLE);
+    }
+
+    /**
+     * This function will create a neural network based on the matrix parameters
+     * passed, with neurons holding their inputs and weights at the precision
+     * given.
+     *
+     * @param matrix Provide a matrix of the network as an array
+     * @param network Map of current network configuration.
+     * @param precision Precision of the inputs and weights of each neuron.
+     * @return System will return a Map containing network components.
+     */
+    public static Map<String, Object> buildNetwork(int matrix[],
+            Map<String, Object> network, Precision precision) {
+
         /**
          * New network, clear the old one.
          */
@@ -61,21 +76,21 @@ public class NetworkUtil {
                     /**
                      * Load input neurons.
                      */
-                    addNeuron(NeuronType.INPUT,(neurons + 1), 0, matrix, network);
+                    addNeuron(NeuronType.INPUT,(neurons + 1), 0, matrix, network, precision);
 
                 } else if (layers == (matrix.length - 1)) {
 
                     /**
                      * Load output neurons.
                      */
-                    addNeuron(NeuronType.OUTPUT,(neurons + 1), layers, matrix, network);
+                    addNeuron(NeuronType.OUTPUT,(neurons + 1), layers, matrix, network, precision);
 
                 } else {
 
                     /**
                      * Load hidden neuron layers.
                      */
-                    addNeuron(NeuronType.HIDDEN,(neurons + 1), layers, matrix, network);
+                    addNeuron(NeuronType.HIDDEN,(neurons + 1), layers, matrix, network, precision);
 
                 }
             }
@@ -94,9 +109,10 @@ public class NetworkUtil {
      * @param layer Layer number in neural network.
      * @param matrix Matrix of network to be created, passed as an array.
      * @param network Map of current network configuration.
+     * @param precision Precision of the inputs and weights of the neuron.
      */
     private static void addNeuron(NeuronType type, int number, int layer,
-            int matrix[], Map<String, Object> network) {
+            int matrix[], Map<String, Object> network, Precision precision) {
 
         /**
          * Setup class references.
@@ -119,7 +135,7 @@ public class NetworkUtil {
                 /**
                  * Get Neuron from Neuron Factory.
                  */
-                neuron = neuron_factory.InputNeuron();
+                neuron = neuron_factory.InputNeuron(precision);
                 NeuronUtil.setNeuronName(neuron, name);
 
                 /**
@@ -139,7 +155,7 @@ public class NetworkUtil {
                 /**
                  * Get Neuron from Neuron Factory.
                  */
-                neuron = neuron_factory.HiddenNeuron(matrix[layer - 1]);
+                neuron = neuron_factory.HiddenNeuron(matrix[layer - 1], precision);
                 NeuronUtil.setNeuronName(neuron, name);
 
                 /**
@@ -158,7 +174,7 @@ public class NetworkUtil {
                 /**
                  * Get Neuron from Neuron Factory.
                  */
-                neuron = neuron_factory.OutputNeuron(matrix[layer - 1]);
+                neuron = neuron_factory.OutputNeuron(matrix[layer - 1], precision);
                 NeuronUtil.setNeuronName(neuron, name);
 
                 /**
@@ -208,52 +224,107 @@ public class NetworkUtil {
      *
      * @return Amount of non-bias input neurons.
      */
-    @SuppressWarnings("unchecked")
     public static int getNumInuputNeurons(int matrix[], Map<String, Object> network) {
 
         int value = 0;
-        boolean bias = false;
 
         for (int x = 0; x < matrix[0]; x++) {
 
             String name = "a-" + (x + 1);
             if (network.get(name) != null) {
 
-                Object neuron = network.get(name);
-                Class aClass = neuron.getClass();
-
                 /**
-                 * We know the method is getBias, so get it and invoke it.
+                 * Exclude bias neurons from the check against input vectors.
                  */
-                Method method = null;
-                try {
+                if (NeuronUtil.getNeuronBias(network.get(name)) != true) {
+                    
+                    value += 1;
+                    
+                }
+            }
+        }
 
-                    method = aClass.getMethod("getBias");
+        return value;
+    }
 
-                } catch (NoSuchMethodException | SecurityException ex) {
+    /**
+     * This is used to return the name of every neuron in the network, indexed
+     * by layer and then by position in the layer. Building the names once
+     * saves concatenating strings for each neuron on every pass.
+     *
+     * @param matrix Matrix of network, passed as an array.
+     *
+     * @return Names of each neuron per layer.
+     */
+    public static String[][] getNeuronNames(int matrix[]) {
 
-                }
+        String names[][] = new String[matrix.length][];
 
-                try {
+        for (int layer = 0; layer < matrix.length; layer++) {
 
-                    bias = (boolean) method.invoke(neuron);
+            names[layer] = new String[matrix[layer]];
 
-                } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
+            for (int x = 0; x < matrix[layer]; x++) {
 
+                if (layer == 0) {
+                    names[layer][x] = "a-" + (x + 1);
+                } else if (layer == (matrix.length - 1)) {
+                    names[layer][x] = "c-" + (x + 1);
+                } else {
+                    names[layer][x] = "b-" + (x + 1) + "-" + layer;
                 }
+            }
+        }
 
-                /**
-                 * Exclude bias neurons from the check against input vectors.
-                 */
-                if (bias != true) {
-                    
-                    value += 1;
-                    
-                }
+        return names;
+    }
+
+    /**
+     * This is used to return the neurons of the network as a table indexed by
+     * layer and then by position in the layer, so the network can be walked
+     * without looking up each neuron by name. Neurons missing from the map
+     * are left as null.
+     *
+     * @param matrix Matrix of network, passed as an array.
+     * @param network Map of current network configuration.
+     *
+     * @return Neurons of each layer.
+     */
+    public static Object[][] getNeuronTable(int matrix[], Map<String, Object> network) {
+
+        return getNeuronTable(getNeuronNames(matrix), network, null);
+    }
+
+    /**
+     * This is used to refresh a table of neurons from the network map. The
+     * table given is filled in place if it has the same shape as the names,
+     * otherwise a new table is returned.
+     *
+     * @param names Names of each neuron per layer.
+     * @param network Map of current network configuration.
+     * @param table Table to be filled, may be null.
+     *
+     * @return Neurons of each layer.
+     */
+    public static Object[][] getNeuronTable(String names[][],
+            Map<String, Object> network, Object table[][]) {
+
+        if (table == null || table.length != names.length) {
+            table = new Object[names.length][];
+        }
+
+        for (int layer = 0; layer < names.length; layer++) {
+
+            if (table[layer] == null || table[layer].length != names[layer].length) {
+                table[layer] = new Object[names[layer].length];
+            }
+
+            for (int x = 0; x < names[layer].length; x++) {
+                table[layer][x] = network.get(names[layer][x]);
             }
         }
 
-        return value;
+        return table;
     }
 
     /**
@@ -278,10 +349,12 @@ public class NetworkUtil {
             NeuronUtil.setNeuronBias(network.get(name), bias);
 
             /**
-             * Error is the weight array doesn't match the values passed.
+             * Error is the weight array doesn't match the values passed. A
+             * neuron held in float hands out a copy, so it is read once.
              */
-            if (values.length
-                    != NeuronUtil.getNeuronWeight(network.get(name)).length) {
+            int links = NeuronUtil.getNeuronWeight(network.get(name)).length;
+
+            if (values.length != links) {
 
                 return false;
             }
@@ -289,9 +362,7 @@ public class NetworkUtil {
             /**
              * Update each of the weights for the neuron.
              */
-            for (int weight = 0;
-                    weight < NeuronUtil.getNeuronWeight(network.get(name)).length;
-                    weight++) {
+            for (int weight = 0; weight < links; weight++) {
 
                 NeuronUtil.setNeuronWeight(network.get(name), weight, values[weight]);
             }
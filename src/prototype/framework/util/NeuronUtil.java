@@ -15,19 +15,61 @@
  */
 package prototype.framework.util;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.Random;
 
+import prototype.framework.base.component.ActivationKernel;
+import prototype.framework.base.component.Neuron;
+import prototype.framework.components.HiddenNeuron;
+import prototype.framework.components.OutputNeuron;
+
 /**
  *
  * @author Quintin-John Smith
  *
  * This class contains common functions that will be used by the neural network
  * to communicate and exchange information with Neurons..
+ *
+ * Neurons derived from the base Neuron component are called directly. Any other
+ * object placed in the network map is called through a method handle that is
+ * looked up once per class and cached.
  */
 public class NeuronUtil {
 
+    /**
+     * Cached method handles used for objects that are not Neurons.
+     */
+    private static final HandleCache GET_BIAS
+            = new HandleCache("getBias", boolean.class);
+    private static final HandleCache SET_BIAS
+            = new HandleCache("setBias", void.class, boolean.class);
+    private static final HandleCache SET_INPUT
+            = new HandleCache("setInput", void.class, int.class, double.class);
+    private static final HandleCache GET_NAME
+            = new HandleCache("getName", String.class);
+    private static final HandleCache SET_NAME
+            = new HandleCache("setName", void.class, String.class);
+    private static final HandleCache GET_OUTPUT
+            = new HandleCache("getOutput", double.class);
+    private static final HandleCache GET_FINAL_OUTPUT
+            = new HandleCache("getFinalOutPut", double.class);
+    private static final HandleCache UPDATE_WEIGHTS
+            = new HandleCache("updateWeights", void.class,
+                    double.class, double.class, double.class);
+    private static final HandleCache CALCULATE_ERROR
+            = new HandleCache("calculateError", double.class, double.class);
+    private static final HandleCache CALCULATE_HIDDEN_ERROR
+            = new HandleCache("calculateError", double.class,
+                    double[].class, double[].class, double[].class);
+    private static final HandleCache GET_NET_WEIGHT
+            = new HandleCache("getNetWeight", double[].class);
+    private static final HandleCache GET_WEIGHT
+            = new HandleCache("getWeight", double[].class);
+    private static final HandleCache SET_WEIGHT
+            = new HandleCache("setWeight", void.class, int.class, double.class);
+
     /**
      * This is used to generate random numbers in a specific range.
      *
@@ -45,34 +87,27 @@ public class NeuronUtil {
         return scaled + min;
     }
 
+
     /**
      * This returns the Bias value of the neuron.
      *
      * @param neuron Neuron Object
      * @return Bias value of neuron.
      */
-    @SuppressWarnings("unchecked")
     public static boolean getNeuronBias(Object neuron) {
 
-        Class aClass = neuron.getClass();
-
-        /**
-         * We know the method is getBias, so get it and invoke it.
-         */
-        Method method = null;
         try {
 
-            method = aClass.getMethod("getBias");
+            if (neuron instanceof Neuron) {
+                return ((Neuron) neuron).getBias();
+            }
 
-        } catch (NoSuchMethodException | SecurityException ex) {
+            /**
+             * We know the method is getBias, so get it and invoke it.
+             */
+            return (boolean) GET_BIAS.get(neuron).invokeExact(neuron);
 
-        }
-
-        try {
-
-            return (boolean) method.invoke(neuron);
-
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
+        } catch (Throwable ex) {
 
             return false;
         }
@@ -85,31 +120,25 @@ public class NeuronUtil {
      * @param bias Bias value to be set.
      * @return True if success.
      */
-    @SuppressWarnings("unchecked")
     public static boolean setNeuronBias(Object neuron, boolean bias) {
 
-        Object[] params = new Object[1];
-        Class aClass = neuron.getClass();
-
-        /**
-         * We know the method is getBias, so get it and invoke it.
-         */
-        Method method = null;
         try {
 
-            method = aClass.getMethod("setBias", boolean.class);
+            if (neuron instanceof Neuron) {
 
-        } catch (NoSuchMethodException | SecurityException ex) {
+                ((Neuron) neuron).setBias(bias);
 
-        }
+            } else {
+
+                /**
+                 * We know the method is setBias, so get it and invoke it.
+                 */
+                SET_BIAS.get(neuron).invokeExact(neuron, bias);
+            }
 
-        try {
-            
-            params[0] = bias;
-            method.invoke(neuron, params);
             return true;
 
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
+        } catch (Throwable ex) {
 
             return false;
         }
@@ -123,34 +152,25 @@ public class NeuronUtil {
      * @param vector The input value.
      * @return Returns true if update succeeded.
      */
-    @SuppressWarnings("unchecked")
     public static boolean setNeuronInput(Object neuron, int position, double vector) {
 
-        Method method = null;
-        Object[] params = new Object[2];
-
-        Class aClass = neuron.getClass();
-        /**
-         * We know the method is setInput, so get it and invoke it.
-         */
         try {
 
-            method = aClass.getMethod("setInput", int.class, double.class);
+            if (neuron instanceof Neuron) {
 
-        } catch (NoSuchMethodException | SecurityException ex) {
-            
-            return false;
-        }
+                ((Neuron) neuron).setInput(position, vector);
 
-        try {
+            } else {
 
-            params[0] = position;
-            params[1] = vector;
-            method.invoke(neuron, params);
+                /**
+                 * We know the method is setInput, so get it and invoke it.
+                 */
+                SET_INPUT.get(neuron).invokeExact(neuron, position, vector);
+            }
 
             return true;
 
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
+        } catch (Throwable ex) {
 
             return false;
         }
@@ -162,28 +182,20 @@ public class NeuronUtil {
      * @param neuron Neuron object.
      * @return Returns name
      */
-    @SuppressWarnings("unchecked")
     public static String getNeuronName(Object neuron) {
 
-        Method method = null;
-        Class aClass = neuron.getClass();
-        /**
-         * We know the method is getName, so get it and invoke it.
-         */
         try {
 
-            method = aClass.getMethod("getName");
+            if (neuron instanceof Neuron) {
+                return ((Neuron) neuron).getName();
+            }
 
-        } catch (NoSuchMethodException | SecurityException ex) {
-            
-            return null;
-        }
-
-        try {
+            /**
+             * We know the method is getName, so get it and invoke it.
+             */
+            return (String) GET_NAME.get(neuron).invokeExact(neuron);
 
-            return (String) method.invoke(neuron);
-
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
+        } catch (Throwable ex) {
 
             return null;
         }
@@ -199,27 +211,20 @@ public class NeuronUtil {
      * @param neuron Neuron object.
      * @return Returns Output after Input and Activation Function.
      */
-    @SuppressWarnings("unchecked")
     public static double getNeuronOutput(Object neuron) {
-        Method method = null;
-        Class aClass = neuron.getClass();
-        /**
-         * We know the method is getOutput, so get it and invoke it.
-         */
-        try {
-
-            method = aClass.getMethod("getOutput");
-
-        } catch (NoSuchMethodException | SecurityException ex) {
-            
-            return Double.NaN;
-        }
 
         try {
 
-            return (double) method.invoke(neuron);
+            if (neuron instanceof Neuron) {
+                return ((Neuron) neuron).getOutput();
+            }
+
+            /**
+             * We know the method is getOutput, so get it and invoke it.
+             */
+            return (double) GET_OUTPUT.get(neuron).invokeExact(neuron);
 
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
+        } catch (Throwable ex) {
 
             return Double.NaN;
         }
@@ -251,41 +256,35 @@ public class NeuronUtil {
      * @param momentum This is the momentum of the algorithm.
      * @return Returns true is successful.
      */
-    @SuppressWarnings("unchecked")
     public static boolean updateNeuronWeights(Object neuron,
             double target, double learningRate, double momentum) {
 
-        Method method = null;
-        Object[] params = new Object[3];
-
-        Class aClass = neuron.getClass();
-        /**
-         * We know the method is updateWeights, so get it and invoke it.
-         */
         try {
 
-            method = aClass.getMethod("updateWeights", double.class, double.class, double.class);
+            if (neuron instanceof OutputNeuron) {
 
-        } catch (NoSuchMethodException | SecurityException ex) {
-            
-            return false;
-            
-        }
+                ((OutputNeuron) neuron).updateWeights(target, learningRate, momentum);
 
-        try {
+            } else if (neuron instanceof HiddenNeuron) {
+
+                ((HiddenNeuron) neuron).updateWeights(target, learningRate, momentum);
 
-            params[0] = target;
-            params[1] = learningRate;
-            params[2] = momentum;
-            method.invoke(neuron, params);
+            } else {
+
+                /**
+                 * We know the method is updateWeights, so get it and invoke
+                 * it.
+                 */
+                UPDATE_WEIGHTS.get(neuron).invokeExact(
+                        neuron, target, learningRate, momentum);
+            }
 
             return true;
 
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
+        } catch (Throwable ex) {
 
             return false;
         }
-
     }
 
     /**
@@ -311,32 +310,20 @@ public class NeuronUtil {
      * @param target Final expected target value.
      * @return Computed error.
      */
-    @SuppressWarnings("unchecked")
     public static double calculateNeuronError(Object neuron, double target) {
 
-        Method method = null;
-        Object[] params = new Object[1];
-
-        Class aClass = neuron.getClass();
-        /**
-         * We know the method is calculateError, so get it and invoke it.
-         */
-        try {
-
-            method = aClass.getMethod("calculateError", double.class);
-
-        } catch (NoSuchMethodException | SecurityException ex) {
-            
-            return Double.NaN;
-        }
-
         try {
 
-            params[0] = target;
+            if (neuron instanceof Neuron) {
+                return ((Neuron) neuron).calculateError(target);
+            }
 
-            return (double) method.invoke(neuron, params);
+            /**
+             * We know the method is calculateError, so get it and invoke it.
+             */
+            return (double) CALCULATE_ERROR.get(neuron).invokeExact(neuron, target);
 
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
+        } catch (Throwable ex) {
 
             return Double.NaN;
         }
@@ -371,35 +358,21 @@ public class NeuronUtil {
      *
      * @return New Error.
      */
-    @SuppressWarnings("unchecked")
     public static double calculateNeuronError(Object neuron, double[] target, double[] weight, double[] output) {
 
-        Method method = null;
-        Object[] params = new Object[3];
-
-        Class aClass = neuron.getClass();
-        /**
-         * We know the method is calculateError, so get it and invoke it.
-         */
-        try {
-
-            method = aClass.getMethod("calculateError", double[].class, double[].class, double[].class);
-
-        } catch (NoSuchMethodException | SecurityException ex) {
-            
-            return Double.NaN;
-            
-        }
-
         try {
 
-            params[0] = target;
-            params[1] = weight;
-            params[2] = output;
+            if (neuron instanceof HiddenNeuron) {
+                return ((HiddenNeuron) neuron).calculateError(target, weight, output);
+            }
 
-            return (double) method.invoke(neuron, params);
+            /**
+             * We know the method is calculateError, so get it and invoke it.
+             */
+            return (double) CALCULATE_HIDDEN_ERROR.get(neuron).invokeExact(
+                    neuron, target, weight, output);
 
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
+        } catch (Throwable ex) {
 
             return Double.NaN;
         }
@@ -412,28 +385,20 @@ public class NeuronUtil {
      * @param neuron Neuron object
      * @return Returns the final output from the neuron.
      */
-    @SuppressWarnings("unchecked")
     public static double getNeuronFinalOutPut(Object neuron) {
 
-        Method method = null;
-        Class aClass = neuron.getClass();
-        /**
-         * We know the method is getFinalOutPut, so get it and invoke it.
-         */
         try {
 
-            method = aClass.getMethod("getFinalOutPut");
-
-        } catch (NoSuchMethodException | SecurityException ex) {
-            
-            return Double.NaN;
-        }
-
-        try {
+            if (neuron instanceof Neuron) {
+                return ((Neuron) neuron).getFinalOutPut();
+            }
 
-            return (double) method.invoke(neuron);
+            /**
+             * We know the method is getFinalOutPut, so get it and invoke it.
+             */
+            return (double) GET_FINAL_OUTPUT.get(neuron).invokeExact(neuron);
 
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
+        } catch (Throwable ex) {
 
             return Double.NaN;
         }
@@ -446,32 +411,42 @@ public class NeuronUtil {
      * @param neuron Neuron object.
      * @return Gets the weights of the neuron.
      */
-    @SuppressWarnings("unchecked")
     public static double[] getNeuronNetWeight(Object neuron) {
 
-        Method method = null;
-        Class aClass = neuron.getClass();
-        
-        /**
-         * We know the method is getNetWeight, so get it and invoke it.
-         */
         try {
 
-            method = aClass.getMethod("getNetWeight");
+            if (neuron instanceof Neuron) {
+                return ((Neuron) neuron).getNetWeight();
+            }
+
+            /**
+             * We know the method is getNetWeight, so get it and invoke it.
+             */
+            return (double[]) GET_NET_WEIGHT.get(neuron).invokeExact(neuron);
+
+        } catch (Throwable ex) {
 
-        } catch (NoSuchMethodException | SecurityException ex) {
-            
             return null;
         }
+    }
 
-        try {
+    /**
+     * This will return the weight of one connection before back propagation
+     * was done, without copying the weights of a neuron held in float.
+     *
+     * @param neuron Neuron object.
+     * @param position The position in the weight matrix
+     * @return Net weight of the connection, NaN if it can not be read.
+     */
+    public static double getNeuronNetWeight(Object neuron, int position) {
 
-            return (double[]) method.invoke(neuron);
+        if (neuron instanceof Neuron) {
+            return ((Neuron) neuron).getNetWeight(position);
+        }
 
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
+        double[] weights = getNeuronNetWeight(neuron);
 
-            return null;
-        }
+        return (weights == null) ? Double.NaN : weights[position];
     }
 
     /**
@@ -481,29 +456,20 @@ public class NeuronUtil {
      * @param neuron Neuron object.
      * @return Gets the weights of the neuron.
      */
-    @SuppressWarnings("unchecked")
     public static double[] getNeuronWeight(Object neuron) {
 
-        Method method = null;
-        Class aClass = neuron.getClass();
-        
-        /**
-         * We know the method is getNetWeight, so get it and invoke it.
-         */
         try {
 
-            method = aClass.getMethod("getWeight");
+            if (neuron instanceof Neuron) {
+                return ((Neuron) neuron).getWeight();
+            }
 
-        } catch (NoSuchMethodException | SecurityException ex) {
-            
-            return null;
-        }
-
-        try {
+            /**
+             * We know the method is getWeight, so get it and invoke it.
+             */
+            return (double[]) GET_WEIGHT.get(neuron).invokeExact(neuron);
 
-            return (double[]) method.invoke(neuron);
-
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
+        } catch (Throwable ex) {
 
             return null;
         }
@@ -518,34 +484,25 @@ public class NeuronUtil {
      * @param value The value of the weight.
      * @return Gets the weights of the neuron.
      */
-    @SuppressWarnings("unchecked")
     public static boolean setNeuronWeight(Object neuron, int position, double value) {
 
-        Method method = null;
-        Object[] params = new Object[2];
-        Class aClass = neuron.getClass();
-        
-        /**
-         * We know the method is getNetWeight, so get it and invoke it.
-         */
         try {
 
-            method = aClass.getMethod("setWeight", int.class, double.class);
+            if (neuron instanceof Neuron) {
 
-        } catch (NoSuchMethodException | SecurityException ex) {
-            
-            return false;
-        }
+                ((Neuron) neuron).setWeight(position, value);
 
-        try {
+            } else {
+
+                /**
+                 * We know the method is setWeight, so get it and invoke it.
+                 */
+                SET_WEIGHT.get(neuron).invokeExact(neuron, position, value);
+            }
 
-            params[0] = position;
-            params[1] = value;
-            method.invoke(neuron, params);
-            
             return true;
 
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
+        } catch (Throwable ex) {
 
             return false;
         }
@@ -557,31 +514,114 @@ public class NeuronUtil {
      * @param neuron Neuron object.
      * @param name Name of Neuron.
      */
-    @SuppressWarnings("unchecked")
     public static void setNeuronName(Object neuron, String name) {
 
-        Method method = null;
-        Object[] params = new Object[1];
-        Class aClass = neuron.getClass();
-        /**
-         * We know the method is getNetWeight, so get it and invoke it.
-         */
         try {
 
-            method = aClass.getMethod("setName", String.class);
+            if (neuron instanceof Neuron) {
 
-        } catch (NoSuchMethodException | SecurityException ex) {
+                ((Neuron) neuron).setName(name);
+
+            } else {
+
+                /**
+                 * We know the method is setName, so get it and invoke it.
+                 */
+                SET_NAME.get(neuron).invokeExact(neuron, name);
+            }
+
+        } catch (Throwable ex) {
 
         }
+    }
 
-        try {
+    /**
+     * This returns the way the activation function of the neuron is computed.
+     *
+     * @param neuron Neuron object.
+     * @return Activation kernel, or null if the object is not a Neuron.
+     */
+    public static ActivationKernel getNeuronActivationKernel(Object neuron) {
 
-            params[0] = name;
-            method.invoke(neuron, params);
+        if (neuron instanceof Neuron) {
+            return ((Neuron) neuron).getActivationKernel();
+        }
+
+        return null;
+    }
 
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
+    /**
+     * This sets the way the activation function of the neuron is computed.
+     * Objects that are not Neurons are left unchanged.
+     *
+     * @param neuron Neuron object.
+     * @param kernel Activation kernel to be set.
+     * @return True if success.
+     */
+    public static boolean setNeuronActivationKernel(Object neuron,
+            ActivationKernel kernel) {
 
+        if (neuron instanceof Neuron) {
+            ((Neuron) neuron).setActivationKernel(kernel);
+            return true;
         }
+
+        return false;
     }
 
+    /**
+     * This holds one public method per class, looked up by name and type the
+     * first time an object of that class is seen. The handle is adapted to take
+     * the neuron as a plain Object so it can be invoked exactly.
+     */
+    private static final class HandleCache extends ClassValue<MethodHandle> {
+
+        private final String NAME;
+        private final MethodType TYPE;
+
+        /**
+         * Constructor
+         *
+         * @param name Name of the method.
+         * @param returnType Return type of the method.
+         * @param parameterTypes Parameter types of the method.
+         */
+        HandleCache(String name, Class<?> returnType, Class<?>... parameterTypes) {
+            this.NAME = name;
+            this.TYPE = MethodType.methodType(returnType, parameterTypes);
+        }
+
+        /**
+         * Returns the cached handle for the class of the neuron.
+         *
+         * @param neuron Neuron object.
+         * @return Method handle, never null.
+         * @throws NoSuchMethodException If the class has no such method.
+         */
+        MethodHandle get(Object neuron) throws NoSuchMethodException {
+
+            MethodHandle handle = super.get(neuron.getClass());
+
+            if (handle == null) {
+                throw new NoSuchMethodException(NAME);
+            }
+
+            return handle;
+        }
+
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+
+            try {
+
+                return MethodHandles.publicLookup()
+                        .findVirtual(type, NAME, TYPE)
+                        .asType(TYPE.insertParameterTypes(0, Object.class));
+
+            } catch (NoSuchMethodException | IllegalAccessException ex) {
+
+                return null;
+            }
+        }
+    }
 }
@@ -0,0 +1,110 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This class checks that on-line training allocates nothing per pattern once
+ * it has warmed up, by reading the bytes allocated by the training thread.
+ */
+public class NetworkAllocationTest {
+
+    private static final int[] MATRIX = {5, 8, 6, 3};
+    private static final int PATTERNS = 500;
+
+    /**
+     * Two sessions differing only in their number of epochs allocate the same,
+     * so every pattern of the extra epochs is trained without allocating.
+     */
+    @Test
+    public void onlineTrainingAllocatesNothingPerPattern() {
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        Network network = new Network();
+        Map<String, Object> map = network.buildNetwork(MATRIX);
+
+        Map<Integer, double[]> values = new HashMap<>();
+        Map<Integer, double[]> targets = new HashMap<>();
+
+        Random random = new Random(1);
+        int inputs = network.getInuputNeurons(MATRIX, map);
+
+        for (int pattern = 0; pattern < PATTERNS; pattern++) {
+
+            double[] value = new double[inputs];
+            double[] target = new double[MATRIX[MATRIX.length - 1]];
+
+            for (int x = 0; x < value.length; x++) {
+                value[x] = random.nextDouble();
+            }
+
+            for (int x = 0; x < target.length; x++) {
+                target[x] = random.nextDouble();
+            }
+
+            values.put(pattern, value);
+            targets.put(pattern, target);
+        }
+
+        /**
+         * Warm up, so the code is compiled and every buffer is in place.
+         */
+        for (int session = 0; session < 20; session++) {
+            network.startTraining(MATRIX, map, values, targets, 10, 0, 0.1, 0.9, 0);
+        }
+
+        long extra = Long.MAX_VALUE;
+        long id = Thread.currentThread().getId();
+
+        /**
+         * The smallest of a few tries, should anything else run on the thread.
+         */
+        for (int attempt = 0; attempt < 3; attempt++) {
+
+            long start = threads.getThreadAllocatedBytes(id);
+            network.startTraining(MATRIX, map, values, targets, 5, 0, 0.1, 0.9, 0);
+
+            long middle = threads.getThreadAllocatedBytes(id);
+            network.startTraining(MATRIX, map, values, targets, 25, 0, 0.1, 0.9, 0);
+
+            long end = threads.getThreadAllocatedBytes(id);
+
+            extra = Math.min(extra, (end - middle) - (middle - start));
+        }
+
+        assertEquals("Bytes allocated by 20 epochs of " + PATTERNS + " patterns",
+                0, extra);
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.core;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This class checks that debug messages reach a registered listener unless
+ * debug has been switched off.
+ */
+public class NetworkDebugTest {
+
+    private static final int[] MATRIX = {4, 5, 3};
+    private static final double[] INPUT = {0.1, 0.2, 0.3, 0.4};
+
+    /**
+     * A listener registered on a new network receives the trace.
+     */
+    @Test
+    public void listenerReceivesTraceByDefault() {
+
+        Network network = new Network();
+        Map<String, Object> map = network.buildNetwork(MATRIX);
+
+        Counter counter = new Counter();
+        network.addNetworkListener(counter);
+
+        network.startFeedForward(MATRIX, INPUT.clone(), map);
+
+        assertTrue(counter.messages > 0);
+    }
+
+    /**
+     * Debug switched off stays off while a listener is registered.
+     */
+    @Test
+    public void setDebugFalseSilencesListener() {
+
+        Network network = new Network();
+        Map<String, Object> map = network.buildNetwork(MATRIX);
+
+        network.setDebug(false);
+
+        Counter counter = new Counter();
+        network.addNetworkListener(counter);
+
+        network.startFeedForward(MATRIX, INPUT.clone(), map);
+
+        assertEquals(0, counter.messages);
+    }
+
+    /**
+     * Listener counting the debug messages received.
+     */
+    private static class Counter implements INetworkEvent {
+
+        private int messages;
+
+        @Override
+        public void networkMSE(int epoch, double error, double target) {
+        }
+
+        @Override
+        public void networkDebug(String message) {
+            messages++;
+        }
+
+        @Override
+        public void networkValidation(int pattern, double[] output, double[] target) {
+        }
+
+        @Override
+        public void trainingComplete(boolean completed, boolean cancel) {
+        }
+
+        @Override
+        public void validationComplete(boolean completed, boolean cancel) {
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import prototype.framework.base.component.Neuron;
+import prototype.framework.base.component.Precision;
+import prototype.framework.util.NetworkUtil;
+import prototype.framework.util.NeuronUtil;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This class checks that a network built with Precision.FLOAT holds its
+ * neurons in float, and that on-line training of its neurons stays within a
+ * stated bound of the same network built with Precision.DOUBLE.
+ */
+public class NetworkPrecisionTest {
+
+    /**
+     * Largest difference allowed between the outputs of the float and the
+     * double network after on-line training. The largest difference measured
+     * is about 1.2e-7.
+     */
+    private static final double TRAINING_BOUND = 1.0e-6;
+
+    private static final int[] MATRIX = {6, 10, 4};
+    private static final int PATTERNS = 50;
+    private static final int EPOCHS = 20;
+
+    /**
+     * Every neuron of a network built in float holds its weights in float.
+     */
+    @Test
+    public void floatNetworkHoldsNeuronsInFloat() {
+
+        Map<String, Object> map = new Network().buildNetwork(MATRIX, Precision.FLOAT);
+
+        for (String[] layer : NetworkUtil.getNeuronNames(MATRIX)) {
+            for (String name : layer) {
+
+                Neuron neuron = (Neuron) map.get(name);
+
+                assertEquals(name, Precision.FLOAT, neuron.getPrecision());
+
+                for (double weight : neuron.getWeight()) {
+                    assertEquals(name, (float) weight, weight, 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * The float network trained on-line from the same weights is within
+     * TRAINING_BOUND of the double network.
+     */
+    @Test
+    public void floatOnlineTrainingIsWithinBoundOfDouble() {
+
+        Network exact = new Network();
+        Network single = new Network();
+
+        exact.setShuffleData(false);
+        single.setShuffleData(false);
+
+        Map<String, Object> doubles = exact.buildNetwork(MATRIX, Precision.DOUBLE);
+        Map<String, Object> floats = single.buildNetwork(MATRIX, Precision.FLOAT);
+
+        /**
+         * Both start from the same weights, held exactly in float.
+         */
+        Random random = new Random(42);
+
+        for (String[] layer : NetworkUtil.getNeuronNames(MATRIX)) {
+            for (String name : layer) {
+
+                int links = NeuronUtil.getNeuronWeight(doubles.get(name)).length;
+
+                for (int x = 0; x < links; x++) {
+
+                    double weight = (float) (random.nextDouble() * 2 - 1);
+
+                    NeuronUtil.setNeuronWeight(doubles.get(name), x, weight);
+                    NeuronUtil.setNeuronWeight(floats.get(name), x, weight);
+                }
+            }
+        }
+
+        Map<Integer, double[]> values = new HashMap<>();
+        Map<Integer, double[]> targets = new HashMap<>();
+
+        for (int pattern = 0; pattern < PATTERNS; pattern++) {
+            values.put(pattern, getPattern(random, MATRIX[0]));
+            targets.put(pattern, getPattern(random, MATRIX[MATRIX.length - 1]));
+        }
+
+        exact.startTraining(MATRIX, doubles, values, targets, EPOCHS, 0, 0.3, 0.9, 0);
+        single.startTraining(MATRIX, floats, values, targets, EPOCHS, 0, 0.3, 0.9, 0);
+
+        for (int pattern = 0; pattern < PATTERNS; pattern++) {
+
+            double[] expected = exact.startFeedForward(MATRIX, values.get(pattern).clone(), doubles);
+            double[] actual = single.startFeedForward(MATRIX, values.get(pattern).clone(), floats);
+
+            for (int x = 0; x < expected.length; x++) {
+
+                double error = Math.abs(expected[x] - actual[x]);
+
+                assertTrue("training error " + error, error <= TRAINING_BOUND);
+            }
+        }
+    }
+
+    /**
+     * Draw a pattern of values between zero and one.
+     *
+     * @param random Source of the values.
+     * @param width Number of values.
+     * @return Pattern drawn.
+     */
+    private static double[] getPattern(Random random, int width) {
+
+        double[] pattern = new double[width];
+
+        for (int x = 0; x < width; x++) {
+            pattern[x] = random.nextDouble();
+        }
+
+        return pattern;
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.core;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import org.junit.Test;
+import prototype.framework.data.ArrayDataset;
+import prototype.framework.data.SparseDataset;
+import prototype.framework.util.NetworkUtil;
+import prototype.framework.util.NeuronUtil;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This class checks that training on a sparse dataset changes the weights the
+ * same way as training on the same rows held dense.
+ */
+public class NetworkSparseTest {
+
+    private static final int[] MATRIX = {40, 12, 6, 3};
+    private static final int ROWS = 50;
+    private static final int EPOCHS = 4;
+
+    /**
+     * Mini-batch training with momentum on the sparse rows gives the same
+     * weights as on the dense rows.
+     */
+    @Test
+    public void sparseTrainingMatchesDense() {
+
+        for (int batchSize : new int[]{2, 8, ROWS}) {
+
+            Random random = new Random(42);
+
+            ArrayDataset values = getPatterns(random, ROWS, MATRIX[0], 0.9);
+            ArrayDataset targets = getPatterns(random, ROWS, MATRIX[MATRIX.length - 1], 0);
+
+            Map<String, Object> dense = buildNetwork(new Random(7));
+            Map<String, Object> sparse = buildNetwork(new Random(7));
+
+            /**
+             * No error is reached, so both run every epoch.
+             */
+            new Network().startTraining(MATRIX, dense, values, targets,
+                    EPOCHS, 0, 0.7, 0.9, 0, batchSize);
+            new Network().startTraining(MATRIX, sparse, new SparseDataset(values),
+                    targets, EPOCHS, 0, 0.7, 0.9, 0, batchSize);
+
+            assertWeights("batch " + batchSize, dense, sparse);
+
+            String[][] names = NetworkUtil.getNeuronNames(MATRIX);
+            String name = names[names.length - 1][0];
+
+            assertFalse(Arrays.equals(NeuronUtil.getNeuronWeight(dense.get(name)),
+                    NeuronUtil.getNeuronWeight(buildNetwork(new Random(7)).get(name))));
+        }
+    }
+
+    /**
+     * A sparse vector wider than the input layer is refused before the first
+     * epoch, leaving the weights as they were.
+     */
+    @Test
+    public void vectorWiderThanInputIsRefused() {
+
+        Random random = new Random(42);
+
+        ArrayDataset values = getPatterns(random, ROWS, MATRIX[0] + 1, 0);
+        ArrayDataset targets = getPatterns(random, ROWS, MATRIX[MATRIX.length - 1], 0);
+
+        Map<String, Object> network = buildNetwork(new Random(7));
+
+        assertFalse(new Network().startTraining(MATRIX, network,
+                new SparseDataset(values), targets, EPOCHS, 0, 0.7, 0.9, 0, 8));
+
+        assertWeights("refused", buildNetwork(new Random(7)), network);
+    }
+
+    /**
+     * Check every weight of two networks is the same.
+     *
+     * @param message Message shown on failure.
+     * @param expected Map of the first network.
+     * @param actual Map of the second network.
+     */
+    private static void assertWeights(String message, Map<String, Object> expected,
+            Map<String, Object> actual) {
+
+        for (String[] layer : NetworkUtil.getNeuronNames(MATRIX)) {
+            for (String name : layer) {
+
+                assertArrayEquals(message + " " + name,
+                        NeuronUtil.getNeuronWeight(expected.get(name)),
+                        NeuronUtil.getNeuronWeight(actual.get(name)), 0);
+            }
+        }
+    }
+
+    /**
+     * Build a network whose weights are drawn from the random source given,
+     * so both networks start from the same weights.
+     *
+     * @param random Source of the weights.
+     * @return Map of the network.
+     */
+    private static Map<String, Object> buildNetwork(Random random) {
+
+        Map<String, Object> network = new Network().buildNetwork(MATRIX);
+
+        for (String[] layer : NetworkUtil.getNeuronNames(MATRIX)) {
+            for (String name : layer) {
+
+                Object neuron = network.get(name);
+
+                for (int x = 0; x < NeuronUtil.getNeuronWeight(neuron).length; x++) {
+                    NeuronUtil.setNeuronWeight(neuron, x, random.nextDouble() * 2 - 1);
+                }
+            }
+        }
+
+        return network;
+    }
+
+    /**
+     * Patterns between 0 and 1 with a share of the values left at zero.
+     *
+     * @param random Source of the values.
+     * @param rows Number of patterns.
+     * @param columns Values per pattern.
+     * @param zeros Share of the values left at zero.
+     * @return Patterns drawn.
+     */
+    private static ArrayDataset getPatterns(Random random, int rows, int columns,
+            double zeros) {
+
+        double[] values = new double[rows * columns];
+
+        for (int x = 0; x < values.length; x++) {
+
+            if (random.nextDouble() >= zeros) {
+                values[x] = random.nextDouble();
+            }
+        }
+
+        return new ArrayDataset(values, columns);
+    }
+}
@@ -0,0 +1,226 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This class checks that the comma separated reader parses each value to the
+ * same double as Double.parseDouble, and reads one row for each line in the
+ * same way as BufferedReader.readLine.
+ */
+public class CSVReaderTest {
+
+    private static final String[] LITERALS = {
+        "0", "-0", "+5", "0.1", ".5", "5.", "0.30000000000000004", "123.456e-2",
+        "1e-7", "1E22", "1e23", "1e-22", "9007199254740993", "123456789012345678",
+        "12345678901234567890e-5", "0.000000000000000000001", "1.7976931348623157e308",
+        "8.98846567431158e307", "2.2250738585072014E-308", "4.9e-324", "1e400",
+        "-1e-400", "NaN", "-Infinity", "0x1p3", "  3.25 ", "7d", "1.5f"
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Every value, whether taken by the fast path or handed on, matches
+     * Double.parseDouble to the bit.
+     */
+    @Test
+    public void valuesMatchParseDouble() {
+
+        for (String literal : LITERALS) {
+            assertValue(literal);
+        }
+
+        Random random = new Random(42);
+
+        for (int x = 0; x < 10000; x++) {
+
+            assertValue(Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20)));
+            assertValue(Long.toString(random.nextLong() >> random.nextInt(64)) + "." + random.nextInt(1000000));
+        }
+    }
+
+    /**
+     * A line holding only empty fields, or nothing, keeps its row so later
+     * rows keep the number of their line.
+     */
+    @Test
+    public void lineWithoutValuesKeepsItsRow() {
+
+        ArrayDataset data = read("1,2\n,,\n\n3,4,\n");
+
+        assertEquals(4, data.getRows());
+        assertEquals(0, data.getColumns(1));
+        assertEquals(0, data.getColumns(2));
+        assertArrayEquals(new double[]{3, 4}, data.getRow(3, null), 0);
+    }
+
+    /**
+     * A line may end with a line feed, a carriage return or both, even when
+     * the two are split across calls to parse.
+     */
+    @Test
+    public void carriageReturnEndsLine() {
+
+        byte[] bytes = "1,2\r3,4\r\n5,6\n7,8".getBytes(StandardCharsets.US_ASCII);
+
+        assertRows(read("1,2\r3,4\r\n5,6\n7,8"));
+
+        CSVReader reader = new CSVReader(0);
+
+        for (int x = 0; x < bytes.length; x++) {
+            reader.parse(bytes, x, x + 1);
+        }
+
+        assertRows(reader.finish());
+    }
+
+    /**
+     * A file read in pieces on several threads gives the same rows as one
+     * read on a single thread.
+     */
+    @Test
+    public void threadedReadMatchesSingleRead() throws IOException {
+
+        Random random = new Random(7);
+        StringBuilder text = new StringBuilder();
+
+        while (text.length() < 6 << 20) {
+
+            int columns = random.nextInt(6);
+
+            for (int x = 0; x < columns; x++) {
+
+                if (x > 0) {
+                    text.append(',');
+                }
+
+                text.append(random.nextGaussian());
+            }
+
+            text.append(random.nextInt(4) == 0 ? "\r\n" : "\n");
+        }
+
+        File file = write(text.toString());
+
+        ArrayDataset single = CSVReader.read(file);
+        ArrayDataset threaded = CSVReader.read(file, 4);
+
+        assertNotNull(threaded);
+        assertEquals(single.getRows(), threaded.getRows());
+        assertArrayEquals(single.getOffsets(), threaded.getOffsets());
+
+        int size = single.getOffsets()[single.getRows()];
+
+        for (int x = 0; x < size; x++) {
+            assertEquals(single.getValues()[x], threaded.getValues()[x], 0);
+        }
+    }
+
+    /**
+     * Named columns go to the input vectors and targets in the order named,
+     * and columns not named are skipped without being parsed.
+     */
+    @Test
+    public void namedColumnsAreRouted() throws IOException {
+
+        File file = write("1,2,skip,4,5\n6,7,skip,9,10\n");
+
+        ArrayDataset[] data = CSVReader.read(file, new int[]{3, 0}, new int[]{1});
+
+        assertNotNull(data);
+        assertArrayEquals(new double[]{4, 1}, data[0].getRow(0, null), 0);
+        assertArrayEquals(new double[]{9, 6}, data[0].getRow(1, null), 0);
+        assertArrayEquals(new double[]{2}, data[1].getRow(0, null), 0);
+        assertArrayEquals(new double[]{7}, data[1].getRow(1, null), 0);
+
+        data = CSVReader.read(write("1,2,3,4\n5,6,7,8\n"), null, new int[]{1});
+
+        assertNotNull(data);
+        assertArrayEquals(new double[]{1, 3, 4}, data[0].getRow(0, null), 0);
+        assertArrayEquals(new double[]{6}, data[1].getRow(1, null), 0);
+    }
+
+    /**
+     * A column named twice, or a line missing a named column, is rejected.
+     */
+    @Test
+    public void badColumnsAreRejected() throws IOException {
+
+        File file = write("1,2,3\n4,5,6\n");
+
+        assertNull(CSVReader.read(file, new int[]{0, 1}, new int[]{1}));
+        assertNull(CSVReader.read(file, new int[]{0}, new int[]{-1}));
+        assertNull(CSVReader.read(write("1,2,3\n4,5\n"), new int[]{0}, new int[]{2}));
+        assertNull(CSVReader.read(write("1,2,3\n\n4,5,6\n"), new int[]{0}, new int[]{2}));
+    }
+
+    private File write(String text) throws IOException {
+
+        File file = folder.newFile();
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.US_ASCII));
+
+        return file;
+    }
+
+    private static void assertRows(ArrayDataset data) {
+
+        assertNotNull(data);
+        assertEquals(4, data.getRows());
+
+        for (int x = 0; x < 4; x++) {
+            assertArrayEquals(new double[]{2 * x + 1, 2 * x + 2}, data.getRow(x, null), 0);
+        }
+    }
+
+    private static void assertValue(String literal) {
+
+        ArrayDataset data = read(literal + "\n");
+
+        assertNotNull(literal, data);
+        assertEquals(literal, Double.doubleToLongBits(Double.parseDouble(literal)),
+                Double.doubleToLongBits(data.getValue(0, 0)));
+    }
+
+    private static ArrayDataset read(String text) {
+
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        CSVReader reader = new CSVReader(0);
+
+        if (!reader.parse(bytes, 0, bytes.length)) {
+            return null;
+        }
+
+        return reader.finish();
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This class checks that the cached copy of a comma separated file is used
+ * while the source is unchanged, and is replaced once the size, last modified
+ * time or contents of the source change.
+ */
+public class DatasetCacheTest {
+
+    private static final long TIME = 1500000000000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+
+        file = folder.newFile("data.csv");
+        write("1,2\n3,4\n", TIME);
+
+        assertFalse(DatasetCache.load(file, 1) instanceof MappedDataset);
+        assertTrue(DatasetCache.getCacheFile(file).isFile());
+    }
+
+    /**
+     * An unchanged source is loaded from its copy.
+     */
+    @Test
+    public void unchangedSourceUsesCopy() {
+
+        IDataset data = DatasetCache.load(file, 1);
+
+        assertTrue(data instanceof MappedDataset);
+        assertRow(data, 1, 3, 4);
+    }
+
+    /**
+     * A source that grew is parsed again.
+     */
+    @Test
+    public void changedSizeReplacesCopy() throws IOException {
+
+        write("1,2\n3,4\n5,6\n", TIME);
+
+        IDataset data = DatasetCache.load(file, 1);
+
+        assertFalse(data instanceof MappedDataset);
+        assertEquals(3, data.getRows());
+        assertTrue(DatasetCache.load(file, 1) instanceof MappedDataset);
+    }
+
+    /**
+     * A source touched since the copy was made is parsed again.
+     */
+    @Test
+    public void changedTimeReplacesCopy() throws IOException {
+
+        write("1,2\n3,4\n", TIME + 2000);
+
+        assertFalse(DatasetCache.load(file, 1) instanceof MappedDataset);
+        assertTrue(DatasetCache.load(file, 1) instanceof MappedDataset);
+    }
+
+    /**
+     * A source rewritten with the same size and time is parsed again.
+     */
+    @Test
+    public void changedContentsReplacesCopy() throws IOException {
+
+        write("1,2\n7,8\n", TIME);
+
+        IDataset data = DatasetCache.load(file, 1);
+
+        assertFalse(data instanceof MappedDataset);
+        assertRow(data, 1, 7, 8);
+    }
+
+    private void write(String text, long time) throws IOException {
+
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.US_ASCII));
+        assertTrue(file.setLastModified(time));
+    }
+
+    private static void assertRow(IDataset data, int row, double... values) {
+        assertArrayEquals(values, data.getRow(row, null), 0);
+    }
+}
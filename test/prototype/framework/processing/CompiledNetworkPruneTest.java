@@ -0,0 +1,171 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.processing;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import prototype.framework.base.component.Precision;
+import prototype.framework.core.Network;
+import prototype.framework.util.NetworkUtil;
+import prototype.framework.util.NeuronUtil;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This class checks that a pruned network gives the same outputs as the dense
+ * network with the dropped weights set to zero, and that the dropped weights
+ * stay zero when the pruned network is trained.
+ */
+public class CompiledNetworkPruneTest {
+
+    private static final int[] MATRIX = {16, 24, 12, 4};
+    private static final double[] THRESHOLDS = {0.2, 0.6, 0.95};
+    private static final int ROWS = 32;
+
+    /**
+     * The feed forward of the pruned layers matches the dense layers holding
+     * zero for every weight dropped, in both precisions.
+     */
+    @Test
+    public void prunedFeedForwardMatchesZeroedDense() {
+
+        for (Precision precision : Precision.values()) {
+            for (double threshold : THRESHOLDS) {
+
+                double[][] values = getPatterns(new Random(42), ROWS, MATRIX[0]);
+
+                CompiledNetwork pruned = CompiledNetwork.compile(MATRIX,
+                        buildNetwork(0), precision);
+                CompiledNetwork dense = CompiledNetwork.compile(MATRIX,
+                        buildNetwork(threshold), precision);
+
+                for (int layers = 1; layers < MATRIX.length; layers++) {
+                    assertTrue(pruned.prune(layers, threshold));
+                }
+
+                double[][] expected = dense.start(values);
+                double[][] actual = pruned.start(values);
+
+                for (int row = 0; row < ROWS; row++) {
+                    assertArrayEquals(precision + " " + threshold, expected[row],
+                            actual[row], 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Training a pruned network changes only the weights left.
+     */
+    @Test
+    public void prunedTrainingKeepsDroppedWeightsAtZero() {
+
+        Random random = new Random(42);
+        double[][] values = getPatterns(random, ROWS, MATRIX[0]);
+        double[][] targets = getPatterns(random, ROWS, MATRIX[MATRIX.length - 1]);
+
+        Map<String, Object> network = buildNetwork(0);
+        CompiledNetwork pruned = CompiledNetwork.compile(MATRIX, network);
+
+        for (int layers = 1; layers < MATRIX.length; layers++) {
+            assertTrue(pruned.prune(layers, THRESHOLDS[1]));
+        }
+
+        for (int step = 0; step < 10; step++) {
+            pruned.train(values, targets, ROWS, 0.7, 0.9);
+        }
+
+        pruned.writeBack(network);
+
+        Map<String, Object> original = buildNetwork(0);
+        String[][] names = NetworkUtil.getNeuronNames(MATRIX);
+
+        /**
+         * The input layer holds no weights of the network.
+         */
+        for (int layers = 1; layers < MATRIX.length; layers++) {
+            for (String name : names[layers]) {
+
+                double[] before = NeuronUtil.getNeuronWeight(original.get(name));
+                double[] after = NeuronUtil.getNeuronWeight(network.get(name));
+
+                for (int x = 0; x < before.length; x++) {
+
+                    if (Math.abs(before[x]) < THRESHOLDS[1]) {
+                        assertEquals(name, 0, after[x], 0);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Build a network whose weights are drawn from the same random source
+     * each time, with every weight below the threshold set to zero.
+     *
+     * @param threshold Smallest magnitude of a weight that is kept.
+     * @return Map of the network.
+     */
+    private static Map<String, Object> buildNetwork(double threshold) {
+
+        Random random = new Random(7);
+        Map<String, Object> network = new Network().buildNetwork(MATRIX);
+
+        for (String[] layer : NetworkUtil.getNeuronNames(MATRIX)) {
+            for (String name : layer) {
+
+                Object neuron = network.get(name);
+
+                for (int x = 0; x < NeuronUtil.getNeuronWeight(neuron).length; x++) {
+
+                    double weight = random.nextDouble() * 2 - 1;
+
+                    NeuronUtil.setNeuronWeight(neuron, x,
+                            (Math.abs(weight) < threshold) ? 0 : weight);
+                }
+            }
+        }
+
+        return network;
+    }
+
+    /**
+     * Draw patterns of values between zero and one.
+     *
+     * @param random Source of the values.
+     * @param rows Number of patterns.
+     * @param width Number of values per pattern.
+     * @return Patterns drawn.
+     */
+    private static double[][] getPatterns(Random random, int rows, int width) {
+
+        double[][] patterns = new double[rows][width];
+
+        for (int row = 0; row < rows; row++) {
+            for (int x = 0; x < width; x++) {
+                patterns[row][x] = random.nextDouble();
+            }
+        }
+
+        return patterns;
+    }
+}
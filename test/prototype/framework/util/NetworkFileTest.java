@@ -0,0 +1,193 @@
+/**
+ * A DISSERTATION IT Artifact
+ *
+ * Submitted to The University of Liverpool in partial fulfillment of the requirements
+ *
+ * for the degree of MASTER OF SCIENCE
+ *
+ * I hereby certify that this dissertation constitutes my own product,
+ * that where the language of others is set forth, quotation marks so indicate,
+ * and that appropriate credit is given where I have used the language,
+ * ideas, expressions, or writings of another.
+ *
+ * I declare that the dissertation describes original work that has not previously
+ * been presented for the award of any other degree of any institution.
+ */
+package prototype.framework.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import prototype.framework.core.Network;
+
+/**
+ *
+ * @author Quintin-John Smith
+ *
+ * This class checks that networks saved in the compact binary format load
+ * back with the same weights, whether their layers are dense or pruned, and
+ * whether the file is read into memory or mapped.
+ */
+public class NetworkFileTest {
+
+    private static final int[] MATRIX = {4, 5, 3, 2};
+    private static final double[] INPUT = {0.1, 0.2, 0.3, 0.4};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * A dense network is written as version 1 and loads back unchanged.
+     */
+    @Test
+    public void denseNetworkRoundTrips() throws IOException {
+
+        Network network = new Network();
+        Map<String, Object> map = network.buildNetwork(MATRIX);
+
+        File file = save(network, map);
+
+        assertFalse(NetworkFile.read(file).isPruned(1));
+        assertLoads(file, network.startFeedForward(MATRIX, INPUT, map));
+    }
+
+    /**
+     * A network with weights dropped is written with pruned layers and loads
+     * back with the dropped weights at zero.
+     */
+    @Test
+    public void prunedNetworkRoundTrips() throws IOException {
+
+        Network network = new Network();
+        Map<String, Object> map = network.buildNetwork(MATRIX);
+
+        assertTrue(network.pruneNetworkToSparsity(MATRIX, map, 0.5));
+
+        File file = save(network, map);
+        NetworkFile model = NetworkFile.read(file);
+
+        assertTrue(model.isPruned(1));
+        assertLoads(file, network.startFeedForward(MATRIX, INPUT, map));
+    }
+
+    /**
+     * A layer pruned without any weight dropped, by a threshold below every
+     * weight or a fraction of zero, is written as a dense block.
+     */
+    @Test
+    public void prunedLayerKeepingEveryWeightRoundTrips() throws IOException {
+
+        double[][] thresholds = {{1.0e-12, 1.0e-12, 1.0e-12}, {1.0e-12, 0.5, 0}};
+
+        for (double[] threshold : thresholds) {
+
+            Network network = new Network();
+            Map<String, Object> map = network.buildNetwork(MATRIX);
+
+            assertTrue(network.pruneNetwork(MATRIX, map, threshold));
+
+            File file = save(network, map);
+
+            assertLoads(file, network.startFeedForward(MATRIX, INPUT, map));
+        }
+
+        Network network = new Network();
+        Map<String, Object> map = network.buildNetwork(MATRIX);
+
+        assertTrue(network.pruneNetworkToSparsity(MATRIX, map, new double[]{0.5, 0, 0}));
+
+        assertLoads(save(network, map), network.startFeedForward(MATRIX, INPUT, map));
+    }
+
+    /**
+     * Every weight and bias of every neuron loads back exactly as saved.
+     */
+    @Test
+    public void weightsRoundTripExactly() throws IOException {
+
+        Network network = new Network();
+        Map<String, Object> map = network.buildNetwork(MATRIX);
+
+        Map<String, Object> loaded = new Network().loadNetworkFromFile(save(network, map));
+
+        assertNotNull(loaded);
+
+        for (String[] layer : NetworkUtil.getNeuronNames(MATRIX)) {
+            for (String name : layer) {
+
+                assertArrayEquals(name, NeuronUtil.getNeuronWeight(map.get(name)),
+                        NeuronUtil.getNeuronWeight(loaded.get(name)), 0);
+                assertEquals(name, NeuronUtil.getNeuronBias(map.get(name)),
+                        NeuronUtil.getNeuronBias(loaded.get(name)));
+            }
+        }
+    }
+
+    /**
+     * A file cut short is refused, whether read into memory or mapped.
+     */
+    @Test
+    public void truncatedFileIsRefused() throws IOException {
+
+        Network network = new Network();
+        Map<String, Object> map = network.buildNetwork(MATRIX);
+
+        File file = save(network, map);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 8));
+
+        assertNull(new Network().loadNetworkFromFile(file, false));
+        assertNull(new Network().loadNetworkFromFile(file, true));
+    }
+
+    /**
+     * Save a network to a new file in the binary format.
+     *
+     * @param network Network holding the map.
+     * @param map Map of the network.
+     * @return File written.
+     * @throws IOException If the file can not be created.
+     */
+    private File save(Network network, Map<String, Object> map) throws IOException {
+
+        File file = folder.newFile();
+
+        assertTrue(network.saveNetworkToBinaryFile(file, map, MATRIX));
+
+        return file;
+    }
+
+    /**
+     * Load a file read into memory and mapped, and check both feed forward to
+     * the results expected.
+     *
+     * @param file Binary network file.
+     * @param expected Results of the network saved.
+     */
+    private static void assertLoads(File file, double[] expected) {
+
+        for (boolean mapped : new boolean[]{false, true}) {
+
+            Network network = new Network();
+            Map<String, Object> map = network.loadNetworkFromFile(file, mapped);
+
+            assertNotNull("mapped " + mapped, map);
+            assertEquals(MATRIX.length, network.getMatrix().length);
+            assertArrayEquals("mapped " + mapped, expected,
+                    network.startFeedForward(network.getMatrix(), INPUT.clone(), map), 0);
+        }
+    }
+}